@@ -0,0 +1,76 @@
+package com.mxh.bank.benchmark;
+
+import com.mxh.bank.AccountManagerServiceApplication;
+import com.mxh.bank.model.po.BankAccountPo;
+import com.mxh.bank.repository.AccountBatchRepository;
+import com.mxh.bank.utils.IdUtils;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 启动基准测试使用的Spring上下文：每次使用独立的H2内存库，Redis与Redisson使用进程内替身
+ */
+public final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    /**
+     * @param properties 额外的配置项，格式为 key=value，以命令行参数传入，优先级高于配置文件
+     */
+    public static ConfigurableApplicationContext start(String... properties) {
+        List<String> args = new ArrayList<>(properties.length + 1);
+        args.add("--spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        for (String property : properties) {
+            args.add("--" + property);
+        }
+        return new SpringApplicationBuilder(AccountManagerServiceApplication.class, StandInConfiguration.class)
+                .profiles("benchmark")
+                .run(args.toArray(new String[0]));
+    }
+
+    /**
+     * 批量写入测试账户
+     * @return 按写入顺序排列的账号
+     */
+    public static List<String> seedAccounts(ConfigurableApplicationContext context, String prefix, int count, BigDecimal balance) {
+        List<BankAccountPo> accounts = new ArrayList<>(count);
+        long createTime = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            String accountNumber = prefix + String.format("%08d", i);
+            accounts.add(BankAccountPo.builder()
+                    .id(IdUtils.getNextId())
+                    .accountNumber(accountNumber)
+                    .accountHolderName(accountNumber)
+                    .contactNumber(accountNumber)
+                    .balance(balance)
+                    .createTime(createTime)
+                    .version(0L)
+                    .build());
+        }
+        AccountBatchRepository accountBatchRepository = context.getBean(AccountBatchRepository.class);
+        context.getBean(TransactionTemplate.class).executeWithoutResult(status -> accountBatchRepository.batchInsert(accounts));
+        return accounts.stream().map(BankAccountPo::getAccountNumber).toList();
+    }
+
+    /**
+     * 构造一个字段完整的账户，用于不依赖数据库的基准
+     */
+    public static BankAccountPo sampleAccount() {
+        return BankAccountPo.builder()
+                .id(IdUtils.getNextId())
+                .accountNumber("6222020200112233")
+                .accountHolderName("Benchmark User")
+                .contactNumber("13800000000")
+                .balance(new BigDecimal("123456.78"))
+                .createTime(System.currentTimeMillis())
+                .version(3L)
+                .build();
+    }
+}
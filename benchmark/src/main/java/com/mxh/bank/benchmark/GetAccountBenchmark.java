@@ -0,0 +1,63 @@
+package com.mxh.bank.benchmark;
+
+import com.mxh.bank.model.response.AccountInfoResponse;
+import com.mxh.bank.service.AccountCacheService;
+import com.mxh.bank.service.AccountManagerService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * getAccount各条路径的耗时：
+ * l1为本地缓存命中；l2为本地未命中、Redis（内存替身，含JSON反序列化）命中；miss为两级均未命中回源H2
+ * l2与miss的耗时包含每次调用前清理缓存的开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class GetAccountBenchmark {
+    private static final int ACCOUNTS = 1000;
+
+    @Param({"l1", "l2", "miss"})
+    public String path;
+
+    private ConfigurableApplicationContext context;
+
+    private AccountManagerService accountManagerService;
+
+    private AccountCacheService accountCacheService;
+
+    private List<String> accountNumbers;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        accountManagerService = context.getBean(AccountManagerService.class);
+        accountCacheService = context.getBean(AccountCacheService.class);
+        accountNumbers = BenchmarkContext.seedAccounts(context, "G", ACCOUNTS, new BigDecimal("100.00"));
+        accountNumbers.forEach(accountManagerService::getAccount);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public AccountInfoResponse getAccount() {
+        String accountNumber = accountNumbers.get(ThreadLocalRandom.current().nextInt(ACCOUNTS));
+        if ("l2".equals(path)) {
+            accountCacheService.evictLocal(accountNumber);
+        } else if ("miss".equals(path)) {
+            accountCacheService.evict(accountNumber);
+        }
+        return accountManagerService.getAccount(accountNumber);
+    }
+}
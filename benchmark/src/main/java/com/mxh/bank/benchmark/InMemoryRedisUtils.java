@@ -0,0 +1,67 @@
+package com.mxh.bank.benchmark;
+
+import com.mxh.bank.utils.RedisUtils;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * 内存版RedisUtils，值按RedisTemplate相同的序列化方式保存，保留序列化开销，不模拟网络与过期
+ */
+public class InMemoryRedisUtils extends RedisUtils {
+    private final RedisSerializer<Object> serializer;
+
+    private final Map<String, byte[]> store = new ConcurrentHashMap<>();
+
+    public InMemoryRedisUtils(RedisSerializer<Object> serializer) {
+        this.serializer = serializer;
+    }
+
+    @Override
+    public void set(String key, Object value) {
+        store.put(key, serializer.serialize(value));
+    }
+
+    @Override
+    public void set(String key, Object value, long time, TimeUnit unit) {
+        store.put(key, serializer.serialize(value));
+    }
+
+    @Override
+    public void pipelineSet(Map<String, Object> values, ToLongFunction<Object> ttlSeconds) {
+        values.forEach(this::set);
+    }
+
+    @Override
+    public Object get(String key) {
+        byte[] bytes = store.get(key);
+        return bytes == null ? null : serializer.deserialize(bytes);
+    }
+
+    @Override
+    public List<Object> multiGet(List<String> keys) {
+        List<Object> values = new ArrayList<>(keys.size());
+        keys.forEach(key -> values.add(get(key)));
+        return values;
+    }
+
+    @Override
+    public <T> T get(String key, Class<T> clazz) {
+        Object result = get(key);
+        return clazz.isInstance(result) ? clazz.cast(result) : null;
+    }
+
+    @Override
+    public Boolean delete(String key) {
+        return store.remove(key) != null;
+    }
+
+    @Override
+    public void publish(String channel, Object message) {
+    }
+}
@@ -0,0 +1,43 @@
+package com.mxh.bank.benchmark;
+
+import com.mxh.bank.model.po.BankAccountPo;
+import com.mxh.bank.model.response.AccountInfoResponse;
+import com.mxh.bank.service.impl.AccountManagerServiceImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 实体到响应对象的转换开销，列表与导出接口每行都会执行一次
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapToAccountResponseBenchmark {
+    private AccountManagerServiceImpl accountManagerService;
+
+    private MethodHandle mapToAccountResponse;
+
+    private BankAccountPo account;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ReflectiveOperationException {
+        accountManagerService = new AccountManagerServiceImpl();
+        // 转换方法是私有的，通过MethodHandle调用，不启动Spring上下文
+        mapToAccountResponse = MethodHandles.privateLookupIn(AccountManagerServiceImpl.class, MethodHandles.lookup())
+                .findVirtual(AccountManagerServiceImpl.class, "mapToAccountResponse",
+                        MethodType.methodType(AccountInfoResponse.class, BankAccountPo.class));
+        account = BenchmarkContext.sampleAccount();
+    }
+
+    @Benchmark
+    public AccountInfoResponse mapToAccountResponse() throws Throwable {
+        return (AccountInfoResponse) mapToAccountResponse.invokeExact(accountManagerService, account);
+    }
+}
@@ -0,0 +1,66 @@
+package com.mxh.bank.benchmark;
+
+import com.mxh.bank.config.RedisConfig;
+import com.mxh.bank.model.po.BankAccountPo;
+import com.mxh.bank.utils.AccountBinaryRedisSerializer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RedisTemplate缓存账户的序列化与反序列化开销，对比JSON与紧凑二进制两种编码
+ * 每条缓存的字节数通过辅助计数器bytes记录到结果中
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RedisSerializerBenchmark {
+    @Param({RedisConfig.CODEC_JSON, RedisConfig.CODEC_BINARY})
+    private String codec;
+
+    private RedisSerializer<Object> serializer;
+
+    private BankAccountPo account;
+
+    private byte[] serialized;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        serializer = RedisConfig.CODEC_BINARY.equals(codec)
+                ? new AccountBinaryRedisSerializer()
+                : new GenericJackson2JsonRedisSerializer();
+        account = BenchmarkContext.sampleAccount();
+        serialized = serializer.serialize(account);
+    }
+
+    @Benchmark
+    public byte[] serialize(EntrySize entrySize) {
+        byte[] bytes = serializer.serialize(account);
+        entrySize.bytes = bytes.length;
+        return bytes;
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return serializer.deserialize(serialized);
+    }
+
+    @Benchmark
+    public Object roundTrip() {
+        return serializer.deserialize(serializer.serialize(account));
+    }
+
+    /**
+     * 以辅助计数器的形式把单条缓存的字节数写入结果文件，便于与耗时一起对比
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class EntrySize {
+        public long bytes;
+    }
+}
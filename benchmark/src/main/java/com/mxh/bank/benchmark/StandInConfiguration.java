@@ -0,0 +1,42 @@
+package com.mxh.bank.benchmark;
+
+import com.mxh.bank.utils.RedisUtils;
+import org.redisson.api.RedissonClient;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.lang.reflect.Proxy;
+
+/**
+ * 进程内替身：缓存读写走内存中的RedisUtils，分布式锁使用本地分段锁，不需要Redis服务
+ */
+@Configuration
+public class StandInConfiguration {
+
+    /**
+     * 使用RedisTemplate配置的值序列化方式，bank.cache.redis.codec同样作用于缓存基准
+     */
+    @Bean
+    @Primary
+    @SuppressWarnings("unchecked")
+    public RedisUtils inMemoryRedisUtils(RedisTemplate<String, Object> redisTemplate) {
+        return new InMemoryRedisUtils((RedisSerializer<Object>) redisTemplate.getValueSerializer());
+    }
+
+    /**
+     * 基准中不应触达Redisson，任何调用都直接报错，避免测到意料之外的路径
+     */
+    @Bean(destroyMethod = "")
+    public RedissonClient redissonClient() {
+        return (RedissonClient) Proxy.newProxyInstance(RedissonClient.class.getClassLoader(), new Class<?>[]{RedissonClient.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "toString" -> "RedissonClient stand-in";
+                    default -> throw new UnsupportedOperationException("RedissonClient is not available in benchmark: " + method.getName());
+                });
+    }
+}
@@ -0,0 +1,69 @@
+package com.mxh.bank.benchmark;
+
+import com.mxh.bank.model.request.TransferRequestParam;
+import com.mxh.bank.model.response.OperationResponse;
+import com.mxh.bank.service.AccountManagerService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * transferFunds吞吐：uniform为账户间均匀随机转账，hot为每笔转账都有一端落在同一个账户上
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(8)
+public class TransferBenchmark {
+    private static final int ACCOUNTS = 1000;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("100000000.00");
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    @Param({"uniform", "hot"})
+    public String distribution;
+
+    @Param({"pessimistic", "conditional", "optimistic"})
+    public String mode;
+
+    private ConfigurableApplicationContext context;
+
+    private AccountManagerService accountManagerService;
+
+    private List<String> accountNumbers;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("bank.transfer.mode=" + mode);
+        accountManagerService = context.getBean(AccountManagerService.class);
+        accountNumbers = BenchmarkContext.seedAccounts(context, "T", ACCOUNTS, INITIAL_BALANCE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public OperationResponse transferFunds() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = "hot".equals(distribution) ? 0 : random.nextInt(ACCOUNTS);
+        int second = random.nextInt(ACCOUNTS - 1);
+        if (second >= first) {
+            second++;
+        }
+        // 热点账户一半转入一半转出，余额不会单向耗尽
+        boolean forward = random.nextBoolean();
+        TransferRequestParam request = new TransferRequestParam();
+        request.setFromAccount(accountNumbers.get(forward ? first : second));
+        request.setToAccount(accountNumbers.get(forward ? second : first));
+        request.setAmount(AMOUNT);
+        return accountManagerService.transferFunds(request);
+    }
+}
@@ -0,0 +1,15 @@
+package com.mxh.bank.loadtest;
+
+import java.math.BigDecimal;
+
+/**
+ * 被压测的调用入口，每个方法返回null表示成功，否则返回错误码（BM-xxx）或异常类型名
+ */
+public interface LoadDriver {
+
+    String getAccount(String accountNumber);
+
+    String updateAccount(String accountNumber, String accountHolderName, String contactNumber);
+
+    String transfer(String fromAccount, String toAccount, BigDecimal amount);
+}
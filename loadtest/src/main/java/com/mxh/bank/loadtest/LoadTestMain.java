@@ -0,0 +1,122 @@
+package com.mxh.bank.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mxh.bank.AccountManagerServiceApplication;
+import com.mxh.bank.benchmark.BenchmarkContext;
+import com.mxh.bank.benchmark.StandInConfiguration;
+import com.mxh.bank.service.AccountManagerService;
+import com.mxh.bank.utils.AmountUtils;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 压测入口：在H2内存库与进程内Redis替身上启动服务，写入测试账户后按配置的操作比例与Zipf热点分布持续施压
+ * 结束后输出各操作的吞吐、延迟分位数与直方图、加锁超时比例，并校验全部账户余额之和不变
+ * 除 load. 参数外，其余命令行参数（如 --bank.transfer.mode=conditional）直接作为服务配置生效
+ */
+public class LoadTestMain {
+
+    public static void main(String[] args) throws Exception {
+        // 命令行参数的优先级高于配置文件，使用独立的内存库
+        List<String> springArgs = new ArrayList<>(List.of(args));
+        springArgs.add(0, "--spring.datasource.url=jdbc:h2:mem:load-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(AccountManagerServiceApplication.class, StandInConfiguration.class)
+                .profiles("benchmark", "loadtest")
+                .run(springArgs.toArray(new String[0]));
+        try {
+            LoadTestOptions options = new LoadTestOptions(context.getEnvironment());
+            System.out.println("load test options: " + options);
+
+            List<String> accounts = BenchmarkContext.seedAccounts(context, "LT", options.getAccounts(), options.getInitialBalance());
+            ZipfianGenerator zipfian = new ZipfianGenerator(accounts.size(), options.getZipfExponent());
+            System.out.printf("seeded accounts = %d, top 1%% accounts receive %.1f%% of accesses%n",
+                    accounts.size(), zipfian.headProbability(Math.max(1, accounts.size() / 100)) * 100);
+
+            LoadDriver driver = options.getTarget() == LoadTestOptions.Target.REST
+                    ? new RestLoadDriver("http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/bank-manager",
+                    context.getBean(ObjectMapper.class), options.getThreads())
+                    : new ServiceLoadDriver(context.getBean(AccountManagerService.class));
+
+            if (options.getWarmupSeconds() > 0) {
+                run(options, driver, accounts, zipfian, new LoadTestReport(), options.getWarmupSeconds());
+            }
+            LoadTestReport report = new LoadTestReport();
+            long elapsedNanos = run(options, driver, accounts, zipfian, report, options.getDurationSeconds());
+            report.print(System.out, elapsedNanos);
+
+            checkTotalBalance(context, options);
+        } finally {
+            context.close();
+        }
+    }
+
+    /**
+     * @return 实际施压耗时（纳秒）
+     */
+    private static long run(LoadTestOptions options, LoadDriver driver, List<String> accounts, ZipfianGenerator zipfian,
+                            LoadTestReport report, int seconds) {
+        ExecutorService executor = Executors.newFixedThreadPool(options.getThreads());
+        long start = System.nanoTime();
+        long deadline = start + seconds * 1_000_000_000L;
+        try {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int t = 0; t < options.getThreads(); t++) {
+                futures.add(CompletableFuture.runAsync(() -> {
+                    while (System.nanoTime() < deadline) {
+                        LoadTestOptions.Operation operation = options.nextOperation();
+                        long begin = System.nanoTime();
+                        String errorCode = execute(operation, options, driver, accounts, zipfian);
+                        report.record(operation, System.nanoTime() - begin, errorCode);
+                    }
+                }, executor));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } finally {
+            executor.shutdown();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static String execute(LoadTestOptions.Operation operation, LoadTestOptions options, LoadDriver driver,
+                                  List<String> accounts, ZipfianGenerator zipfian) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String accountNumber = accounts.get(zipfian.next());
+        switch (operation) {
+            case READ:
+                return driver.getAccount(accountNumber);
+            case UPDATE:
+                return driver.updateAccount(accountNumber, accountNumber, String.valueOf(random.nextLong(10_000_000_000L)));
+            default:
+                String toAccount = accounts.get(zipfian.next());
+                while (toAccount.equals(accountNumber)) {
+                    toAccount = accounts.get(random.nextInt(accounts.size()));
+                }
+                BigDecimal amount = AmountUtils.fromCents(1 + random.nextLong(options.getMaxAmountCents()));
+                return driver.transfer(accountNumber, toAccount, amount);
+        }
+    }
+
+    /**
+     * 转账只在账户之间移动资金，全部账户（含分片）的余额之和应保持不变
+     * 开启异步转账或热点账户时需等待后台记账与回写完成，此处的结果仅供参考
+     */
+    private static void checkTotalBalance(ConfigurableApplicationContext context, LoadTestOptions options) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        BigDecimal accountTotal = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(balance), 0) FROM bank_account", BigDecimal.class);
+        BigDecimal shardTotal = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(balance), 0) FROM bank_account_shard", BigDecimal.class);
+        BigDecimal total = accountTotal.add(shardTotal);
+        BigDecimal expected = options.getInitialBalance().multiply(BigDecimal.valueOf(options.getAccounts()));
+        System.out.printf("%ntotal balance = %s, expected = %s, %s%n", total, expected,
+                total.compareTo(expected) == 0 ? "conserved" : "MISMATCH");
+    }
+}
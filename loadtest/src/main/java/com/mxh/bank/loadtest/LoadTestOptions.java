@@ -0,0 +1,86 @@
+package com.mxh.bank.loadtest;
+
+import lombok.Getter;
+import org.springframework.core.env.Environment;
+
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 压测参数，均以 load. 为前缀通过命令行传入，例如 --load.threads=64
+ */
+@Getter
+public class LoadTestOptions {
+    public enum Operation {
+        READ, UPDATE, TRANSFER
+    }
+
+    public enum Target {
+        SERVICE, REST
+    }
+
+    private final Target target;
+    private final int accounts;
+    private final BigDecimal initialBalance;
+    private final int threads;
+    private final int warmupSeconds;
+    private final int durationSeconds;
+    private final double zipfExponent;
+    private final long maxAmountCents;
+    private final Map<Operation, Integer> mix;
+    private final int totalWeight;
+
+    public LoadTestOptions(Environment environment) {
+        target = Target.valueOf(environment.getProperty("load.target", "service").toUpperCase());
+        accounts = environment.getProperty("load.accounts", Integer.class, 10000);
+        initialBalance = new BigDecimal(environment.getProperty("load.initial-balance", "10000.00"));
+        threads = environment.getProperty("load.threads", Integer.class, 32);
+        warmupSeconds = environment.getProperty("load.warmup-seconds", Integer.class, 5);
+        durationSeconds = environment.getProperty("load.duration-seconds", Integer.class, 30);
+        zipfExponent = environment.getProperty("load.zipf-exponent", Double.class, 0.99);
+        maxAmountCents = environment.getProperty("load.max-amount-cents", Long.class, 1000L);
+        mix = parseMix(environment.getProperty("load.mix", "read:60,update:10,transfer:30"));
+        totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        if (accounts < 2 || threads < 1 || durationSeconds < 1 || totalWeight <= 0 || maxAmountCents < 1) {
+            throw new IllegalArgumentException("invalid load options: " + this);
+        }
+    }
+
+    /**
+     * 按配置的比例随机选择一种操作
+     */
+    public Operation nextOperation() {
+        int value = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+            value -= entry.getValue();
+            if (value < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("unreachable");
+    }
+
+    /**
+     * 格式为 operation:weight，以逗号分隔，例如 read:60,update:10,transfer:30
+     */
+    private static Map<Operation, Integer> parseMix(String value) {
+        Map<Operation, Integer> result = new EnumMap<>(Operation.class);
+        for (String item : value.split(",")) {
+            String[] parts = item.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("invalid load.mix item: " + item);
+            }
+            result.put(Operation.valueOf(parts[0].trim().toUpperCase()), Integer.parseInt(parts[1].trim()));
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "target=" + target + ", accounts=" + accounts + ", initialBalance=" + initialBalance
+                + ", threads=" + threads + ", warmupSeconds=" + warmupSeconds + ", durationSeconds=" + durationSeconds
+                + ", zipfExponent=" + zipfExponent + ", maxAmountCents=" + maxAmountCents + ", mix=" + mix;
+    }
+}
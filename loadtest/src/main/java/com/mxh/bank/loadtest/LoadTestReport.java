@@ -0,0 +1,124 @@
+package com.mxh.bank.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按操作类型汇总压测结果：吞吐、延迟分位数与直方图、各错误码次数
+ * 延迟以微秒记录，成功与失败的调用都计入延迟
+ */
+public class LoadTestReport {
+    /**
+     * 加锁超时的错误码
+     */
+    public static final String LOCK_TIMEOUT_CODE = "BM-003";
+    private static final long HISTOGRAM_MAX_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final Map<LoadTestOptions.Operation, OperationStats> stats = new EnumMap<>(LoadTestOptions.Operation.class);
+
+    public LoadTestReport() {
+        for (LoadTestOptions.Operation operation : LoadTestOptions.Operation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+    }
+
+    public void record(LoadTestOptions.Operation operation, long latencyNanos, String errorCode) {
+        OperationStats operationStats = stats.get(operation);
+        operationStats.latency.recordValue(Math.min(HISTOGRAM_MAX_MICROS, Math.max(1, TimeUnit.NANOSECONDS.toMicros(latencyNanos))));
+        if (errorCode == null) {
+            operationStats.success.increment();
+        } else {
+            operationStats.errors.computeIfAbsent(errorCode, key -> new LongAdder()).increment();
+        }
+    }
+
+    public void print(PrintStream out, long elapsedNanos) {
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        long total = 0;
+        long lockTimeouts = 0;
+        long lockingCalls = 0;
+        out.printf("%n%-10s %10s %10s %10s %9s %9s %9s %9s %9s%n",
+                "operation", "calls", "ops/s", "errors", "p50(ms)", "p90(ms)", "p99(ms)", "p99.9(ms)", "max(ms)");
+        for (Map.Entry<LoadTestOptions.Operation, OperationStats> entry : stats.entrySet()) {
+            Histogram latency = entry.getValue().latency;
+            long calls = latency.getTotalCount();
+            if (calls == 0) {
+                continue;
+            }
+            total += calls;
+            long errors = calls - entry.getValue().success.sum();
+            if (entry.getKey() != LoadTestOptions.Operation.READ) {
+                lockingCalls += calls;
+                lockTimeouts += entry.getValue().errorCount(LOCK_TIMEOUT_CODE);
+            }
+            out.printf("%-10s %10d %10.1f %10d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    entry.getKey().name().toLowerCase(), calls, calls / seconds, errors,
+                    millis(latency.getValueAtPercentile(50)), millis(latency.getValueAtPercentile(90)),
+                    millis(latency.getValueAtPercentile(99)), millis(latency.getValueAtPercentile(99.9)),
+                    millis(latency.getMaxValue()));
+        }
+        out.printf("%ntotal calls = %d, throughput = %.1f ops/s, elapsed = %.1f s%n", total, total / seconds, seconds);
+        out.printf("lock timeouts (%s) = %d, rate = %.4f%% of update/transfer calls%n",
+                LOCK_TIMEOUT_CODE, lockTimeouts, lockingCalls == 0 ? 0 : lockTimeouts * 100.0 / lockingCalls);
+
+        for (Map.Entry<LoadTestOptions.Operation, OperationStats> entry : stats.entrySet()) {
+            OperationStats operationStats = entry.getValue();
+            if (operationStats.latency.getTotalCount() == 0) {
+                continue;
+            }
+            out.printf("%n[%s] errors: %s%n", entry.getKey().name().toLowerCase(), operationStats.errorSummary());
+            printHistogram(out, operationStats.latency);
+        }
+    }
+
+    /**
+     * 按2倍递增的延迟区间输出直方图，起始区间为0.1ms
+     */
+    private void printHistogram(PrintStream out, Histogram latency) {
+        long total = latency.getTotalCount();
+        long previous = 0;
+        for (HistogramIterationValue bucket : latency.logarithmicBucketValues(100, 2)) {
+            long count = bucket.getCountAddedInThisIterationStep();
+            long upper = bucket.getValueIteratedTo();
+            if (count > 0) {
+                double percent = count * 100.0 / total;
+                out.printf("  %9.2f ~ %9.2f ms %10d %6.2f%% %s%n", millis(previous), millis(upper), count, percent,
+                        "#".repeat((int) Math.round(percent / 2)));
+            }
+            previous = upper;
+        }
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static class OperationStats {
+        private final Histogram latency = new ConcurrentHistogram(HISTOGRAM_MAX_MICROS, 3);
+        private final LongAdder success = new LongAdder();
+        private final ConcurrentHashMap<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+        private long errorCount(String code) {
+            LongAdder count = errors.get(code);
+            return count == null ? 0 : count.sum();
+        }
+
+        private String errorSummary() {
+            if (errors.isEmpty()) {
+                return "none";
+            }
+            Map<String, Long> sorted = new TreeMap<>();
+            errors.forEach((code, count) -> sorted.put(code, count.sum()));
+            return sorted.toString();
+        }
+    }
+}
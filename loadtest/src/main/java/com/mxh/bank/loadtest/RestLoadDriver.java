@@ -0,0 +1,84 @@
+package com.mxh.bank.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * 通过HTTP调用BankAccountController，包含序列化、参数校验与Web容器线程池的开销
+ * 开启异步转账时转账返回202即视为成功，实际记账结果不在统计范围内
+ */
+public class RestLoadDriver implements LoadDriver {
+    private final HttpClient httpClient;
+
+    private final ObjectMapper objectMapper;
+
+    private final String baseUrl;
+
+    public RestLoadDriver(String baseUrl, ObjectMapper objectMapper, int threads) {
+        this.baseUrl = baseUrl;
+        this.objectMapper = objectMapper;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newFixedThreadPool(Math.max(2, threads / 4), runnable -> {
+                    Thread thread = new Thread(runnable, "load-http");
+                    thread.setDaemon(true);
+                    return thread;
+                }))
+                .build();
+    }
+
+    @Override
+    public String getAccount(String accountNumber) {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/account/" + accountNumber)).GET());
+    }
+
+    @Override
+    public String updateAccount(String accountNumber, String accountHolderName, String contactNumber) {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/account/" + accountNumber))
+                .PUT(json(Map.of("account_holder_name", accountHolderName, "contact_number", contactNumber))));
+    }
+
+    @Override
+    public String transfer(String fromAccount, String toAccount, BigDecimal amount) {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/account/transfer"))
+                .POST(json(Map.of("from_account", fromAccount, "to_account", toAccount, "amount", amount))));
+    }
+
+    private HttpRequest.BodyPublisher json(Map<String, Object> body) {
+        try {
+            return HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String send(HttpRequest.Builder builder) {
+        HttpRequest request = builder.header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(30))
+                .build();
+        try {
+            HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() / 100 == 2) {
+                return null;
+            }
+            JsonNode errorCode = objectMapper.readTree(response.body()).get("error_code");
+            return errorCode == null ? "HTTP_" + response.statusCode() : errorCode.asText();
+        } catch (IOException e) {
+            return e.getClass().getSimpleName();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "Interrupted";
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.mxh.bank.loadtest;
+
+import com.mxh.bank.exception.BusinessException;
+import com.mxh.bank.model.request.TransferRequestParam;
+import com.mxh.bank.model.request.UpdateAccountRequestParam;
+import com.mxh.bank.service.AccountManagerService;
+
+import java.math.BigDecimal;
+
+/**
+ * 直接调用AccountManagerService，不包含HTTP编解码与Web容器的开销
+ */
+public class ServiceLoadDriver implements LoadDriver {
+    private final AccountManagerService accountManagerService;
+
+    public ServiceLoadDriver(AccountManagerService accountManagerService) {
+        this.accountManagerService = accountManagerService;
+    }
+
+    @Override
+    public String getAccount(String accountNumber) {
+        return call(() -> accountManagerService.getAccount(accountNumber));
+    }
+
+    @Override
+    public String updateAccount(String accountNumber, String accountHolderName, String contactNumber) {
+        UpdateAccountRequestParam param = new UpdateAccountRequestParam();
+        param.setAccountHolderName(accountHolderName);
+        param.setContactNumber(contactNumber);
+        return call(() -> accountManagerService.updateAccount(accountNumber, param));
+    }
+
+    @Override
+    public String transfer(String fromAccount, String toAccount, BigDecimal amount) {
+        TransferRequestParam param = new TransferRequestParam();
+        param.setFromAccount(fromAccount);
+        param.setToAccount(toAccount);
+        param.setAmount(amount);
+        return call(() -> accountManagerService.transferFunds(param));
+    }
+
+    private String call(Runnable action) {
+        try {
+            action.run();
+            return null;
+        } catch (BusinessException e) {
+            return e.getErrorCode();
+        } catch (RuntimeException e) {
+            return e.getClass().getSimpleName();
+        }
+    }
+}
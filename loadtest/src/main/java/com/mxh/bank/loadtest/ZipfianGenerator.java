@@ -0,0 +1,41 @@
+package com.mxh.bank.loadtest;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 按Zipf分布生成 [0, n) 的下标，下标越小被选中的概率越高：P(k) ∝ 1 / (k + 1)^exponent
+ * exponent为0时退化为均匀分布；exponent约为1时前1%的账户承担约一半以上的访问
+ */
+public class ZipfianGenerator {
+    private final double[] cdf;
+
+    public ZipfianGenerator(int n, double exponent) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("n must be greater than 0: " + n);
+        }
+        cdf = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1.0 / Math.pow(k + 1, exponent);
+            cdf[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cdf[k] /= sum;
+        }
+    }
+
+    public int next() {
+        double u = ThreadLocalRandom.current().nextDouble();
+        int index = Arrays.binarySearch(cdf, u);
+        int k = index >= 0 ? index : -index - 1;
+        return Math.min(k, cdf.length - 1);
+    }
+
+    /**
+     * @return 访问概率最高的前count个下标合计被选中的概率
+     */
+    public double headProbability(int count) {
+        return count <= 0 ? 0 : cdf[Math.min(count, cdf.length) - 1];
+    }
+}
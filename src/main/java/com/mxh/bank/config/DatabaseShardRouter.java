@@ -0,0 +1,206 @@
+package com.mxh.bank.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * 分库路由：按账号在一致性哈希环上的位置把账户分配到 bank.sharding.shard-count 个分库之一，
+ * 每个分库在环上有 virtual-nodes 个虚拟节点，使账户在各库间分布均匀；增加分库时只有约 1/N 的账户需要迁移（迁移本身不在本服务内完成）
+ * 当前线程的分库保存在线程上下文中，由DatabaseShardRoutingDataSource据此选择连接；事务在开启时绑定连接，因此事务内不能切换分库
+ * 未开启分库时只有一个分库，各方法直接在当前线程执行
+ */
+@Component
+@Slf4j
+public class DatabaseShardRouter {
+    /**
+     * 0号分库即spring.datasource，同时存放转账流水、复制心跳等不按账户拆分的表
+     */
+    public static final int DEFAULT_SHARD = 0;
+
+    private static final ThreadLocal<Integer> CURRENT_SHARD = new ThreadLocal<>();
+
+    @Value("${bank.sharding.enabled:false}")
+    private boolean enabled;
+
+    @Value("${bank.sharding.shard-count:1}")
+    private int shardCount;
+
+    @Value("${bank.sharding.virtual-nodes:160}")
+    private int virtualNodes;
+
+    @Value("${bank.sharding.scatter-threads:16}")
+    private int scatterThreads;
+
+    private final TreeMap<Long, Integer> ring = new TreeMap<>();
+
+    private ExecutorService scatterExecutor;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            shardCount = 1;
+            return;
+        }
+        if (shardCount < 1) {
+            throw new IllegalStateException("invalid bank.sharding.shard-count: " + shardCount);
+        }
+        for (int shard = 0; shard < shardCount; shard++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                ring.put(hash("shard-" + shard + "-node-" + node), shard);
+            }
+        }
+        AtomicInteger threadIndex = new AtomicInteger();
+        scatterExecutor = Executors.newFixedThreadPool(scatterThreads, runnable -> {
+            Thread thread = new Thread(runnable, "shard-scatter-" + threadIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("database sharding enabled, shards = {}, virtualNodes = {}", shardCount, virtualNodes);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scatterExecutor != null) {
+            scatterExecutor.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public int shardOf(String accountNumber) {
+        if (shardCount == 1) {
+            return DEFAULT_SHARD;
+        }
+        Map.Entry<Long, Integer> entry = ring.ceilingEntry(hash(accountNumber));
+        return entry == null ? ring.firstEntry().getValue() : entry.getValue();
+    }
+
+    public boolean isSameShard(String accountNumber, String otherAccountNumber) {
+        return shardOf(accountNumber) == shardOf(otherAccountNumber);
+    }
+
+    /**
+     * 按分库对账号分组，分库号升序，组内保持原有顺序
+     */
+    public Map<Integer, List<String>> groupByShard(Collection<String> accountNumbers) {
+        Map<Integer, List<String>> groups = new TreeMap<>();
+        for (String accountNumber : accountNumbers) {
+            groups.computeIfAbsent(shardOf(accountNumber), shard -> new ArrayList<>()).add(accountNumber);
+        }
+        return groups;
+    }
+
+    /**
+     * 当前线程所在的分库，未指定时为0号分库
+     */
+    public static int currentShard() {
+        Integer shard = CURRENT_SHARD.get();
+        return shard == null ? DEFAULT_SHARD : shard;
+    }
+
+    /**
+     * 在指定分库上执行，执行完成后恢复原来的分库
+     */
+    public <T> T callOnShard(int shard, Supplier<T> action) {
+        if (!enabled) {
+            return action.get();
+        }
+        Integer previous = CURRENT_SHARD.get();
+        if (currentShard() == shard) {
+            return action.get();
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("cannot switch to shard " + shard + " inside a transaction on shard " + currentShard());
+        }
+        CURRENT_SHARD.set(shard);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT_SHARD.remove();
+            } else {
+                CURRENT_SHARD.set(previous);
+            }
+        }
+    }
+
+    public void runOnShard(int shard, Runnable action) {
+        callOnShard(shard, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public <T> T callOnShardOf(String accountNumber, Supplier<T> action) {
+        return callOnShard(shardOf(accountNumber), action);
+    }
+
+    public void runOnShardOf(String accountNumber, Runnable action) {
+        runOnShard(shardOf(accountNumber), action);
+    }
+
+    /**
+     * 在每个分库上并行执行一次，按分库号顺序返回结果；任一分库失败时抛出该分库的异常
+     */
+    public <T> List<T> scatter(IntFunction<T> action) {
+        if (shardCount == 1) {
+            return Collections.singletonList(action.apply(DEFAULT_SHARD));
+        }
+        List<CompletableFuture<T>> futures = IntStream.range(0, shardCount)
+                .mapToObj(shard -> CompletableFuture.supplyAsync(() -> callOnShard(shard, () -> action.apply(shard)), scatterExecutor))
+                .toList();
+        List<T> results = new ArrayList<>(shardCount);
+        for (CompletableFuture<T> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 取MD5摘要的前8个字节，分布比String.hashCode均匀，且与JVM实现无关，各节点的路由结果一致
+     */
+    private static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.mxh.bank.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分库路由：按DatabaseShardRouter中当前线程的分库号选择连接池，未指定分库时使用0号分库
+ */
+public class DatabaseShardRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+    private final List<HikariDataSource> shards;
+
+    public DatabaseShardRoutingDataSource(List<HikariDataSource> shards) {
+        this.shards = shards;
+        Map<Object, Object> targets = new HashMap<>(shards.size() * 2);
+        for (int shard = 0; shard < shards.size(); shard++) {
+            targets.put(shard, shards.get(shard));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shards.get(DatabaseShardRouter.DEFAULT_SHARD));
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return DatabaseShardRouter.currentShard();
+    }
+
+    @Override
+    public void close() {
+        shards.forEach(HikariDataSource::close);
+    }
+}
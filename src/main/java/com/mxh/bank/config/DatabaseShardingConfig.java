@@ -0,0 +1,68 @@
+package com.mxh.bank.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分库：开启bank.sharding.enabled后，0号分库使用spring.datasource.*配置，
+ * 其余分库依次使用bank.sharding.shards[0..n-2].*配置（jdbc-url、username、password、driver-class-name及其他Hikari连接池参数）
+ * schema.sql由Spring在0号分库上执行，其余分库的表结构在init-schema开启时由本配置初始化，否则需预先建好
+ * 热点账户与账户分片的余额保存在Redis或0号分库的辅助表中，不支持与分库同时开启；读写分离同样不支持
+ */
+@Configuration
+@ConditionalOnProperty(name = "bank.sharding.enabled", havingValue = "true")
+public class DatabaseShardingConfig {
+    private static final List<String> INCOMPATIBLE_FEATURES = List.of(
+            "bank.datasource.replica.enabled", "bank.hot-account.enabled", "bank.sharded-account.enabled");
+
+    /**
+     * JPA、JdbcTemplate及schema初始化均使用该数据源，未指定分库的语句在0号分库执行
+     */
+    @Bean(destroyMethod = "close")
+    @Primary
+    public DatabaseShardRoutingDataSource dataSource(DataSourceProperties properties, Environment environment,
+                                                     @Value("${bank.sharding.shard-count:1}") int shardCount,
+                                                     @Value("${bank.sharding.init-schema:false}") boolean initSchema,
+                                                     @Value("${spring.sql.init.schema-locations:classpath:sql/schema.sql}") Resource schema) {
+        for (String feature : INCOMPATIBLE_FEATURES) {
+            if (environment.getProperty(feature, Boolean.class, false)) {
+                throw new IllegalStateException("bank.sharding.enabled cannot be combined with " + feature);
+            }
+        }
+        Binder binder = Binder.get(environment);
+        List<HikariConfig> configs = binder.bind("bank.sharding.shards", Bindable.listOf(HikariConfig.class)).orElse(List.of());
+        if (configs.size() + 1 != shardCount) {
+            throw new IllegalStateException("bank.sharding.shard-count = " + shardCount + ", but "
+                    + (configs.size() + 1) + " data sources are configured");
+        }
+
+        List<HikariDataSource> shards = new ArrayList<>(shardCount);
+        HikariDataSource defaultShard = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(defaultShard));
+        defaultShard.setPoolName("shard-0");
+        shards.add(defaultShard);
+        for (HikariConfig config : configs) {
+            config.setPoolName("shard-" + shards.size());
+            HikariDataSource shard = new HikariDataSource(config);
+            if (initSchema) {
+                new ResourceDatabasePopulator(schema).execute(shard);
+            }
+            shards.add(shard);
+        }
+        return new DatabaseShardRoutingDataSource(shards);
+    }
+}
@@ -0,0 +1,65 @@
+package com.mxh.bank.config;
+
+import com.mxh.bank.exception.BusinessException;
+import com.mxh.bank.service.BankMetrics;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * 统计AccountManagerService各方法的整体耗时，以及下层组件中@PhaseTimed方法在所属接口方法下的阶段耗时
+ * 优先级最高，位于事务切面之外，耗时包含事务提交
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class OperationMetricsAspect {
+    /**
+     * 阶段方法嵌套调用（如Redisson锁降级到本地锁）时只由最外层计时
+     */
+    private static final ThreadLocal<Boolean> IN_PHASE = ThreadLocal.withInitial(() -> false);
+
+    @Autowired
+    private BankMetrics bankMetrics;
+
+    @Around("execution(public * com.mxh.bank.service.AccountManagerService.*(..))")
+    public Object timeOperation(ProceedingJoinPoint joinPoint) throws Throwable {
+        String operation = joinPoint.getSignature().getName();
+        String previous = bankMetrics.enterOperation(operation);
+        Timer.Sample sample = bankMetrics.start();
+        String outcome = "success";
+        try {
+            return joinPoint.proceed();
+        } catch (BusinessException e) {
+            outcome = e.getErrorCode();
+            throw e;
+        } catch (Throwable e) {
+            outcome = "error";
+            throw e;
+        } finally {
+            bankMetrics.stopOperation(sample, operation, outcome);
+            bankMetrics.exitOperation(previous);
+        }
+    }
+
+    @Around("@annotation(phaseTimed)")
+    public Object timePhase(ProceedingJoinPoint joinPoint, PhaseTimed phaseTimed) throws Throwable {
+        String operation = bankMetrics.currentOperation();
+        if (operation == null || IN_PHASE.get()) {
+            return joinPoint.proceed();
+        }
+        IN_PHASE.set(true);
+        Timer.Sample sample = bankMetrics.start();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            bankMetrics.stopPhase(sample, operation, phaseTimed.value());
+            IN_PHASE.remove();
+        }
+    }
+}
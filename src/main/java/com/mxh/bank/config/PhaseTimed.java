@@ -0,0 +1,22 @@
+package com.mxh.bank.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 把方法耗时记为当前AccountManagerService方法的一个阶段（bank.account.phase），由OperationMetricsAspect处理
+ * 用于账户锁、转账策略等下层组件，不在AccountManagerService方法内调用时不计时
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface PhaseTimed {
+
+    /**
+     * 阶段名，如 lock、db_transaction
+     */
+    String value();
+}
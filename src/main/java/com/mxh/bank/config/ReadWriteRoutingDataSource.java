@@ -0,0 +1,37 @@
+package com.mxh.bank.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 读写分离路由：只读事务（@Transactional(readOnly = true)）路由到从库，其余连接使用主库
+ * 只读标记在事务开始后才设置，因此外层需包一层LazyConnectionDataSourceProxy，推迟到执行第一条语句时才获取实际连接
+ * 从库延迟超过上限或不可用时只读事务回退到主库；只读方法加入已有的读写事务时沿用主库连接
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    public static final String PRIMARY = "primary";
+    public static final String REPLICA = "replica";
+
+    /**
+     * 只读事务获取连接时调用，返回true时使用从库
+     */
+    private final BooleanSupplier replicaRouter;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, BooleanSupplier replicaRouter) {
+        this.replicaRouter = replicaRouter;
+        setTargetDataSources(Map.of(PRIMARY, primary, REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && replicaRouter.getAsBoolean()) {
+            return REPLICA;
+        }
+        return PRIMARY;
+    }
+}
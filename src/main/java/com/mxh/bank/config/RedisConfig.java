@@ -1,31 +1,65 @@
 package com.mxh.bank.config;
 
+import com.mxh.bank.service.AccountCacheService;
+import com.mxh.bank.utils.AccountBinaryRedisSerializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.adapter.MessageListenerAdapter;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
 public class RedisConfig {
+    public static final String CODEC_JSON = "json";
+    public static final String CODEC_BINARY = "binary";
 
     /**
      * 配置RedisTemplate
      * 自定义序列化方式，解决默认JdkSerializationRedisSerializer序列化带来的问题
+     * bank.cache.redis.codec为binary时账户使用紧凑二进制编码，其他值仍为JSON，已有的JSON缓存仍可读取
      */
     @Bean
-    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory factory) {
+    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory factory,
+                                                       @Value("${bank.cache.redis.codec:" + CODEC_JSON + "}") String codec) {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(factory);
         StringRedisSerializer stringSerializer = new StringRedisSerializer();
         GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer();
+        RedisSerializer<Object> valueSerializer = switch (codec) {
+            case CODEC_JSON -> jsonSerializer;
+            case CODEC_BINARY -> new AccountBinaryRedisSerializer(jsonSerializer);
+            default -> throw new IllegalStateException("unknown bank.cache.redis.codec: " + codec);
+        };
         template.setKeySerializer(stringSerializer);
         template.setHashKeySerializer(stringSerializer);
-        template.setValueSerializer(jsonSerializer);
-        template.setHashValueSerializer(jsonSerializer);
+        template.setValueSerializer(valueSerializer);
+        template.setHashValueSerializer(valueSerializer);
         template.afterPropertiesSet();
         return template;
     }
+
+    /**
+     * 订阅账户缓存失效频道，收到其他节点的消息后清理本节点L1缓存
+     */
+    @Bean
+    @ConditionalOnProperty(name = "bank.cache.invalidation.enabled", havingValue = "true", matchIfMissing = true)
+    public RedisMessageListenerContainer accountCacheListenerContainer(RedisConnectionFactory factory,
+                                                                       AccountCacheService accountCacheService) {
+        MessageListenerAdapter listener = new MessageListenerAdapter(accountCacheService, "onInvalidation");
+        // 与RedisTemplate发布时使用的序列化方式保持一致
+        listener.setSerializer(new GenericJackson2JsonRedisSerializer());
+        listener.afterPropertiesSet();
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(factory);
+        container.addMessageListener(listener, new ChannelTopic(AccountCacheService.INVALIDATION_CHANNEL));
+        return container;
+    }
 }
 
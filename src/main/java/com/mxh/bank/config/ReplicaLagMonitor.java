@@ -0,0 +1,156 @@
+package com.mxh.bank.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 从库延迟检测：各节点定期向主库的replication_heartbeat写入当前时间，该行随复制同步到从库，
+ * 主库与从库心跳时间之差即为复制延迟；差值只比较同一行的两个版本，不受各节点时钟偏差影响
+ * 延迟超过bank.datasource.replica.max-lag-millis、从库查询失败或尚无心跳时判定从库不可用，只读事务回退到主库
+ * 延迟每个心跳周期检测一次，从库读到的数据最多落后 max-lag-millis + 两个心跳周期
+ */
+@Slf4j
+public class ReplicaLagMonitor implements HealthIndicator, SmartInitializingSingleton {
+    private static final String SELECT_BEAT_SQL = "SELECT beat_time FROM replication_heartbeat WHERE id = 1";
+
+    private final JdbcTemplate primaryJdbcTemplate;
+
+    private final JdbcTemplate replicaJdbcTemplate;
+
+    /**
+     * 本对象在数据源创建过程中构建，指标在全部单例初始化后再注册，避免与连接池指标的初始化形成循环依赖
+     */
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Value("${bank.datasource.replica.max-lag-millis:1000}")
+    private long maxLagMillis;
+
+    @Value("${bank.datasource.replica.heartbeat-interval-millis:200}")
+    private long heartbeatIntervalMillis;
+
+    private volatile boolean replicaAvailable;
+
+    /**
+     * 最近一次检测到的延迟，无法检测时为-1
+     */
+    private volatile long lagMillis = -1;
+
+    private final LongAdder replicaReads = new LongAdder();
+
+    private final LongAdder fallbackReads = new LongAdder();
+
+    public ReplicaLagMonitor(DataSource primary, DataSource replica) {
+        this.primaryJdbcTemplate = new JdbcTemplate(primary);
+        this.replicaJdbcTemplate = new JdbcTemplate(replica);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        meterRegistry.ifAvailable(registry -> {
+            Gauge.builder("bank.datasource.replica.lag", this, monitor -> monitor.lagMillis)
+                    .register(registry);
+            FunctionCounter.builder("bank.datasource.read.routing", replicaReads, LongAdder::sum)
+                    .tag("target", ReadWriteRoutingDataSource.REPLICA)
+                    .register(registry);
+            FunctionCounter.builder("bank.datasource.read.routing", fallbackReads, LongAdder::sum)
+                    .tag("target", ReadWriteRoutingDataSource.PRIMARY)
+                    .register(registry);
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${bank.datasource.replica.heartbeat-interval-millis:200}")
+    public void refresh() {
+        try {
+            heartbeat();
+        } catch (DataAccessException e) {
+            log.error("write replication heartbeat error", e);
+        }
+        checkLag();
+    }
+
+    /**
+     * 心跳只增不减，多个节点同时写入时以最大值为准
+     */
+    public void heartbeat() {
+        long now = System.currentTimeMillis();
+        if (primaryJdbcTemplate.update("UPDATE replication_heartbeat SET beat_time = GREATEST(beat_time, ?) WHERE id = 1", now) == 0) {
+            try {
+                primaryJdbcTemplate.update("INSERT INTO replication_heartbeat (id, beat_time) VALUES (1, ?)", now);
+            } catch (DuplicateKeyException e) {
+                // 其他节点已插入
+            }
+        }
+    }
+
+    public void checkLag() {
+        boolean available = false;
+        long lag = -1;
+        try {
+            List<Long> primaryBeat = primaryJdbcTemplate.queryForList(SELECT_BEAT_SQL, Long.class);
+            List<Long> replicaBeat = replicaJdbcTemplate.queryForList(SELECT_BEAT_SQL, Long.class);
+            if (!primaryBeat.isEmpty() && !replicaBeat.isEmpty()) {
+                lag = Math.max(0, primaryBeat.get(0) - replicaBeat.get(0));
+                available = lag <= maxLagMillis;
+            }
+        } catch (DataAccessException e) {
+            log.error("check replica lag error", e);
+        }
+        if (available != replicaAvailable) {
+            log.warn("replica available = {}, lag = {} ms, maxLag = {} ms", available, lag, maxLagMillis);
+        }
+        lagMillis = lag;
+        replicaAvailable = available;
+    }
+
+    public boolean isReplicaAvailable() {
+        return replicaAvailable;
+    }
+
+    /**
+     * 只读事务的路由决定，同时按实际去向计数
+     */
+    public boolean routeRead() {
+        if (replicaAvailable) {
+            replicaReads.increment();
+            return true;
+        }
+        fallbackReads.increment();
+        return false;
+    }
+
+    /**
+     * 从库读取的数据可能落后于主库的最长时间
+     */
+    public long getStalenessBoundMillis() {
+        return maxLagMillis + 2 * heartbeatIntervalMillis;
+    }
+
+    /**
+     * 从库不可用时读请求回退到主库，服务仍可用，因此状态保持UP
+     */
+    @Override
+    public Health health() {
+        return Health.up()
+                .withDetail("available", replicaAvailable)
+                .withDetail("lagMillis", lagMillis)
+                .withDetail("maxLagMillis", maxLagMillis)
+                .build();
+    }
+}
@@ -1,19 +1,35 @@
 package com.mxh.bank.controller;
 
 
+import com.mxh.bank.model.request.BatchCreateAccountRequestParam;
+import com.mxh.bank.model.request.BatchGetAccountRequestParam;
+import com.mxh.bank.model.request.BatchTransferRequestParam;
 import com.mxh.bank.model.request.CreateAccountRequestParam;
 import com.mxh.bank.model.request.TransferRequestParam;
 import com.mxh.bank.model.request.UpdateAccountRequestParam;
+import com.mxh.bank.model.response.AccountCursorPageResponse;
 import com.mxh.bank.model.response.AccountInfoResponse;
+import com.mxh.bank.model.response.BatchCreateAccountResponse;
+import com.mxh.bank.model.response.BatchGetAccountResponse;
+import com.mxh.bank.model.response.BatchTransferResponse;
+import com.mxh.bank.model.response.LedgerPageResponse;
 import com.mxh.bank.model.response.OperationResponse;
+import com.mxh.bank.model.response.TransferStatusResponse;
+import com.mxh.bank.service.AccountExportService;
 import com.mxh.bank.service.AccountManagerService;
+import com.mxh.bank.service.AsyncTransferService;
+import com.mxh.bank.service.TransferLedgerService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/bank-manager")
@@ -22,16 +38,38 @@ public class BankAccountController {
     @Autowired
     private AccountManagerService accountManagerService;
 
+    @Autowired
+    private AccountExportService accountExportService;
+
+    @Autowired
+    private AsyncTransferService asyncTransferService;
+
+    @Autowired
+    private TransferLedgerService transferLedgerService;
+
     @PostMapping("/account")
     public AccountInfoResponse createAccount(@RequestBody @Valid CreateAccountRequestParam accountRequestParam) {
         return accountManagerService.createAccount(accountRequestParam);
     }
 
+    @PostMapping("/account/batch")
+    public BatchCreateAccountResponse createAccountsBatch(@RequestBody @Valid BatchCreateAccountRequestParam batchCreateAccountRequestParam) {
+        return accountManagerService.createAccountsBatch(batchCreateAccountRequestParam);
+    }
+
     @GetMapping("/account/{account_number}")
     public AccountInfoResponse getAccount(@PathVariable("account_number") String accountNumber) {
         return accountManagerService.getAccount(accountNumber);
     }
 
+    /**
+     * 按账号批量查询，账号较多时放在请求体中，避免URL过长
+     */
+    @PostMapping("/accounts/lookup")
+    public BatchGetAccountResponse getAccounts(@RequestBody @Valid BatchGetAccountRequestParam batchGetAccountRequestParam) {
+        return accountManagerService.getAccounts(batchGetAccountRequestParam);
+    }
+
     @PutMapping("/account/{account_number}")
     public AccountInfoResponse updateAccount(
             @PathVariable("account_number") String accountNumber,
@@ -44,14 +82,68 @@ public class BankAccountController {
         return accountManagerService.deleteAccount(accountNumber);
     }
 
+    /**
+     * 查询账户的转账流水，start_time（含）与end_time（不含）为毫秒时间戳，按时间倒序以游标分页
+     */
+    @GetMapping("/account/{account_number}/ledger")
+    public LedgerPageResponse getLedger(
+            @PathVariable("account_number") String accountNumber,
+            @RequestParam(value = "start_time", required = false) Long startTime,
+            @RequestParam(value = "end_time", required = false) Long endTime,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "20") int size) {
+        return transferLedgerService.getHistory(accountNumber, startTime, endTime, cursor, size);
+    }
+
     @GetMapping("/accounts")
     public Page<AccountInfoResponse> listAllAccounts(
             @PageableDefault(page = 0, size = 10, sort = "id", direction = Sort.Direction.DESC) Pageable pageable) {
         return accountManagerService.listAllAccounts(pageable);
     }
 
+    @GetMapping("/accounts/cursor")
+    public AccountCursorPageResponse listAccountsByCursor(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "10") int size,
+            @RequestParam(value = "direction", defaultValue = "DESC") Sort.Direction direction) {
+        return accountManagerService.listAccountsByCursor(cursor, size, direction);
+    }
+
+    /**
+     * 流式导出全部账户，create_time_from（含）与create_time_to（不含）为毫秒时间戳
+     */
+    @GetMapping("/accounts/export")
+    public ResponseEntity<StreamingResponseBody> exportAccounts(
+            @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            @RequestParam(value = "create_time_from", required = false) Long createTimeFrom,
+            @RequestParam(value = "create_time_to", required = false) Long createTimeTo) {
+        AccountExportService.ExportFormat exportFormat = AccountExportService.ExportFormat.of(format);
+        accountExportService.validate(createTimeFrom, createTimeTo);
+        StreamingResponseBody body = outputStream -> accountExportService.export(exportFormat, createTimeFrom, createTimeTo, outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=accounts." + exportFormat.getExtension())
+                .body(body);
+    }
+
+    /**
+     * 开启异步转账时返回202与转账ID，通过 GET /account/transfer/{transfer_id} 查询结果；否则同步执行并返回200
+     */
     @PostMapping("/account/transfer")
-    public OperationResponse transferFunds(@RequestBody @Valid TransferRequestParam transferRequestParam) {
-        return accountManagerService.transferFunds(transferRequestParam);
+    public ResponseEntity<?> transferFunds(@RequestBody @Valid TransferRequestParam transferRequestParam) {
+        if (asyncTransferService.isEnabled()) {
+            return ResponseEntity.accepted().body(asyncTransferService.submit(transferRequestParam));
+        }
+        return ResponseEntity.ok(accountManagerService.transferFunds(transferRequestParam));
+    }
+
+    @GetMapping("/account/transfer/{transfer_id}")
+    public TransferStatusResponse getTransferStatus(@PathVariable("transfer_id") String transferId) {
+        return asyncTransferService.getStatus(transferId);
+    }
+
+    @PostMapping("/account/transfer/batch")
+    public BatchTransferResponse transferFundsBatch(@RequestBody @Valid BatchTransferRequestParam batchTransferRequestParam) {
+        return accountManagerService.transferFundsBatch(batchTransferRequestParam);
     }
 }
\ No newline at end of file
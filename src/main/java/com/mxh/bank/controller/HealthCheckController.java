@@ -1,6 +1,12 @@
 package com.mxh.bank.controller;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.HealthComponent;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -9,11 +15,20 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/bank-manager")
 @Slf4j
 public class HealthCheckController {
+
+    @Autowired
+    private HealthEndpoint healthEndpoint;
+
     /**
-     * 服务探活脚本
+     * 服务探活脚本，汇总数据库、Redis等依赖的健康状态，任一依赖异常时返回503
      */
     @GetMapping("/health")
-    public void health() {
-
+    public ResponseEntity<HealthComponent> health() {
+        HealthComponent health = healthEndpoint.health();
+        if (!Status.UP.equals(health.getStatus())) {
+            log.error("health check failed, status = {}", health.getStatus());
+            return new ResponseEntity<>(health, HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        return ResponseEntity.ok(health);
     }
 }
@@ -0,0 +1,54 @@
+package com.mxh.bank.controller;
+
+import com.mxh.bank.model.response.CacheStatsResponse;
+import com.mxh.bank.model.response.LockStatsResponse;
+import com.mxh.bank.model.response.OptimisticStatsResponse;
+import com.mxh.bank.service.AccountCacheService;
+import com.mxh.bank.service.LockProvider;
+import com.mxh.bank.service.OptimisticRetryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/bank-manager")
+public class StatsController {
+
+    @Autowired
+    private AccountCacheService accountCacheService;
+
+    @Autowired
+    private OptimisticRetryService optimisticRetryService;
+
+    @Autowired
+    private List<LockProvider> lockProviders;
+
+    /**
+     * 查询各级账户缓存的命中、未命中及淘汰次数
+     */
+    @GetMapping("/cache/stats")
+    public List<CacheStatsResponse> cacheStats() {
+        return accountCacheService.getStats();
+    }
+
+    /**
+     * 查询乐观锁模式下各操作的冲突与重试次数
+     */
+    @GetMapping("/optimistic/stats")
+    public List<OptimisticStatsResponse> optimisticStats() {
+        return optimisticRetryService.getStats();
+    }
+
+    /**
+     * 查询各锁实现的加锁次数、超时次数及等待耗时，包含汇总与等待最久的锁键
+     */
+    @GetMapping("/lock/stats")
+    public List<LockStatsResponse> lockStats() {
+        return lockProviders.stream()
+                .flatMap(provider -> provider.getStats().stream())
+                .toList();
+    }
+}
@@ -0,0 +1,31 @@
+package com.mxh.bank.model.po;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 账户变更事件，对应发件箱表 account_event_outbox，payload为JSON格式的事件内容
+ * id由数据库自增分配，投递后同样作为事件ID供下游去重
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AccountEventPo {
+    public static final String ACCOUNT_CREATED = "account_created";
+    public static final String ACCOUNT_UPDATED = "account_updated";
+    public static final String ACCOUNT_DELETED = "account_deleted";
+    public static final String FUNDS_TRANSFERRED = "funds_transferred";
+
+    private Long id;
+
+    private String eventType;
+
+    private String accountNumber;
+
+    private String payload;
+
+    private Long createTime;
+}
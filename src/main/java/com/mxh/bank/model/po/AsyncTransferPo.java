@@ -0,0 +1,46 @@
+package com.mxh.bank.model.po;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 异步转账记录，对应表 async_transfer，位于转出账户所在分库
+ * 受理时以pending写入，写线程逐笔处理前置为processing，合并提交时在记账事务中直接置为终态
+ * processing超时未完成时无法确定是否已记账，置为unknown等待对账
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AsyncTransferPo {
+    public static final String STATUS_PENDING = "pending";
+    public static final String STATUS_PROCESSING = "processing";
+    public static final String STATUS_SUCCESS = "success";
+    public static final String STATUS_FAILED = "failed";
+    public static final String STATUS_UNKNOWN = "unknown";
+
+    private Long transferId;
+
+    private String fromAccount;
+
+    private String toAccount;
+
+    private BigDecimal amount;
+
+    private String status;
+
+    private String errorCode;
+
+    /**
+     * 错误码参数，JSON数组
+     */
+    private String errorArgs;
+
+    private Long createTime;
+
+    private Long updateTime;
+}
@@ -35,6 +35,10 @@ public class BankAccountPo {
     @Column(name = "create_time", nullable = false)
     private Long createTime = System.currentTimeMillis();
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     @PrePersist
     public void prePersist() {
         if (this.id == null) {
@@ -0,0 +1,45 @@
+package com.mxh.bank.model.po;
+
+import com.mxh.bank.utils.IdUtils;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 分片账户的子账户，账户总余额为主账户余额与全部分片余额之和
+ */
+@Entity
+@Table(name = "bank_account_shard")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BankAccountShardPo {
+    @Id
+    @Column(name = "id", nullable = false, unique = true)
+    private Long id;
+
+    @Column(name = "account_number", nullable = false)
+    private String accountNumber;
+
+    @Column(name = "shard_no", nullable = false)
+    private Integer shardNo;
+
+    @Column(name = "balance", nullable = false)
+    private BigDecimal balance;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @PrePersist
+    public void prePersist() {
+        if (this.id == null) {
+            this.id = IdUtils.getNextId();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.mxh.bank.model.po;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 热点账户记账流水，对应表 hot_balance_journal，金额单位为分
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class HotBalanceJournalPo {
+    private String entryId;
+
+    private String transferId;
+
+    private String accountNumber;
+
+    private Long delta;
+
+    private Long createTime;
+}
@@ -0,0 +1,37 @@
+package com.mxh.bank.model.po;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 热点账户与普通账户之间的转账记录，对应表 hot_transfer
+ * 在Redis记账之前以PENDING提交，完成后置为COMPLETED；热点账户余额不足时置为FAILED，入账账户不存在退款后置为COMPENSATED
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class HotTransferPo {
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+    public static final String STATUS_COMPENSATED = "COMPENSATED";
+
+    private Long transferId;
+
+    private String fromAccount;
+
+    private String toAccount;
+
+    private BigDecimal amount;
+
+    private String status;
+
+    private Long createTime;
+
+    private Long updateTime;
+}
@@ -0,0 +1,41 @@
+package com.mxh.bank.model.po;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 跨库转账记录，对应转出账户所在分库的表 pending_transfer，扣款时写入PENDING，入账完成后置为COMPLETED，入账失败退款后置为COMPENSATED
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PendingTransferPo {
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_COMPENSATED = "COMPENSATED";
+
+    /**
+     * 转入账户所在分库的 transfer_credit 中的入账结果
+     */
+    public static final String CREDIT_APPLIED = "CREDITED";
+    public static final String CREDIT_ABORTED = "ABORTED";
+
+    private Long transferId;
+
+    private String fromAccount;
+
+    private String toAccount;
+
+    private BigDecimal amount;
+
+    private String status;
+
+    private Long createTime;
+
+    private Long updateTime;
+}
@@ -0,0 +1,34 @@
+package com.mxh.bank.model.po;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 转账流水，对应表 transfer_ledger，每笔转账写入转出方的debit与转入方的credit两行，只追加不修改
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransferLedgerPo {
+    public static final String DIRECTION_DEBIT = "debit";
+    public static final String DIRECTION_CREDIT = "credit";
+
+    private Long entryId;
+
+    private String transferId;
+
+    private String accountNumber;
+
+    private String counterpartyAccount;
+
+    private String direction;
+
+    private BigDecimal amount;
+
+    private Long createTime;
+}
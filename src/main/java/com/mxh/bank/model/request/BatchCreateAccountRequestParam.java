@@ -0,0 +1,25 @@
+package com.mxh.bank.model.request;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchCreateAccountRequestParam {
+
+    @Valid
+    @NotEmpty(message = "BM-008")
+    @Size(max = 100000, message = "BM-014")
+    @JsonProperty("accounts")
+    private List<CreateAccountRequestParam> accounts;
+
+    /**
+     * 是否在创建后预热Redis缓存
+     */
+    @JsonProperty("warm_cache")
+    private boolean warmCache;
+}
@@ -0,0 +1,18 @@
+package com.mxh.bank.model.request;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchGetAccountRequestParam {
+
+    @NotEmpty(message = "BM-008")
+    @Size(max = 1000, message = "BM-010")
+    @JsonProperty("account_numbers")
+    private List<@NotBlank(message = "BM-008") String> accountNumbers;
+}
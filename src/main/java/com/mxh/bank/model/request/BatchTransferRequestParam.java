@@ -0,0 +1,19 @@
+package com.mxh.bank.model.request;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchTransferRequestParam {
+
+    @Valid
+    @NotEmpty(message = "BM-008")
+    @Size(max = 1000, message = "BM-010")
+    @JsonProperty("transfers")
+    private List<TransferRequestParam> transfers;
+}
@@ -0,0 +1,22 @@
+package com.mxh.bank.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class AccountCreateResultResponse {
+
+    @JsonProperty("index")
+    private int index;
+
+    @JsonProperty("account_number")
+    private String accountNumber;
+
+    @JsonProperty("error_code")
+    private String errorCode;
+
+    @JsonProperty("error_message")
+    private String errorMsg;
+}
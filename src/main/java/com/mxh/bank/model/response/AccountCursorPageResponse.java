@@ -0,0 +1,27 @@
+package com.mxh.bank.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class AccountCursorPageResponse {
+
+    @JsonProperty("content")
+    private List<AccountInfoResponse> content;
+
+    @JsonProperty("size")
+    private int size;
+
+    /**
+     * 下一页的游标，没有更多数据时为null
+     */
+    @JsonProperty("next_cursor")
+    private String nextCursor;
+
+    @JsonProperty("has_more")
+    private boolean hasMore;
+}
@@ -0,0 +1,27 @@
+package com.mxh.bank.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class BatchCreateAccountResponse {
+
+    @JsonProperty("total")
+    private int total;
+
+    @JsonProperty("created_count")
+    private int createdCount;
+
+    @JsonProperty("failed_count")
+    private int failedCount;
+
+    /**
+     * 仅返回创建失败的账户，按请求中的下标升序
+     */
+    @JsonProperty("failures")
+    private List<AccountCreateResultResponse> failures;
+}
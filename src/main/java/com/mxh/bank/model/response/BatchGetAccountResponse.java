@@ -0,0 +1,24 @@
+package com.mxh.bank.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class BatchGetAccountResponse {
+
+    /**
+     * 按请求顺序排列的已存在账户，重复的账号只返回一次
+     */
+    @JsonProperty("accounts")
+    private List<AccountInfoResponse> accounts;
+
+    /**
+     * 不存在的账号，按请求顺序排列
+     */
+    @JsonProperty("not_found")
+    private List<String> notFound;
+}
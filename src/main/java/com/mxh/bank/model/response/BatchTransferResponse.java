@@ -0,0 +1,24 @@
+package com.mxh.bank.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class BatchTransferResponse {
+
+    @JsonProperty("total")
+    private int total;
+
+    @JsonProperty("success_count")
+    private int successCount;
+
+    @JsonProperty("failed_count")
+    private int failedCount;
+
+    @JsonProperty("results")
+    private List<TransferResultResponse> results;
+}
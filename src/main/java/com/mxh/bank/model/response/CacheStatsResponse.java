@@ -0,0 +1,40 @@
+package com.mxh.bank.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class CacheStatsResponse {
+
+    @JsonProperty("tier")
+    private String tier;
+
+    @JsonProperty("hits")
+    private long hits;
+
+    @JsonProperty("misses")
+    private long misses;
+
+    @JsonProperty("evictions")
+    private long evictions;
+
+    /**
+     * 当前条目数，无法统计时为-1
+     */
+    @JsonProperty("size")
+    private int size;
+
+    /**
+     * 两级均未命中而回源数据库的次数
+     */
+    @JsonProperty("loads")
+    private long loads;
+
+    /**
+     * 并发未命中时合并到同一次回源的请求数
+     */
+    @JsonProperty("coalesced_loads")
+    private long coalescedLoads;
+}
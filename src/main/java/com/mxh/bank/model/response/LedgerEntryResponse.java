@@ -0,0 +1,36 @@
+package com.mxh.bank.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+public class LedgerEntryResponse {
+
+    @JsonProperty("entry_id")
+    private String entryId;
+
+    @JsonProperty("transfer_id")
+    private String transferId;
+
+    @JsonProperty("account_number")
+    private String accountNumber;
+
+    @JsonProperty("counterparty_account")
+    private String counterpartyAccount;
+
+    /**
+     * debit: 转出; credit: 转入
+     */
+    @JsonProperty("direction")
+    private String direction;
+
+    @JsonProperty("amount")
+    private BigDecimal amount;
+
+    @JsonProperty("create_time")
+    private Long createTime;
+}
@@ -0,0 +1,34 @@
+package com.mxh.bank.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class LockStatsResponse {
+
+    @JsonProperty("provider")
+    private String provider;
+
+    /**
+     * 锁键，"*" 表示全部锁键的汇总
+     */
+    @JsonProperty("key")
+    private String key;
+
+    @JsonProperty("acquired")
+    private long acquired;
+
+    @JsonProperty("timeouts")
+    private long timeouts;
+
+    @JsonProperty("total_wait_millis")
+    private long totalWaitMillis;
+
+    @JsonProperty("max_wait_millis")
+    private long maxWaitMillis;
+
+    @JsonProperty("avg_wait_micros")
+    private long avgWaitMicros;
+}
@@ -0,0 +1,28 @@
+package com.mxh.bank.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class OptimisticStatsResponse {
+
+    @JsonProperty("operation")
+    private String operation;
+
+    @JsonProperty("calls")
+    private long calls;
+
+    @JsonProperty("conflicts")
+    private long conflicts;
+
+    @JsonProperty("retries")
+    private long retries;
+
+    /**
+     * 重试次数耗尽仍失败的调用数，持续增长时应考虑切回悲观锁模式
+     */
+    @JsonProperty("exhausted")
+    private long exhausted;
+}
@@ -0,0 +1,33 @@
+package com.mxh.bank.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+public class TransferResultResponse {
+
+    @JsonProperty("index")
+    private int index;
+
+    @JsonProperty("from_account")
+    private String fromAccount;
+
+    @JsonProperty("to_account")
+    private String toAccount;
+
+    @JsonProperty("amount")
+    private BigDecimal amount;
+
+    @JsonProperty("status")
+    private String status;
+
+    @JsonProperty("error_code")
+    private String errorCode;
+
+    @JsonProperty("error_message")
+    private String errorMsg;
+}
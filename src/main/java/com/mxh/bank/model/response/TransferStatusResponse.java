@@ -0,0 +1,42 @@
+package com.mxh.bank.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+public class TransferStatusResponse {
+
+    @JsonProperty("transfer_id")
+    private String transferId;
+
+    @JsonProperty("from_account")
+    private String fromAccount;
+
+    @JsonProperty("to_account")
+    private String toAccount;
+
+    @JsonProperty("amount")
+    private BigDecimal amount;
+
+    /**
+     * pending: 排队中或处理中; success: 已提交; failed: 失败，见错误码; unknown: 处理中断，结果需按转账ID查询流水确认
+     */
+    @JsonProperty("status")
+    private String status;
+
+    @JsonProperty("error_code")
+    private String errorCode;
+
+    @JsonProperty("error_message")
+    private String errorMsg;
+
+    @JsonProperty("create_time")
+    private Long createTime;
+
+    @JsonProperty("finish_time")
+    private Long finishTime;
+}
@@ -0,0 +1,16 @@
+package com.mxh.bank.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class TransferSubmitResponse {
+
+    @JsonProperty("transfer_id")
+    private String transferId;
+
+    @JsonProperty("status")
+    private String status;
+}
@@ -0,0 +1,93 @@
+package com.mxh.bank.repository;
+
+import com.mxh.bank.model.po.BankAccountPo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.SortedMap;
+
+/**
+ * 基于JDBC批量语句的账户数据访问，用于批量场景下绕开Hibernate逐行flush
+ */
+@Repository
+public class AccountBatchRepository {
+    private static final String UPDATE_BALANCE_SQL = "UPDATE bank_account SET balance = ?, version = version + 1 WHERE account_number = ?";
+    private static final String APPLY_DELTA_SQL = "UPDATE bank_account SET balance = balance + ?, version = version + 1 " +
+            "WHERE account_number = ? AND balance + ? >= 0";
+    private static final String INSERT_ACCOUNT_SQL = "INSERT INTO bank_account (id, account_number, account_holder_name, contact_number, balance, create_time, version) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${bank.jdbc.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * 批量回写账户余额，需在调用方事务内执行
+     * 回写后将实体从持久化上下文中分离，避免Hibernate脏检查重复更新以及后续查询读到旧值
+     */
+    public void batchUpdateBalances(Collection<BankAccountPo> accounts) {
+        if (accounts.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPDATE_BALANCE_SQL, accounts, batchSize, (ps, account) -> {
+            ps.setBigDecimal(1, account.getBalance());
+            ps.setString(2, account.getAccountNumber());
+        });
+        accounts.forEach(entityManager::detach);
+    }
+
+    /**
+     * 按账号顺序批量累加余额增量，扣减后余额为负或账户不存在时该行不更新，需在调用方事务内执行
+     * @return 全部行均已更新时返回true，调用方应在返回false时回滚事务
+     */
+    public boolean applyBalanceDeltas(SortedMap<String, BigDecimal> deltas) {
+        if (deltas.isEmpty()) {
+            return true;
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(APPLY_DELTA_SQL, deltas.entrySet(), batchSize, (ps, entry) -> {
+            ps.setBigDecimal(1, entry.getValue());
+            ps.setString(2, entry.getKey());
+            ps.setBigDecimal(3, entry.getValue());
+        });
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                // 部分驱动批量执行时只返回SUCCESS_NO_INFO，视为成功
+                if (count != 1 && count != Statement.SUCCESS_NO_INFO) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 批量插入账户，ID需由调用方预先分配，需在调用方事务内执行
+     * MySQL需在连接串中开启rewriteBatchedStatements=true，才会合并为多值INSERT
+     */
+    public void batchInsert(Collection<BankAccountPo> accounts) {
+        if (accounts.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_ACCOUNT_SQL, accounts, batchSize, (ps, account) -> {
+            ps.setLong(1, account.getId());
+            ps.setString(2, account.getAccountNumber());
+            ps.setString(3, account.getAccountHolderName());
+            ps.setString(4, account.getContactNumber());
+            ps.setBigDecimal(5, account.getBalance());
+            ps.setLong(6, account.getCreateTime());
+            ps.setLong(7, account.getVersion());
+        });
+    }
+}
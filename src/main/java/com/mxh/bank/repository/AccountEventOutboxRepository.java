@@ -0,0 +1,77 @@
+package com.mxh.bank.repository;
+
+import com.mxh.bank.model.po.AccountEventPo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * 账户事件发件箱的JDBC操作，需在调用方事务内执行
+ */
+@Repository
+public class AccountEventOutboxRepository {
+    private static final String CHECKPOINT_NAME = "account_event_relay";
+    private static final String INSERT_SQL = "INSERT INTO account_event_outbox (event_type, account_number, payload, create_time) VALUES (?, ?, ?, ?)";
+    private static final String SELECT_SQL = "SELECT id, event_type, account_number, payload, create_time FROM account_event_outbox";
+
+    private static final RowMapper<AccountEventPo> ROW_MAPPER = (rs, rowNum) -> AccountEventPo.builder()
+            .id(rs.getLong("id"))
+            .eventType(rs.getString("event_type"))
+            .accountNumber(rs.getString("account_number"))
+            .payload(rs.getString("payload"))
+            .createTime(rs.getLong("create_time"))
+            .build();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public void batchInsert(List<AccountEventPo> events) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, events, events.size(), (ps, event) -> {
+            ps.setString(1, event.getEventType());
+            ps.setString(2, event.getAccountNumber());
+            ps.setString(3, event.getPayload());
+            ps.setLong(4, event.getCreateTime());
+        });
+    }
+
+    /**
+     * 锁定并读取已投递的最大事件ID（高水位），多个节点同时投递时在此串行
+     */
+    public long lockCheckpoint() {
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT last_id FROM account_event_checkpoint WHERE name = ? FOR UPDATE", Long.class, CHECKPOINT_NAME);
+        if (!ids.isEmpty()) {
+            return ids.get(0);
+        }
+        jdbcTemplate.update("INSERT INTO account_event_checkpoint (name, last_id) VALUES (?, ?)", CHECKPOINT_NAME, 0L);
+        return 0L;
+    }
+
+    public void updateCheckpoint(long lastId) {
+        jdbcTemplate.update("UPDATE account_event_checkpoint SET last_id = ? WHERE name = ?", lastId, CHECKPOINT_NAME);
+    }
+
+    public List<AccountEventPo> findAfter(long lastId, int limit) {
+        return jdbcTemplate.query(SELECT_SQL + " WHERE id > ? ORDER BY id LIMIT ?", ROW_MAPPER, lastId, limit);
+    }
+
+    /**
+     * 查询ID小于高水位的事件：已投递的事件除高水位所在的一行外均已删除，剩余的为越过空洞后才提交的事件
+     */
+    public List<AccountEventPo> findBefore(long lastId, int limit) {
+        return jdbcTemplate.query(SELECT_SQL + " WHERE id < ? ORDER BY id LIMIT ?", ROW_MAPPER, lastId, limit);
+    }
+
+    /**
+     * 按ID删除已投递的事件，调用方需保留高水位所在的一行，避免表被清空后数据库重启时自增值回退到高水位以下（如MySQL 5.7）
+     */
+    public void deleteByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("DELETE FROM account_event_outbox WHERE id = ?", ids, ids.size(), (ps, id) -> ps.setLong(1, id));
+    }
+}
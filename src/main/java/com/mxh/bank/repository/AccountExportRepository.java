@@ -0,0 +1,59 @@
+package com.mxh.bank.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 账户全量导出，使用只进只读游标按fetch size分批拉取，逐行回调而不在内存中聚合结果
+ * MySQL需在连接串中开启useCursorFetch=true，fetch size才会生效
+ */
+@Repository
+public class AccountExportRepository {
+    /**
+     * 分片账户的余额为主账户与全部分片之和
+     */
+    private static final String EXPORT_SQL = "SELECT a.id, a.account_number, a.account_holder_name, a.contact_number, " +
+            "a.balance + COALESCE((SELECT SUM(s.balance) FROM bank_account_shard s WHERE s.account_number = a.account_number), 0) AS balance, " +
+            "a.create_time FROM bank_account a";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${bank.export.fetch-size:1000}")
+    private int fetchSize;
+
+    /**
+     * 按ID升序流式读取账户
+     * @param createTimeFrom 创建时间下限（含），为空时不限制
+     * @param createTimeTo 创建时间上限（不含），为空时不限制
+     */
+    public void streamAccounts(Long createTimeFrom, Long createTimeTo, RowCallbackHandler handler) {
+        StringBuilder sql = new StringBuilder(EXPORT_SQL);
+        List<Object> args = new ArrayList<>(2);
+        if (createTimeFrom != null) {
+            args.add(createTimeFrom);
+            sql.append(" WHERE a.create_time >= ?");
+        }
+        if (createTimeTo != null) {
+            args.add(createTimeTo);
+            sql.append(args.size() == 1 ? " WHERE" : " AND").append(" a.create_time < ?");
+        }
+        sql.append(" ORDER BY a.id");
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            for (int i = 0; i < args.size(); i++) {
+                ps.setLong(i + 1, (Long) args.get(i));
+            }
+            return ps;
+        }, handler);
+    }
+}
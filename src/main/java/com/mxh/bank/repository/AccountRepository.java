@@ -1,10 +1,17 @@
 package com.mxh.bank.repository;
 
 import com.mxh.bank.model.po.BankAccountPo;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import static jakarta.persistence.LockModeType.PESSIMISTIC_WRITE;
@@ -15,8 +22,46 @@ public interface AccountRepository extends JpaRepository<BankAccountPo, Long> {
 
     boolean existsByAccountNumber(String accountNumber);
 
+    List<BankAccountPo> findByAccountNumberIn(Collection<String> accountNumbers);
+
     void deleteByAccountNumber(String accountNumber);
 
     @Lock(PESSIMISTIC_WRITE)
     Optional<BankAccountPo> findWithLockByAccountNumber(String accountNumber);
+
+    /**
+     * 游标分页：从上一页最后一个ID之后继续读取，返回List不触发count查询
+     */
+    List<BankAccountPo> findByIdLessThan(Long id, Pageable pageable);
+
+    List<BankAccountPo> findByIdGreaterThan(Long id, Pageable pageable);
+
+    /**
+     * 集合查询已存在的账号，用于批量开户前的去重
+     */
+    @Query("select a.accountNumber from BankAccountPo a where a.accountNumber in :accountNumbers")
+    List<String> findExistingAccountNumbers(@Param("accountNumbers") Collection<String> accountNumbers);
+
+    /**
+     * 按账号升序一次性锁定多个账户，保证与单笔转账相同的加锁顺序，避免死锁
+     */
+    @Lock(PESSIMISTIC_WRITE)
+    @Query("select a from BankAccountPo a where a.accountNumber in :accountNumbers order by a.accountNumber asc")
+    List<BankAccountPo> findAllWithLockByAccountNumberIn(@Param("accountNumbers") Collection<String> accountNumbers);
+
+    /**
+     * 余额充足时扣款
+     * @return 影响行数，0表示账户不存在或余额不足
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update BankAccountPo a set a.balance = a.balance - :amount, a.version = a.version + 1 where a.accountNumber = :accountNumber and a.balance >= :amount")
+    int debitIfSufficient(@Param("accountNumber") String accountNumber, @Param("amount") BigDecimal amount);
+
+    /**
+     * 入账
+     * @return 影响行数，0表示账户不存在
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update BankAccountPo a set a.balance = a.balance + :amount, a.version = a.version + 1 where a.accountNumber = :accountNumber")
+    int credit(@Param("accountNumber") String accountNumber, @Param("amount") BigDecimal amount);
 }
@@ -0,0 +1,65 @@
+package com.mxh.bank.repository;
+
+import com.mxh.bank.model.po.BankAccountShardPo;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static jakarta.persistence.LockModeType.PESSIMISTIC_WRITE;
+
+@Repository
+public interface AccountShardRepository extends JpaRepository<BankAccountShardPo, Long> {
+    boolean existsByAccountNumberAndShardNo(String accountNumber, Integer shardNo);
+
+    /**
+     * 快照读取余额不低于指定金额的分片，不加锁，扣款时仍需条件更新
+     */
+    List<BankAccountShardPo> findByAccountNumberAndBalanceGreaterThanEqual(String accountNumber, BigDecimal amount);
+
+    /**
+     * 按分片序号升序锁定账户的全部分片
+     */
+    @Lock(PESSIMISTIC_WRITE)
+    List<BankAccountShardPo> findWithLockByAccountNumberOrderByShardNoAsc(String accountNumber);
+
+    @Query("select distinct s.accountNumber from BankAccountShardPo s")
+    List<String> findDistinctAccountNumbers();
+
+    /**
+     * 主账户余额与全部分片余额之和，一次查询完成
+     * @return 总余额，账户不存在时返回null
+     */
+    @Query(value = "SELECT a.balance + COALESCE((SELECT SUM(s.balance) FROM bank_account_shard s WHERE s.account_number = a.account_number), 0) " +
+            "FROM bank_account a WHERE a.account_number = :accountNumber", nativeQuery = true)
+    BigDecimal findTotalBalance(@Param("accountNumber") String accountNumber);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from BankAccountShardPo s where s.accountNumber = :accountNumber")
+    int deleteByAccountNumber(@Param("accountNumber") String accountNumber);
+
+    /**
+     * 分片余额充足时扣款
+     * @return 影响行数，0表示分片不存在或余额不足
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update BankAccountShardPo s set s.balance = s.balance - :amount, s.version = s.version + 1 " +
+            "where s.accountNumber = :accountNumber and s.shardNo = :shardNo and s.balance >= :amount")
+    int debitIfSufficient(@Param("accountNumber") String accountNumber, @Param("shardNo") Integer shardNo,
+                          @Param("amount") BigDecimal amount);
+
+    /**
+     * 分片入账
+     * @return 影响行数，0表示分片不存在
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update BankAccountShardPo s set s.balance = s.balance + :amount, s.version = s.version + 1 " +
+            "where s.accountNumber = :accountNumber and s.shardNo = :shardNo")
+    int credit(@Param("accountNumber") String accountNumber, @Param("shardNo") Integer shardNo,
+               @Param("amount") BigDecimal amount);
+}
@@ -0,0 +1,114 @@
+package com.mxh.bank.repository;
+
+import com.mxh.bank.model.po.AsyncTransferPo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 异步转账记录的JDBC操作，记录位于转出账户所在分库，调用方负责切换到对应分库
+ */
+@Repository
+public class AsyncTransferRepository {
+    private static final String SELECT_SQL = "SELECT transfer_id, from_account, to_account, amount, status, error_code, error_args, " +
+            "create_time, update_time FROM async_transfer";
+
+    private static final RowMapper<AsyncTransferPo> ROW_MAPPER = (rs, rowNum) -> AsyncTransferPo.builder()
+            .transferId(rs.getLong("transfer_id"))
+            .fromAccount(rs.getString("from_account"))
+            .toAccount(rs.getString("to_account"))
+            .amount(rs.getBigDecimal("amount"))
+            .status(rs.getString("status"))
+            .errorCode(rs.getString("error_code"))
+            .errorArgs(rs.getString("error_args"))
+            .createTime(rs.getLong("create_time"))
+            .updateTime(rs.getLong("update_time"))
+            .build();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${bank.jdbc.batch-size:500}")
+    private int batchSize;
+
+    public void insert(AsyncTransferPo transfer) {
+        jdbcTemplate.update("INSERT INTO async_transfer (transfer_id, from_account, to_account, amount, status, create_time, update_time) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                transfer.getTransferId(), transfer.getFromAccount(), transfer.getToAccount(), transfer.getAmount(),
+                transfer.getStatus(), transfer.getCreateTime(), transfer.getUpdateTime());
+    }
+
+    /**
+     * 仅当状态仍为expected时更新，写线程与恢复任务并发处理同一笔转账时只有一个成功
+     * @return 影响行数，0表示状态已被推进
+     */
+    public int updateStatus(long transferId, String expected, String status, String errorCode, String errorArgs) {
+        return jdbcTemplate.update("UPDATE async_transfer SET status = ?, error_code = ?, error_args = ?, update_time = ? " +
+                        "WHERE transfer_id = ? AND status = ?",
+                status, errorCode, errorArgs, System.currentTimeMillis(), transferId, expected);
+    }
+
+    /**
+     * 锁定仍为pending的记录，需在调用方事务内执行
+     * @return 锁定的行数，小于transferIds的数量时说明部分转账已被其他执行者处理
+     */
+    public int lockPending(List<Long> transferIds) {
+        String placeholders = String.join(", ", Collections.nCopies(transferIds.size(), "?"));
+        Object[] args = new Object[transferIds.size() + 1];
+        args[0] = AsyncTransferPo.STATUS_PENDING;
+        for (int i = 0; i < transferIds.size(); i++) {
+            args[i + 1] = transferIds.get(i);
+        }
+        return jdbcTemplate.queryForList("SELECT transfer_id FROM async_transfer WHERE status = ? AND transfer_id IN ("
+                + placeholders + ") FOR UPDATE", Long.class, args).size();
+    }
+
+    /**
+     * 按记录中的状态与错误码批量更新，需在调用方事务内先通过lockPending锁定
+     */
+    public void batchUpdateStatus(List<AsyncTransferPo> transfers) {
+        long now = System.currentTimeMillis();
+        jdbcTemplate.batchUpdate("UPDATE async_transfer SET status = ?, error_code = ?, error_args = ?, update_time = ? WHERE transfer_id = ?",
+                transfers, batchSize, (ps, transfer) -> {
+                    ps.setString(1, transfer.getStatus());
+                    ps.setString(2, transfer.getErrorCode());
+                    ps.setString(3, transfer.getErrorArgs());
+                    ps.setLong(4, now);
+                    ps.setLong(5, transfer.getTransferId());
+                });
+    }
+
+    /**
+     * 仅删除仍为expected状态的记录，用于撤销未能入队的转账
+     */
+    public int delete(long transferId, String expected) {
+        return jdbcTemplate.update("DELETE FROM async_transfer WHERE transfer_id = ? AND status = ?", transferId, expected);
+    }
+
+    public AsyncTransferPo findByTransferId(long transferId) {
+        List<AsyncTransferPo> transfers = jdbcTemplate.query(SELECT_SQL + " WHERE transfer_id = ?", ROW_MAPPER, transferId);
+        return transfers.isEmpty() ? null : transfers.get(0);
+    }
+
+    /**
+     * 查询状态为status且最后更新时间早于updatedBefore的转账，按更新时间升序
+     */
+    public List<AsyncTransferPo> findByStatusBefore(String status, long updatedBefore, int limit) {
+        return jdbcTemplate.query(SELECT_SQL + " WHERE status = ? AND update_time < ? ORDER BY update_time LIMIT ?",
+                ROW_MAPPER, status, updatedBefore, limit);
+    }
+
+    /**
+     * 删除最后更新时间早于updatedBefore的成功与失败记录
+     * @return 删除的行数
+     */
+    public int deleteFinishedBefore(long updatedBefore) {
+        return jdbcTemplate.update("DELETE FROM async_transfer WHERE status IN (?, ?) AND update_time < ?",
+                AsyncTransferPo.STATUS_SUCCESS, AsyncTransferPo.STATUS_FAILED, updatedBefore);
+    }
+}
@@ -0,0 +1,76 @@
+package com.mxh.bank.repository;
+
+import com.mxh.bank.model.po.HotBalanceJournalPo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 热点账户流水回写相关的JDBC操作，需在调用方事务内执行
+ */
+@Repository
+public class HotBalanceJournalRepository {
+    private static final String CHECKPOINT_NAME = "hot_balance";
+    private static final String INITIAL_ENTRY_ID = "0-0";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 锁定并读取已回写到的最后一条流水ID，多个节点同时回写时在此串行
+     */
+    public String lockCheckpoint() {
+        List<String> ids = jdbcTemplate.queryForList(
+                "SELECT last_entry_id FROM hot_balance_checkpoint WHERE name = ? FOR UPDATE", String.class, CHECKPOINT_NAME);
+        if (!ids.isEmpty()) {
+            return ids.get(0);
+        }
+        jdbcTemplate.update("INSERT INTO hot_balance_checkpoint (name, last_entry_id) VALUES (?, ?)", CHECKPOINT_NAME, INITIAL_ENTRY_ID);
+        return INITIAL_ENTRY_ID;
+    }
+
+    public void updateCheckpoint(String lastEntryId) {
+        jdbcTemplate.update("UPDATE hot_balance_checkpoint SET last_entry_id = ? WHERE name = ?", lastEntryId, CHECKPOINT_NAME);
+    }
+
+    /**
+     * 写入回放日志
+     */
+    public void batchInsert(List<HotBalanceJournalPo> entries) {
+        jdbcTemplate.batchUpdate("INSERT INTO hot_balance_journal (entry_id, transfer_id, account_number, delta, create_time) VALUES (?, ?, ?, ?, ?)",
+                entries, entries.size(), (ps, entry) -> {
+                    ps.setString(1, entry.getEntryId());
+                    ps.setString(2, entry.getTransferId());
+                    ps.setString(3, entry.getAccountNumber());
+                    ps.setLong(4, entry.getDelta());
+                    ps.setLong(5, entry.getCreateTime());
+                });
+    }
+
+    /**
+     * 按账户汇总后的增量回写余额
+     */
+    public void batchApplyDeltas(Map<String, BigDecimal> deltas) {
+        jdbcTemplate.batchUpdate("UPDATE bank_account SET balance = balance + ?, version = version + 1 WHERE account_number = ?",
+                deltas.entrySet(), deltas.size(), (ps, entry) -> {
+                    ps.setBigDecimal(1, entry.getValue());
+                    ps.setString(2, entry.getKey());
+                });
+    }
+
+    public List<HotBalanceJournalPo> findByAccountNumber(String accountNumber) {
+        return jdbcTemplate.query("SELECT entry_id, transfer_id, account_number, delta, create_time FROM hot_balance_journal WHERE account_number = ? ORDER BY create_time",
+                (rs, rowNum) -> HotBalanceJournalPo.builder()
+                        .entryId(rs.getString("entry_id"))
+                        .transferId(rs.getString("transfer_id"))
+                        .accountNumber(rs.getString("account_number"))
+                        .delta(rs.getLong("delta"))
+                        .createTime(rs.getLong("create_time"))
+                        .build(),
+                accountNumber);
+    }
+}
@@ -0,0 +1,60 @@
+package com.mxh.bank.repository;
+
+import com.mxh.bank.model.po.HotTransferPo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * 热点账户与普通账户之间转账记录的JDBC操作
+ */
+@Repository
+public class HotTransferRepository {
+    private static final String SELECT_SQL = "SELECT transfer_id, from_account, to_account, amount, status, create_time, update_time " +
+            "FROM hot_transfer";
+
+    private static final RowMapper<HotTransferPo> ROW_MAPPER = (rs, rowNum) -> HotTransferPo.builder()
+            .transferId(rs.getLong("transfer_id"))
+            .fromAccount(rs.getString("from_account"))
+            .toAccount(rs.getString("to_account"))
+            .amount(rs.getBigDecimal("amount"))
+            .status(rs.getString("status"))
+            .createTime(rs.getLong("create_time"))
+            .updateTime(rs.getLong("update_time"))
+            .build();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public void insert(HotTransferPo transfer) {
+        jdbcTemplate.update("INSERT INTO hot_transfer (transfer_id, from_account, to_account, amount, status, create_time, update_time) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                transfer.getTransferId(), transfer.getFromAccount(), transfer.getToAccount(), transfer.getAmount(),
+                transfer.getStatus(), transfer.getCreateTime(), transfer.getUpdateTime());
+    }
+
+    /**
+     * 仅当状态仍为expected时更新，在线请求与恢复任务并发推进同一笔转账时只有一个成功
+     * @return 影响行数，0表示状态已被推进
+     */
+    public int updateStatus(long transferId, String expected, String status) {
+        return jdbcTemplate.update("UPDATE hot_transfer SET status = ?, update_time = ? WHERE transfer_id = ? AND status = ?",
+                status, System.currentTimeMillis(), transferId, expected);
+    }
+
+    public HotTransferPo findByTransferId(long transferId) {
+        List<HotTransferPo> transfers = jdbcTemplate.query(SELECT_SQL + " WHERE transfer_id = ?", ROW_MAPPER, transferId);
+        return transfers.isEmpty() ? null : transfers.get(0);
+    }
+
+    /**
+     * 查询创建时间早于createdBefore仍未完成的转账，按创建时间升序
+     */
+    public List<HotTransferPo> findPendingBefore(long createdBefore, int limit) {
+        return jdbcTemplate.query(SELECT_SQL + " WHERE status = ? AND create_time < ? ORDER BY create_time LIMIT ?",
+                ROW_MAPPER, HotTransferPo.STATUS_PENDING, createdBefore, limit);
+    }
+}
@@ -0,0 +1,77 @@
+package com.mxh.bank.repository;
+
+import com.mxh.bank.model.po.PendingTransferPo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * 跨库转账的JDBC操作：pending_transfer 位于转出账户所在分库，transfer_credit 位于转入账户所在分库，调用方负责切换到对应分库
+ */
+@Repository
+public class PendingTransferRepository {
+    private static final String SELECT_SQL = "SELECT transfer_id, from_account, to_account, amount, status, create_time, update_time " +
+            "FROM pending_transfer";
+
+    private static final RowMapper<PendingTransferPo> ROW_MAPPER = (rs, rowNum) -> PendingTransferPo.builder()
+            .transferId(rs.getLong("transfer_id"))
+            .fromAccount(rs.getString("from_account"))
+            .toAccount(rs.getString("to_account"))
+            .amount(rs.getBigDecimal("amount"))
+            .status(rs.getString("status"))
+            .createTime(rs.getLong("create_time"))
+            .updateTime(rs.getLong("update_time"))
+            .build();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public void insert(PendingTransferPo transfer) {
+        jdbcTemplate.update("INSERT INTO pending_transfer (transfer_id, from_account, to_account, amount, status, create_time, update_time) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                transfer.getTransferId(), transfer.getFromAccount(), transfer.getToAccount(), transfer.getAmount(),
+                transfer.getStatus(), transfer.getCreateTime(), transfer.getUpdateTime());
+    }
+
+    /**
+     * 仅当状态仍为expected时更新，多个执行者并发推进同一笔转账时只有一个成功
+     * @return 影响行数，0表示状态已被推进
+     */
+    public int updateStatus(long transferId, String expected, String status) {
+        return jdbcTemplate.update("UPDATE pending_transfer SET status = ?, update_time = ? WHERE transfer_id = ? AND status = ?",
+                status, System.currentTimeMillis(), transferId, expected);
+    }
+
+    public PendingTransferPo findByTransferId(long transferId) {
+        List<PendingTransferPo> transfers = jdbcTemplate.query(SELECT_SQL + " WHERE transfer_id = ?", ROW_MAPPER, transferId);
+        return transfers.isEmpty() ? null : transfers.get(0);
+    }
+
+    /**
+     * 查询创建时间早于createdBefore仍未完成的转账，按创建时间升序
+     */
+    public List<PendingTransferPo> findPendingBefore(long createdBefore, int limit) {
+        return jdbcTemplate.query(SELECT_SQL + " WHERE status = ? AND create_time < ? ORDER BY create_time LIMIT ?",
+                ROW_MAPPER, PendingTransferPo.STATUS_PENDING, createdBefore, limit);
+    }
+
+    /**
+     * 写入入账标记，转账ID为主键，同一笔转账重复入账时抛出DuplicateKeyException
+     */
+    public void insertCredit(PendingTransferPo transfer, String status) {
+        jdbcTemplate.update("INSERT INTO transfer_credit (transfer_id, account_number, amount, status, create_time) VALUES (?, ?, ?, ?, ?)",
+                transfer.getTransferId(), transfer.getToAccount(), transfer.getAmount(), status, System.currentTimeMillis());
+    }
+
+    public void updateCreditStatus(long transferId, String status) {
+        jdbcTemplate.update("UPDATE transfer_credit SET status = ? WHERE transfer_id = ?", status, transferId);
+    }
+
+    public String findCreditStatus(long transferId) {
+        List<String> statuses = jdbcTemplate.queryForList("SELECT status FROM transfer_credit WHERE transfer_id = ?", String.class, transferId);
+        return statuses.isEmpty() ? null : statuses.get(0);
+    }
+}
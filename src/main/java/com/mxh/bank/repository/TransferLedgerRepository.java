@@ -0,0 +1,114 @@
+package com.mxh.bank.repository;
+
+import com.mxh.bank.model.po.TransferLedgerPo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 转账流水的JDBC操作，transfer_ledger_pending 为转账事务中写入、尚未移入 transfer_ledger 的流水
+ */
+@Repository
+public class TransferLedgerRepository {
+    private static final String INSERT_SQL = "INSERT INTO transfer_ledger (entry_id, transfer_id, account_number, counterparty_account, direction, amount, create_time) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_PENDING_SQL = "INSERT INTO transfer_ledger_pending (entry_id, transfer_id, account_number, counterparty_account, direction, amount, create_time) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    /**
+     * 按 (create_time, entry_id) 倒序做键集分页，条件与排序都落在索引 (account_number, create_time, entry_id) 上，
+     * 翻页深度不影响扫描行数
+     */
+    private static final String FIND_BY_ACCOUNT_SQL = "SELECT entry_id, transfer_id, account_number, counterparty_account, direction, amount, create_time " +
+            "FROM transfer_ledger WHERE account_number = ? AND create_time >= ? " +
+            "AND (create_time < ? OR (create_time = ? AND entry_id < ?)) " +
+            "ORDER BY create_time DESC, entry_id DESC LIMIT ?";
+
+    private static final RowMapper<TransferLedgerPo> ROW_MAPPER = (rs, rowNum) -> TransferLedgerPo.builder()
+            .entryId(rs.getLong("entry_id"))
+            .transferId(rs.getString("transfer_id"))
+            .accountNumber(rs.getString("account_number"))
+            .counterpartyAccount(rs.getString("counterparty_account"))
+            .direction(rs.getString("direction"))
+            .amount(rs.getBigDecimal("amount"))
+            .createTime(rs.getLong("create_time"))
+            .build();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 批量写入流水，需在调用方事务内执行
+     */
+    public void batchInsert(List<TransferLedgerPo> entries) {
+        batchInsert(INSERT_SQL, entries);
+    }
+
+    /**
+     * 写入待移入的流水，需在转账的余额事务内执行
+     */
+    public void batchInsertPending(List<TransferLedgerPo> entries) {
+        batchInsert(INSERT_PENDING_SQL, entries);
+    }
+
+    /**
+     * 按流水ID顺序读取一批待移入的流水
+     */
+    public List<TransferLedgerPo> findPending(int limit) {
+        return jdbcTemplate.query("SELECT entry_id, transfer_id, account_number, counterparty_account, direction, amount, create_time " +
+                "FROM transfer_ledger_pending ORDER BY entry_id LIMIT ?", ROW_MAPPER, limit);
+    }
+
+    public void deletePending(List<Long> entryIds) {
+        if (entryIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("DELETE FROM transfer_ledger_pending WHERE entry_id = ?", entryIds, entryIds.size(),
+                (ps, entryId) -> ps.setLong(1, entryId));
+    }
+
+    /**
+     * 查询已写入 transfer_ledger 的流水ID，移入中断后重试时跳过这些流水
+     */
+    public Set<Long> findExistingEntryIds(List<Long> entryIds) {
+        if (entryIds.isEmpty()) {
+            return Set.of();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(entryIds.size(), "?"));
+        return new HashSet<>(jdbcTemplate.queryForList("SELECT entry_id FROM transfer_ledger WHERE entry_id IN (" + placeholders + ")",
+                Long.class, entryIds.toArray()));
+    }
+
+    private void batchInsert(String sql, List<TransferLedgerPo> entries) {
+        jdbcTemplate.batchUpdate(sql, entries, entries.size(), (ps, entry) -> {
+            ps.setLong(1, entry.getEntryId());
+            ps.setString(2, entry.getTransferId());
+            ps.setString(3, entry.getAccountNumber());
+            ps.setString(4, entry.getCounterpartyAccount());
+            ps.setString(5, entry.getDirection());
+            ps.setBigDecimal(6, entry.getAmount());
+            ps.setLong(7, entry.getCreateTime());
+        });
+    }
+
+    /**
+     * 查询账户在 [startTime, 上界) 内的流水，按时间倒序
+     * @param beforeCreateTime 上界的时间，首页为查询的结束时间（不含）
+     * @param beforeEntryId 上界的流水ID，首页传Long.MIN_VALUE，翻页时为上一页最后一条流水
+     */
+    public List<TransferLedgerPo> findByAccountNumber(String accountNumber, long startTime, long beforeCreateTime,
+                                                      long beforeEntryId, int limit) {
+        return jdbcTemplate.query(FIND_BY_ACCOUNT_SQL, ROW_MAPPER,
+                accountNumber, startTime, beforeCreateTime, beforeCreateTime, beforeEntryId, limit);
+    }
+
+    public List<TransferLedgerPo> findByTransferId(String transferId) {
+        return jdbcTemplate.query("SELECT entry_id, transfer_id, account_number, counterparty_account, direction, amount, create_time " +
+                "FROM transfer_ledger WHERE transfer_id = ? ORDER BY entry_id", ROW_MAPPER, transferId);
+    }
+}
@@ -0,0 +1,535 @@
+package com.mxh.bank.service;
+
+import cn.hutool.cache.impl.LRUCache;
+import com.mxh.bank.config.ReplicaLagMonitor;
+import com.mxh.bank.model.po.BankAccountPo;
+import com.mxh.bank.model.response.CacheStatsResponse;
+import com.mxh.bank.utils.RedisCircuitBreaker;
+import com.mxh.bank.utils.RedisUtils;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 账户两级缓存：进程内L1（容量+TTL淘汰）在前，Redis作为L2
+ * 账户变更时本地失效并通过Redis频道广播，各节点收到后清理各自的L1
+ * 回源读库与回填缓存之间可能有事务提交并删除了缓存：本节点通过删除序号发现并放弃回填，
+ * 其他节点的回填由提交后 bank.cache.delayed-evict-millis 的第二次删除清理
+ * Redis熔断期间收不到其他节点的失效广播，因此读请求同时绕过L1直接回源，熔断恢复时清空L1
+ */
+@Service
+@Slf4j
+public class AccountCacheService {
+    public static final String INVALIDATION_CHANNEL = "account:cache:invalidation";
+    private static final String ACCOUNT_CACHE_PREFIX = "account:cache:";
+    /**
+     * 账户不存在时写入Redis的占位值
+     */
+    private static final String NULL_PLACEHOLDER = "__NULL__";
+    /**
+     * 账户不存在时写入L1的占位对象，仅按引用比较
+     */
+    private static final BankAccountPo NULL_ACCOUNT = new BankAccountPo();
+    /**
+     * 失效消息格式为 来源节点ID + 分隔符 + 账号
+     */
+    private static final char ORIGIN_SEPARATOR = '|';
+    private static final int EVICT_STRIPES = 1024;
+
+    /**
+     * 本节点的标识，收到自己发出的失效消息时不再清理刚写入的L1
+     */
+    private final String nodeId = UUID.randomUUID().toString().replace("-", "");
+
+    @Autowired
+    private RedisUtils redisUtils;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private RedisCircuitBreaker redisCircuitBreaker;
+
+    /**
+     * 开启读写分离时存在，回源可能读到从库的旧数据，延迟删除至少等待从库延迟上限
+     */
+    @Autowired(required = false)
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @Value("${bank.cache.delayed-evict-millis:1000}")
+    private long delayedEvictMillis;
+
+    private ScheduledExecutorService delayedEvictExecutor;
+
+    @Value("${bank.cache.l1.max-size:10000}")
+    private int localMaxSize;
+
+    @Value("${bank.cache.l1.ttl-millis:30000}")
+    private long localTtlMillis;
+
+    @Value("${bank.cache.redis.ttl-seconds:600}")
+    private long redisTtlSeconds;
+
+    @Value("${bank.cache.redis.ttl-jitter-seconds:60}")
+    private long redisTtlJitterSeconds;
+
+    @Value("${bank.cache.null-ttl-seconds:30}")
+    private long nullTtlSeconds;
+
+    private LRUCache<String, BankAccountPo> localCache;
+
+    /**
+     * 同一账号并发未命中时只允许一个线程回源，其余线程等待其结果
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<BankAccountPo>> loadingAccounts = new ConcurrentHashMap<>();
+
+    private final TierStats localStats = new TierStats();
+
+    private final TierStats redisStats = new TierStats();
+
+    private final LongAdder loads = new LongAdder();
+
+    private final LongAdder coalescedLoads = new LongAdder();
+
+    /**
+     * Redis熔断期间绕过缓存直接回源的次数
+     */
+    private final LongAdder bypassLoads = new LongAdder();
+
+    /**
+     * 按账号分段的删除序号，每次删除递增；回源前后序号不同说明期间有删除，回源结果可能已过期
+     */
+    private final AtomicLongArray evictSequences = new AtomicLongArray(EVICT_STRIPES);
+
+    /**
+     * 因回源期间发生删除而放弃回填的次数
+     */
+    private final LongAdder skippedFills = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        localCache = new LRUCache<>(localMaxSize, localTtlMillis);
+        // 容量淘汰、过期以及主动失效都会回调，统一计入L1淘汰数
+        localCache.setListener((key, value) -> localStats.evictions.increment());
+
+        localStats.bindTo(meterRegistry, "L1");
+        redisStats.bindTo(meterRegistry, "L2");
+        Gauge.builder("bank.cache.size", localCache, LRUCache::size)
+                .tag("tier", "L1")
+                .register(meterRegistry);
+        FunctionCounter.builder("bank.cache.loads", loads, LongAdder::sum)
+                .tag("type", "load")
+                .register(meterRegistry);
+        FunctionCounter.builder("bank.cache.loads", coalescedLoads, LongAdder::sum)
+                .tag("type", "coalesced")
+                .register(meterRegistry);
+        FunctionCounter.builder("bank.cache.loads", bypassLoads, LongAdder::sum)
+                .tag("type", "bypass")
+                .register(meterRegistry);
+        FunctionCounter.builder("bank.cache.loads", skippedFills, LongAdder::sum)
+                .tag("type", "skipped_fill")
+                .register(meterRegistry);
+        redisCircuitBreaker.addRecoveryAction(this::clearLocal);
+        if (replicaLagMonitor != null) {
+            delayedEvictMillis = Math.max(delayedEvictMillis, replicaLagMonitor.getStalenessBoundMillis());
+        }
+        delayedEvictExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "account-cache-delayed-evict");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 读穿透查询：依次查询L1、L2，均未命中时通过loader回源并回填缓存
+     * 回源结果为null时短暂缓存空值，防止不存在的账号反复击穿到数据库
+     * @param loader 回源函数，账户不存在时返回null
+     * @return 账户，不存在时返回null
+     */
+    public BankAccountPo getOrLoad(String accountNumber, Function<String, BankAccountPo> loader) {
+        if (!redisCircuitBreaker.isClosed()) {
+            bypassLoads.increment();
+            return loader.apply(accountNumber);
+        }
+        BankAccountPo cached = getCached(accountNumber);
+        if (cached != null) {
+            return cached == NULL_ACCOUNT ? null : cached;
+        }
+
+        CompletableFuture<BankAccountPo> future = new CompletableFuture<>();
+        CompletableFuture<BankAccountPo> loading = loadingAccounts.putIfAbsent(accountNumber, future);
+        if (loading != null) {
+            coalescedLoads.increment();
+            return join(loading);
+        }
+        try {
+            loads.increment();
+            long sequence = evictSequence(accountNumber);
+            BankAccountPo account = loader.apply(accountNumber);
+            if (evictSequence(accountNumber) != sequence) {
+                skippedFills.increment();
+            } else if (account == null) {
+                putNull(accountNumber);
+            } else {
+                putQuietly(account);
+            }
+            future.complete(account);
+            return account;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loadingAccounts.remove(accountNumber, future);
+        }
+    }
+
+    /**
+     * 批量读穿透查询：L1未命中的账号通过一次MGET查询L2，仍未命中的账号通过loader一次回源
+     * 回源结果（含不存在账号的空值）通过一个管道回填L2，批量查询不参与单账号的并发回源合并
+     * @param loader 批量回源函数，只返回存在的账户
+     * @return 账号到账户的映射，不存在的账号不在结果中
+     */
+    public Map<String, BankAccountPo> getAllOrLoad(Collection<String> accountNumbers,
+                                                   Function<Collection<String>, List<BankAccountPo>> loader) {
+        Map<String, BankAccountPo> result = new HashMap<>(accountNumbers.size() * 2);
+        if (!redisCircuitBreaker.isClosed()) {
+            bypassLoads.add(accountNumbers.size());
+            loader.apply(accountNumbers).forEach(account -> result.put(account.getAccountNumber(), account));
+            return result;
+        }
+        List<String> localMisses = new ArrayList<>();
+        for (String accountNumber : accountNumbers) {
+            BankAccountPo account = localCache.get(accountNumber, false);
+            if (account == null) {
+                localStats.misses.increment();
+                localMisses.add(accountNumber);
+                continue;
+            }
+            localStats.hits.increment();
+            if (account != NULL_ACCOUNT) {
+                result.put(accountNumber, account);
+            }
+        }
+        if (localMisses.isEmpty()) {
+            return result;
+        }
+
+        List<Object> cachedValues = redisUtils.multiGet(localMisses.stream().map(this::getCacheKey).toList());
+        List<String> redisMisses = new ArrayList<>();
+        for (int i = 0; i < localMisses.size(); i++) {
+            String accountNumber = localMisses.get(i);
+            Object cached = cachedValues.get(i);
+            if (NULL_PLACEHOLDER.equals(cached)) {
+                redisStats.hits.increment();
+                localCache.put(accountNumber, NULL_ACCOUNT, TimeUnit.SECONDS.toMillis(nullTtlSeconds));
+            } else if (cached instanceof BankAccountPo account) {
+                redisStats.hits.increment();
+                localCache.put(accountNumber, account);
+                result.put(accountNumber, account);
+            } else {
+                redisStats.misses.increment();
+                redisMisses.add(accountNumber);
+            }
+        }
+        if (redisMisses.isEmpty()) {
+            return result;
+        }
+
+        loads.add(redisMisses.size());
+        Map<String, Long> sequences = new HashMap<>(redisMisses.size() * 2);
+        redisMisses.forEach(accountNumber -> sequences.put(accountNumber, evictSequence(accountNumber)));
+        for (BankAccountPo account : loader.apply(redisMisses)) {
+            result.put(account.getAccountNumber(), account);
+        }
+        // 回源期间被删除过的账号不回填
+        List<String> fills = redisMisses.stream()
+                .filter(accountNumber -> evictSequence(accountNumber) == sequences.get(accountNumber))
+                .toList();
+        skippedFills.add(redisMisses.size() - fills.size());
+        Map<String, Object> backfill = new LinkedHashMap<>(fills.size() * 2);
+        for (String accountNumber : fills) {
+            BankAccountPo account = result.get(accountNumber);
+            backfill.put(getCacheKey(accountNumber), account == null ? NULL_PLACEHOLDER : account);
+        }
+        redisUtils.pipelineSet(backfill, value -> NULL_PLACEHOLDER.equals(value) ? nullTtlSeconds : jitteredTtlSeconds());
+        for (String accountNumber : fills) {
+            BankAccountPo account = result.get(accountNumber);
+            if (account == null) {
+                localCache.put(accountNumber, NULL_ACCOUNT, TimeUnit.SECONDS.toMillis(nullTtlSeconds));
+            } else {
+                localCache.put(accountNumber, copyOf(account));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 依次查询L1、L2，L2命中时回填L1
+     * @return 缓存的账户，两级均未命中或缓存的是空值时返回null
+     */
+    public BankAccountPo get(String accountNumber) {
+        BankAccountPo cached = getCached(accountNumber);
+        return cached == NULL_ACCOUNT ? null : cached;
+    }
+
+    /**
+     * 写入两级缓存，并通知其他节点丢弃旧的L1数据
+     * 同样延迟删除一次，防止并发回源读到的旧值覆盖新值
+     */
+    public void put(BankAccountPo account) {
+        putQuietly(account);
+        publishInvalidation(account.getAccountNumber());
+        scheduleDelayedEvict(account.getAccountNumber());
+    }
+
+    /**
+     * 批量开户后预热L2，通过管道一次写入
+     * 新账户此前只可能被缓存为空值，本节点L1随之覆盖，其他节点的空值由较短的空值TTL兜底
+     */
+    public void putAll(Collection<BankAccountPo> accounts) {
+        Map<String, Object> values = new LinkedHashMap<>(accounts.size() * 2);
+        for (BankAccountPo account : accounts) {
+            values.put(getCacheKey(account.getAccountNumber()), account);
+        }
+        redisUtils.pipelineSet(values, value -> jitteredTtlSeconds());
+        accounts.forEach(account -> localCache.put(account.getAccountNumber(), copyOf(account)));
+    }
+
+    /**
+     * 删除两级缓存，并广播失效消息
+     * 处于事务中时在提交后再删除一次，避免提交前被并发读回源写入旧值
+     * 之后延迟 bank.cache.delayed-evict-millis（开启读写分离时不小于从库延迟上限）再删除一次，
+     * 清理其他节点在提交前读库、提交后才回填的旧值
+     */
+    public void evict(String accountNumber) {
+        doEvict(accountNumber);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doEvict(accountNumber);
+                    scheduleDelayedEvict(accountNumber);
+                }
+            });
+        } else {
+            scheduleDelayedEvict(accountNumber);
+        }
+    }
+
+    /**
+     * 仅清理本节点L1
+     */
+    public void evictLocal(String accountNumber) {
+        localCache.remove(accountNumber);
+    }
+
+    /**
+     * 失效频道的监听器回调，忽略本节点发出的消息：本节点在发布前已更新或清理了自己的L1
+     */
+    public void onInvalidation(String message) {
+        int separator = message.indexOf(ORIGIN_SEPARATOR);
+        if (separator < 0) {
+            evictLocal(message);
+            return;
+        }
+        if (!nodeId.equals(message.substring(0, separator))) {
+            evictLocal(message.substring(separator + 1));
+        }
+    }
+
+    /**
+     * 清空本节点L1
+     */
+    public void clearLocal() {
+        localCache.clear();
+    }
+
+    public List<CacheStatsResponse> getStats() {
+        CacheStatsResponse redisTier = redisStats.toResponse("L2", -1);
+        redisTier.setLoads(loads.sum());
+        redisTier.setCoalescedLoads(coalescedLoads.sum());
+        return List.of(localStats.toResponse("L1", localCache.size()), redisTier);
+    }
+
+    private BankAccountPo getCached(String accountNumber) {
+        if (!redisCircuitBreaker.isClosed()) {
+            return null;
+        }
+        BankAccountPo account = localCache.get(accountNumber, false);
+        if (account != null) {
+            localStats.hits.increment();
+            return account;
+        }
+        localStats.misses.increment();
+
+        Object cached = redisUtils.get(getCacheKey(accountNumber));
+        if (NULL_PLACEHOLDER.equals(cached)) {
+            redisStats.hits.increment();
+            localCache.put(accountNumber, NULL_ACCOUNT, TimeUnit.SECONDS.toMillis(nullTtlSeconds));
+            return NULL_ACCOUNT;
+        }
+        if (!(cached instanceof BankAccountPo)) {
+            redisStats.misses.increment();
+            return null;
+        }
+        redisStats.hits.increment();
+        localCache.put(accountNumber, (BankAccountPo) cached);
+        return (BankAccountPo) cached;
+    }
+
+    private void putQuietly(BankAccountPo account) {
+        redisUtils.set(getCacheKey(account.getAccountNumber()), account, jitteredTtlSeconds(), TimeUnit.SECONDS);
+        localCache.put(account.getAccountNumber(), copyOf(account));
+    }
+
+    private void putNull(String accountNumber) {
+        redisUtils.set(getCacheKey(accountNumber), NULL_PLACEHOLDER, nullTtlSeconds, TimeUnit.SECONDS);
+        localCache.put(accountNumber, NULL_ACCOUNT, TimeUnit.SECONDS.toMillis(nullTtlSeconds));
+    }
+
+    private void scheduleDelayedEvict(String accountNumber) {
+        if (delayedEvictMillis <= 0) {
+            return;
+        }
+        delayedEvictExecutor.schedule(() -> {
+            try {
+                doEvict(accountNumber);
+            } catch (RuntimeException e) {
+                log.error("delayed cache evict error, accountNumber = {}", accountNumber, e);
+            }
+        }, delayedEvictMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void doEvict(String accountNumber) {
+        evictSequences.incrementAndGet(evictStripe(accountNumber));
+        localCache.remove(accountNumber);
+        redisUtils.delete(getCacheKey(accountNumber));
+        redisStats.evictions.increment();
+        publishInvalidation(accountNumber);
+    }
+
+    /**
+     * 过期时间增加随机抖动，避免批量写入的缓存同时过期
+     */
+    private long jitteredTtlSeconds() {
+        if (redisTtlJitterSeconds <= 0) {
+            return redisTtlSeconds;
+        }
+        return redisTtlSeconds + ThreadLocalRandom.current().nextLong(redisTtlJitterSeconds + 1);
+    }
+
+    private BankAccountPo join(CompletableFuture<BankAccountPo> loading) {
+        try {
+            return loading.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private void publishInvalidation(String accountNumber) {
+        try {
+            redisUtils.publish(INVALIDATION_CHANNEL, nodeId + ORIGIN_SEPARATOR + accountNumber);
+        } catch (Exception e) {
+            // 广播失败时其他节点依靠L1的TTL兜底
+            log.error("publish cache invalidation error, accountNumber = {}", accountNumber, e);
+        }
+    }
+
+    private long evictSequence(String accountNumber) {
+        return evictSequences.get(evictStripe(accountNumber));
+    }
+
+    private int evictStripe(String accountNumber) {
+        return Math.floorMod(accountNumber.hashCode(), EVICT_STRIPES);
+    }
+
+    private String getCacheKey(String accountNumber) {
+        return ACCOUNT_CACHE_PREFIX + accountNumber;
+    }
+
+    /**
+     * L1直接持有对象引用，写入副本避免与JPA托管实体共享状态
+     */
+    private BankAccountPo copyOf(BankAccountPo account) {
+        return BankAccountPo.builder()
+                .id(account.getId())
+                .accountNumber(account.getAccountNumber())
+                .accountHolderName(account.getAccountHolderName())
+                .contactNumber(account.getContactNumber())
+                .balance(account.getBalance())
+                .createTime(account.getCreateTime())
+                .version(account.getVersion())
+                .build();
+    }
+
+    private static class TierStats {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        /**
+         * L1为实际被移出本地缓存的条目数，L2为主动删除的键数
+         */
+        private final LongAdder evictions = new LongAdder();
+
+        /**
+         * 以现有计数器为数据源注册指标，命中率为自启动以来的累计值
+         */
+        private void bindTo(MeterRegistry meterRegistry, String tier) {
+            FunctionCounter.builder("bank.cache.requests", hits, LongAdder::sum)
+                    .tags("tier", tier, "result", "hit")
+                    .register(meterRegistry);
+            FunctionCounter.builder("bank.cache.requests", misses, LongAdder::sum)
+                    .tags("tier", tier, "result", "miss")
+                    .register(meterRegistry);
+            FunctionCounter.builder("bank.cache.evictions", evictions, LongAdder::sum)
+                    .tag("tier", tier)
+                    .register(meterRegistry);
+            Gauge.builder("bank.cache.hit.ratio", this, TierStats::hitRatio)
+                    .tag("tier", tier)
+                    .register(meterRegistry);
+        }
+
+        private double hitRatio() {
+            long hitCount = hits.sum();
+            long total = hitCount + misses.sum();
+            return total == 0 ? 0 : (double) hitCount / total;
+        }
+
+        private CacheStatsResponse toResponse(String tier, int size) {
+            return CacheStatsResponse.builder()
+                    .tier(tier)
+                    .hits(hits.sum())
+                    .misses(misses.sum())
+                    .evictions(evictions.sum())
+                    .size(size)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.mxh.bank.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mxh.bank.model.po.AccountEventPo;
+import com.mxh.bank.model.po.BankAccountPo;
+import com.mxh.bank.repository.AccountEventOutboxRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 事务发件箱：账户变更与事件在同一事务中写入，事务回滚时事件一并回滚，提交后由AccountEventRelay异步投递
+ * 写入方法必须在调用方的事务内执行，以保证事件与变更的原子性
+ */
+@Service
+public class AccountEventOutboxService {
+
+    @Autowired
+    private AccountEventOutboxRepository accountEventOutboxRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${bank.outbox.enabled:true}")
+    private boolean enabled;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCreated(BankAccountPo account) {
+        record(List.of(accountEvent(AccountEventPo.ACCOUNT_CREATED, account)));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCreated(Collection<BankAccountPo> accounts) {
+        record(accounts.stream().map(account -> accountEvent(AccountEventPo.ACCOUNT_CREATED, account)).toList());
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordUpdated(BankAccountPo account) {
+        record(List.of(accountEvent(AccountEventPo.ACCOUNT_UPDATED, account)));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDeleted(String accountNumber) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("account_number", accountNumber);
+        record(List.of(event(AccountEventPo.ACCOUNT_DELETED, accountNumber, payload)));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordTransfer(String fromAccountNo, String toAccountNo, BigDecimal amount) {
+        record(List.of(transferEvent(fromAccountNo, toAccountNo, amount)));
+    }
+
+    /**
+     * 批量写入事件，批量转账等场景先用transferEvent构建事件，再一次写入
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(List<AccountEventPo> events) {
+        if (!enabled || events.isEmpty()) {
+            return;
+        }
+        accountEventOutboxRepository.batchInsert(events);
+    }
+
+    /**
+     * 转账事件归属于转出账户
+     */
+    public AccountEventPo transferEvent(String fromAccountNo, String toAccountNo, BigDecimal amount) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("from_account", fromAccountNo);
+        payload.put("to_account", toAccountNo);
+        payload.put("amount", amount);
+        return event(AccountEventPo.FUNDS_TRANSFERRED, fromAccountNo, payload);
+    }
+
+    private AccountEventPo accountEvent(String eventType, BankAccountPo account) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("account_number", account.getAccountNumber());
+        payload.put("account_holder_name", account.getAccountHolderName());
+        payload.put("contact_number", account.getContactNumber());
+        payload.put("balance", account.getBalance());
+        payload.put("create_time", account.getCreateTime());
+        return event(eventType, account.getAccountNumber(), payload);
+    }
+
+    private AccountEventPo event(String eventType, String accountNumber, Map<String, Object> payload) {
+        try {
+            return AccountEventPo.builder()
+                    .eventType(eventType)
+                    .accountNumber(accountNumber)
+                    .payload(objectMapper.writeValueAsString(payload))
+                    .createTime(System.currentTimeMillis())
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("serialize account event error, eventType = " + eventType, e);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.mxh.bank.service;
+
+import com.mxh.bank.config.DatabaseShardRouter;
+import com.mxh.bank.model.po.AccountEventPo;
+import com.mxh.bank.repository.AccountEventOutboxRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 发件箱投递：按事件ID顺序每次读取高水位之后的一批事件，投递到配置的目标后在同一事务中推进高水位并删除已投递的事件
+ * 自增ID在插入时分配、在提交时才可见，较小的ID可能晚于较大的ID提交，因此遇到ID不连续时停在空洞之前，
+ * 空洞之后的事件已超过bank.outbox.relay.gap-timeout-millis仍未补齐时，视为对应事务已回滚，越过空洞继续投递
+ * 已投递的事件按ID删除，越过空洞后才提交的事件因此仍留在高水位之下，每批先投递这些事件，不会因推进高水位而被丢弃
+ * 投递语义为至少一次：投递成功后事务提交失败会导致重复投递，下游按事件ID去重
+ * 分库时每个分库有各自的发件箱与高水位，事件ID只在分库内有序，下游按分库与事件ID去重
+ */
+@Service
+@Slf4j
+public class AccountEventRelay {
+    private static final String OPERATION = "outboxRelay";
+
+    @Autowired
+    private AccountEventOutboxRepository accountEventOutboxRepository;
+
+    @Autowired
+    private List<AccountEventSink> sinks;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private DatabaseShardRouter databaseShardRouter;
+
+    @Autowired
+    private BankMetrics bankMetrics;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${bank.outbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bank.outbox.sink:listener}")
+    private String sinkType;
+
+    @Value("${bank.outbox.relay.batch-size:500}")
+    private int batchSize;
+
+    @Value("${bank.outbox.relay.gap-timeout-millis:5000}")
+    private long gapTimeoutMillis;
+
+    private AccountEventSink sink;
+
+    private Timer lagTimer;
+
+    private DistributionSummary batchSizeSummary;
+
+    @PostConstruct
+    public void init() {
+        sink = sinks.stream()
+                .filter(candidate -> candidate.type().equals(sinkType))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("unknown bank.outbox.sink: " + sinkType));
+        lagTimer = Timer.builder("bank.outbox.publish.lag")
+                .tag("sink", sinkType)
+                .register(meterRegistry);
+        batchSizeSummary = DistributionSummary.builder("bank.outbox.batch.size")
+                .tag("sink", sinkType)
+                .register(meterRegistry);
+        log.info("account event relay sink = {}, enabled = {}", sinkType, enabled);
+    }
+
+    @Scheduled(fixedDelayString = "${bank.outbox.relay.interval-millis:200}")
+    public void scheduledRelay() {
+        if (!enabled) {
+            return;
+        }
+        for (int shard = 0; shard < databaseShardRouter.getShardCount(); shard++) {
+            try {
+                // 积压较多时连续投递，直到不足一批
+                while (databaseShardRouter.callOnShard(shard, this::relay) >= batchSize) {
+                    log.info("account event backlog, continue relaying, shard = {}", shard);
+                }
+            } catch (Exception e) {
+                log.error("account event relay error, sink = {}, shard = {}", sinkType, shard, e);
+            }
+        }
+    }
+
+    /**
+     * 投递一批事件：先投递高水位之下迟到的事件，再投递高水位之后ID连续的事件
+     * @return 本次投递的事件数
+     */
+    public int relay() {
+        List<AccountEventPo> published = transactionTemplate.execute(status -> {
+            long lastId = accountEventOutboxRepository.lockCheckpoint();
+            List<AccountEventPo> late = accountEventOutboxRepository.findBefore(lastId, batchSize);
+            if (!late.isEmpty()) {
+                log.warn("account events committed after their gap was skipped, count = {}, ids = {} ~ {}",
+                        late.size(), late.get(0).getId(), late.get(late.size() - 1).getId());
+            }
+            List<AccountEventPo> events = new ArrayList<>(late);
+            events.addAll(publishable(lastId, accountEventOutboxRepository.findAfter(lastId, batchSize - late.size())));
+            if (events.isEmpty()) {
+                return events;
+            }
+            bankMetrics.recordPhase(OPERATION, "publish", () -> sink.publish(events));
+            long highWaterMark = Math.max(lastId, events.get(events.size() - 1).getId());
+            List<Long> deleted = new ArrayList<>(events.size());
+            for (AccountEventPo event : events) {
+                if (event.getId() != highWaterMark) {
+                    deleted.add(event.getId());
+                }
+            }
+            if (highWaterMark != lastId) {
+                accountEventOutboxRepository.updateCheckpoint(highWaterMark);
+                // 原高水位所在的一行已不再需要保留
+                deleted.add(lastId);
+            }
+            accountEventOutboxRepository.deleteByIds(deleted);
+            return events;
+        });
+        if (published == null || published.isEmpty()) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        published.forEach(event -> lagTimer.record(Math.max(0, now - event.getCreateTime()), TimeUnit.MILLISECONDS));
+        batchSizeSummary.record(published.size());
+        log.debug("account events relayed, count = {}, highWaterMark = {}", published.size(), published.get(published.size() - 1).getId());
+        return published.size();
+    }
+
+    /**
+     * 截取从高水位开始ID连续的部分，空洞之后的事件足够旧时才越过空洞
+     */
+    private List<AccountEventPo> publishable(long lastId, List<AccountEventPo> events) {
+        long settledBefore = System.currentTimeMillis() - gapTimeoutMillis;
+        List<AccountEventPo> result = new ArrayList<>(events.size());
+        long expectedId = lastId + 1;
+        for (AccountEventPo event : events) {
+            if (event.getId() != expectedId) {
+                if (event.getCreateTime() > settledBefore) {
+                    break;
+                }
+                log.warn("account event gap skipped, ids = {} ~ {}", expectedId, event.getId() - 1);
+            }
+            result.add(event);
+            expectedId = event.getId() + 1;
+        }
+        return result;
+    }
+}
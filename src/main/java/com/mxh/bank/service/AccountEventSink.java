@@ -0,0 +1,22 @@
+package com.mxh.bank.service;
+
+import com.mxh.bank.model.po.AccountEventPo;
+
+import java.util.List;
+
+/**
+ * 账户事件的投递目标，由配置项 bank.outbox.sink 选择
+ */
+public interface AccountEventSink {
+
+    /**
+     * 投递目标名称，对应 bank.outbox.sink 的取值
+     */
+    String type();
+
+    /**
+     * 按事件ID顺序投递一批事件，抛出异常时整批视为未投递，下次从同一位置重新投递
+     * 同一批可能被重复投递（如投递成功后推进高水位的事务提交失败），下游需按事件ID去重
+     */
+    void publish(List<AccountEventPo> events);
+}
@@ -0,0 +1,178 @@
+package com.mxh.bank.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mxh.bank.config.DatabaseShardRouter;
+import com.mxh.bank.exception.BusinessException;
+import com.mxh.bank.repository.AccountExportRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 账户流式导出：游标读到一行即写出一行，内存占用与账户总数无关
+ * 热点账户导出的是数据库余额，未回写的Redis流水不包含在内
+ * 分库时依次导出各分库，分库内按ID升序
+ */
+@Service
+@Slf4j
+public class AccountExportService {
+    private static final String CSV_HEADER = "account_number,account_holder_name,contact_number,balance,create_time";
+
+    @Autowired
+    private AccountExportRepository accountExportRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DatabaseShardRouter databaseShardRouter;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private TransactionTemplate readOnlyTransactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    @Getter
+    public enum ExportFormat {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+
+        private final String extension;
+
+        ExportFormat(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public static ExportFormat of(String format) {
+            for (ExportFormat value : values()) {
+                if (value.name().equalsIgnoreCase(format)) {
+                    return value;
+                }
+            }
+            throw new BusinessException("BM-013", "format");
+        }
+    }
+
+    /**
+     * 写出前校验参数，写出开始后响应头已发送，无法再返回错误信息
+     */
+    public void validate(Long createTimeFrom, Long createTimeTo) {
+        if (createTimeFrom != null && createTimeTo != null && createTimeFrom >= createTimeTo) {
+            throw new BusinessException("BM-013", "create_time_to");
+        }
+    }
+
+    /**
+     * 导出账户到输出流，调用方负责关闭输出流
+     * 在只读事务中执行，开启读写分离时长时间的扫描由从库承担
+     * @return 导出的账户数
+     */
+    public long export(ExportFormat format, Long createTimeFrom, Long createTimeTo, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        long[] count = new long[1];
+        long start = System.currentTimeMillis();
+        try {
+            if (format == ExportFormat.CSV) {
+                writer.write(CSV_HEADER);
+                writer.write('\n');
+                streamAccounts(createTimeFrom, createTimeTo, rs -> {
+                    writeCsvRow(writer, rs);
+                    count[0]++;
+                });
+            } else {
+                // 每行一个JSON对象，生成器不自动关闭底层输出流
+                JsonGenerator generator = objectMapper.getFactory().createGenerator(writer)
+                        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                streamAccounts(createTimeFrom, createTimeTo, rs -> {
+                    writeJsonRow(generator, rs);
+                    count[0]++;
+                });
+                generator.flush();
+            }
+        } catch (UncheckedIOException e) {
+            // 客户端断开连接时游标随之关闭
+            log.error("export accounts aborted, format = {}, exported = {}", format, count[0], e);
+            throw e.getCause();
+        }
+        writer.flush();
+        log.info("export accounts finish, format = {}, from = {}, to = {}, count = {}, cost = {}ms",
+                format, createTimeFrom, createTimeTo, count[0], System.currentTimeMillis() - start);
+        return count[0];
+    }
+
+    private void streamAccounts(Long createTimeFrom, Long createTimeTo, RowCallbackHandler handler) {
+        for (int shard = 0; shard < databaseShardRouter.getShardCount(); shard++) {
+            databaseShardRouter.runOnShard(shard, () -> readOnlyTransactionTemplate.executeWithoutResult(
+                    status -> accountExportRepository.streamAccounts(createTimeFrom, createTimeTo, handler)));
+        }
+    }
+
+    private void writeJsonRow(JsonGenerator generator, ResultSet rs) throws SQLException {
+        try {
+            generator.writeStartObject();
+            generator.writeStringField("account_number", rs.getString("account_number"));
+            generator.writeStringField("account_holder_name", rs.getString("account_holder_name"));
+            generator.writeStringField("contact_number", rs.getString("contact_number"));
+            generator.writeNumberField("balance", rs.getBigDecimal("balance"));
+            generator.writeNumberField("create_time", rs.getLong("create_time"));
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeCsvRow(Writer writer, ResultSet rs) throws SQLException {
+        try {
+            writer.write(escapeCsv(rs.getString("account_number")));
+            writer.write(',');
+            writer.write(escapeCsv(rs.getString("account_holder_name")));
+            writer.write(',');
+            writer.write(escapeCsv(rs.getString("contact_number")));
+            writer.write(',');
+            writer.write(rs.getBigDecimal("balance").toPlainString());
+            writer.write(',');
+            writer.write(String.valueOf(rs.getLong("create_time")));
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 字段包含逗号、引号或换行时用双引号包裹，内部引号转义为两个引号
+     */
+    private String escapeCsv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
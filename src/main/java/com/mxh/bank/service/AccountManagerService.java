@@ -1,23 +1,56 @@
 package com.mxh.bank.service;
 
+import com.mxh.bank.model.request.BatchCreateAccountRequestParam;
+import com.mxh.bank.model.request.BatchGetAccountRequestParam;
+import com.mxh.bank.model.request.BatchTransferRequestParam;
 import com.mxh.bank.model.request.CreateAccountRequestParam;
 import com.mxh.bank.model.request.TransferRequestParam;
 import com.mxh.bank.model.request.UpdateAccountRequestParam;
+import com.mxh.bank.model.response.AccountCursorPageResponse;
 import com.mxh.bank.model.response.AccountInfoResponse;
+import com.mxh.bank.model.response.BatchCreateAccountResponse;
+import com.mxh.bank.model.response.BatchGetAccountResponse;
+import com.mxh.bank.model.response.BatchTransferResponse;
 import com.mxh.bank.model.response.OperationResponse;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
 public interface AccountManagerService {
     AccountInfoResponse createAccount(CreateAccountRequestParam account);
 
+    /**
+     * 批量开户，已存在或请求内重复的账号创建失败，其余账号正常创建
+     */
+    BatchCreateAccountResponse createAccountsBatch(BatchCreateAccountRequestParam batchCreateAccountRequestParam);
+
     AccountInfoResponse getAccount(String accountNumber);
 
+    /**
+     * 批量查询账户，缓存命中的账户通过一次MGET获取，未命中的账户通过一次IN查询回源
+     * 结果按请求顺序返回，不存在的账号不报错，放入not_found
+     */
+    BatchGetAccountResponse getAccounts(BatchGetAccountRequestParam batchGetAccountRequestParam);
+
     AccountInfoResponse updateAccount(String accountNumber, UpdateAccountRequestParam updatedAccount);
 
     OperationResponse deleteAccount(String accountNumber);
 
     Page<AccountInfoResponse> listAllAccounts(Pageable pageable);
 
+    /**
+     * 按ID游标分页查询账户，不执行count查询，翻页耗时与页码无关
+     * @param cursor 上一页返回的游标，查询第一页时为空
+     * @param direction 排序方向，仅在查询第一页时生效，后续页沿用游标中的方向
+     */
+    AccountCursorPageResponse listAccountsByCursor(String cursor, int size, Sort.Direction direction);
+
     OperationResponse transferFunds(TransferRequestParam transferRequestParam);
+
+    /**
+     * 使用调用方预先分配的转账ID执行转账，流水、热点转账与跨库转账记录均使用该ID
+     */
+    OperationResponse transferFunds(TransferRequestParam transferRequestParam, long transferId);
+
+    BatchTransferResponse transferFundsBatch(BatchTransferRequestParam batchTransferRequestParam);
 }
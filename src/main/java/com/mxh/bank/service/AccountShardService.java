@@ -0,0 +1,257 @@
+package com.mxh.bank.service;
+
+import com.mxh.bank.exception.BusinessException;
+import com.mxh.bank.model.po.BankAccountPo;
+import com.mxh.bank.model.po.BankAccountShardPo;
+import com.mxh.bank.repository.AccountRepository;
+import com.mxh.bank.repository.AccountShardRepository;
+import com.mxh.bank.utils.AmountUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 分片账户：热点账户的余额拆分到多行子账户，分散单行更新的锁争用
+ * 入账随机落到一个分片；扣款优先选择余额充足的分片，均不足时回滚，在新事务中先锁主账户再锁全部分片合并扣款并重新均分余额
+ * 账户总余额始终为主账户余额与全部分片余额之和，因此入账落到主账户也不会丢失
+ * 加锁顺序：快速路径只更新分片，合并路径与合并分片均为主账户在前、分片按序号在后
+ */
+@Service
+@Slf4j
+public class AccountShardService {
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private AccountShardRepository accountShardRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private AccountEventOutboxService accountEventOutboxService;
+
+    @Autowired
+    private TransferLedgerService transferLedgerService;
+
+    @Value("${bank.sharded-account.enabled:false}")
+    private boolean enabled;
+
+    @Value("${bank.sharded-account.accounts:}")
+    private Set<String> shardedAccounts;
+
+    @Value("${bank.sharded-account.shards:8}")
+    private int shards;
+
+    /**
+     * 是否在启动时把已移出配置的账户合并回主账户
+     * 滚动发布期间旧节点仍按分片账户处理，需在全部节点使用新配置后单独开启一次
+     */
+    @Value("${bank.sharded-account.merge-on-startup:false}")
+    private boolean mergeOnStartup;
+
+    /**
+     * 启动时为已存在的分片账户补齐分片，开启merge-on-startup时把已移出配置的账户合并回主账户
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initShards() {
+        if (mergeOnStartup) {
+            for (String accountNumber : accountShardRepository.findDistinctAccountNumbers()) {
+                if (!isSharded(accountNumber)) {
+                    mergeShards(accountNumber);
+                }
+            }
+        }
+        if (enabled) {
+            shardedAccounts.forEach(this::createShards);
+        }
+    }
+
+    public boolean isSharded(String accountNumber) {
+        return enabled && shardedAccounts.contains(accountNumber);
+    }
+
+    /**
+     * 转账任意一方为分片账户时由本服务处理
+     */
+    public boolean handles(String fromAccountNo, String toAccountNo) {
+        return isSharded(fromAccountNo) || isSharded(toAccountNo);
+    }
+
+    /**
+     * 创建缺失的分片，已存在的分片保持不变
+     * 多个节点同时启动时可能并发创建，唯一约束冲突说明分片已由其他节点创建
+     */
+    public void createShards(String accountNumber) {
+        if (!accountRepository.existsByAccountNumber(accountNumber)) {
+            return;
+        }
+        for (int shardNo = 0; shardNo < shards; shardNo++) {
+            int no = shardNo;
+            if (accountShardRepository.existsByAccountNumberAndShardNo(accountNumber, no)) {
+                continue;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> accountShardRepository.save(BankAccountShardPo.builder()
+                        .accountNumber(accountNumber)
+                        .shardNo(no)
+                        .balance(new BigDecimal("0.00"))
+                        .build()));
+            } catch (DataIntegrityViolationException e) {
+                log.info("shard already created, accountNumber = {}, shardNo = {}", accountNumber, no);
+            }
+        }
+        log.info("create shards finish, accountNumber = {}, shards = {}", accountNumber, shards);
+    }
+
+    /**
+     * 删除账户时一并删除其分片，需在删除账户的事务中调用
+     */
+    public void deleteShards(String accountNumber) {
+        accountShardRepository.deleteByAccountNumber(accountNumber);
+    }
+
+    /**
+     * @return 主账户与全部分片的余额之和，账户不存在时返回null
+     */
+    public BigDecimal getBalance(String accountNumber) {
+        return accountShardRepository.findTotalBalance(accountNumber);
+    }
+
+    /**
+     * 执行转账，两条腿均为条件更新，按账号升序执行以保持与其他转账一致的行锁顺序
+     * 分片账户没有单个分片余额充足时回滚本次事务，释放快速路径已持有的分片行锁后在新事务中合并扣款，需在事务外调用
+     * @param transferId 转账ID，写入流水
+     */
+    public void transfer(long transferId, String fromAccountNo, String toAccountNo, BigDecimal amount) {
+        if (!Boolean.TRUE.equals(transactionTemplate.execute(status -> transfer(transferId, fromAccountNo, toAccountNo, amount, false, status)))) {
+            transactionTemplate.executeWithoutResult(status -> transfer(transferId, fromAccountNo, toAccountNo, amount, true, status));
+        }
+        log.info("sharded transfer finish, transferId = {}, from = {}, to = {}, amount = {}", transferId, fromAccountNo, toAccountNo, amount);
+    }
+
+    private boolean transfer(long transferId, String fromAccountNo, String toAccountNo, BigDecimal amount, boolean rebalance,
+                             TransactionStatus status) {
+        boolean debited;
+        if (fromAccountNo.compareTo(toAccountNo) < 0) {
+            debited = debit(fromAccountNo, amount, rebalance);
+            if (debited) {
+                credit(toAccountNo, amount);
+            }
+        } else {
+            credit(toAccountNo, amount);
+            debited = debit(fromAccountNo, amount, rebalance);
+        }
+        if (!debited) {
+            status.setRollbackOnly();
+            return false;
+        }
+        accountEventOutboxService.recordTransfer(fromAccountNo, toAccountNo, amount);
+        transferLedgerService.record(String.valueOf(transferId), fromAccountNo, toAccountNo, amount);
+        return true;
+    }
+
+    /**
+     * 分片账户的快速路径只尝试余额充足的分片，不触碰主账户行，避免与合并路径的加锁顺序相反
+     * @param rebalance 是否走合并路径
+     * @return 快速路径未能扣款时返回false
+     */
+    private boolean debit(String accountNumber, BigDecimal amount, boolean rebalance) {
+        if (!isSharded(accountNumber)) {
+            if (accountRepository.debitIfSufficient(accountNumber, amount) == 1) {
+                return true;
+            }
+            throw accountRepository.existsByAccountNumber(accountNumber)
+                    ? new BusinessException("BM-007")
+                    : new BusinessException("BM-005", accountNumber);
+        }
+        if (rebalance) {
+            rebalanceAndDebit(accountNumber, amount);
+            return true;
+        }
+        // 候选分片为快照读取，并发扣款后可能已不足，由条件更新最终判定
+        List<BankAccountShardPo> candidates = accountShardRepository.findByAccountNumberAndBalanceGreaterThanEqual(accountNumber, amount);
+        Collections.shuffle(candidates, ThreadLocalRandom.current());
+        for (BankAccountShardPo candidate : candidates) {
+            if (accountShardRepository.debitIfSufficient(accountNumber, candidate.getShardNo(), amount) == 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void credit(String accountNumber, BigDecimal amount) {
+        if (isSharded(accountNumber)
+                && accountShardRepository.credit(accountNumber, ThreadLocalRandom.current().nextInt(shards), amount) == 1) {
+            return;
+        }
+        // 分片尚未创建时入账到主账户
+        if (accountRepository.credit(accountNumber, amount) != 1) {
+            throw new BusinessException("BM-005", accountNumber);
+        }
+    }
+
+    /**
+     * 没有单个分片余额充足时，锁定主账户及全部分片，按总余额扣款后把剩余余额均分到各分片
+     * 主账户余额充足（如分片尚未创建时的入账）时直接从主账户扣除
+     * 先锁主账户再按分片序号加锁，与其他合并操作的加锁顺序一致
+     */
+    private void rebalanceAndDebit(String accountNumber, BigDecimal amount) {
+        BankAccountPo account = accountRepository.findWithLockByAccountNumber(accountNumber)
+                .orElseThrow(() -> new BusinessException("BM-005", accountNumber));
+        if (account.getBalance().compareTo(amount) >= 0) {
+            account.setBalance(account.getBalance().subtract(amount));
+            return;
+        }
+        List<BankAccountShardPo> shardList = accountShardRepository.findWithLockByAccountNumberOrderByShardNoAsc(accountNumber);
+        BigDecimal total = shardList.stream()
+                .map(BankAccountShardPo::getBalance)
+                .reduce(account.getBalance(), BigDecimal::add);
+        if (total.compareTo(amount) < 0) {
+            throw new BusinessException("BM-007");
+        }
+        BigDecimal remaining = total.subtract(amount);
+        if (shardList.isEmpty()) {
+            account.setBalance(remaining);
+            return;
+        }
+        long remainingCents = AmountUtils.toCents(remaining);
+        long each = remainingCents / shardList.size();
+        long extra = remainingCents % shardList.size();
+        for (int i = 0; i < shardList.size(); i++) {
+            shardList.get(i).setBalance(AmountUtils.fromCents(each + (i < extra ? 1 : 0)));
+        }
+        account.setBalance(new BigDecimal("0.00"));
+        log.info("rebalance shards, accountNumber = {}, amount = {}, remaining = {}, shards = {}",
+                accountNumber, amount, remaining, shardList.size());
+    }
+
+    /**
+     * 把全部分片余额合并回主账户并删除分片
+     */
+    private void mergeShards(String accountNumber) {
+        transactionTemplate.executeWithoutResult(status -> {
+            BankAccountPo account = accountRepository.findWithLockByAccountNumber(accountNumber).orElse(null);
+            List<BankAccountShardPo> shardList = accountShardRepository.findWithLockByAccountNumberOrderByShardNoAsc(accountNumber);
+            if (account != null) {
+                account.setBalance(shardList.stream()
+                        .map(BankAccountShardPo::getBalance)
+                        .reduce(account.getBalance(), BigDecimal::add));
+            }
+            accountShardRepository.deleteByAccountNumber(accountNumber);
+        });
+        log.info("merge shards finish, accountNumber = {}", accountNumber);
+    }
+}
@@ -0,0 +1,518 @@
+package com.mxh.bank.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mxh.bank.config.DatabaseShardRouter;
+import com.mxh.bank.exception.BusinessException;
+import com.mxh.bank.model.po.AccountEventPo;
+import com.mxh.bank.model.po.AsyncTransferPo;
+import com.mxh.bank.model.po.BankAccountPo;
+import com.mxh.bank.model.po.TransferLedgerPo;
+import com.mxh.bank.model.request.TransferRequestParam;
+import com.mxh.bank.model.response.TransferStatusResponse;
+import com.mxh.bank.model.response.TransferSubmitResponse;
+import com.mxh.bank.repository.AccountBatchRepository;
+import com.mxh.bank.repository.AccountRepository;
+import com.mxh.bank.repository.AsyncTransferRepository;
+import com.mxh.bank.utils.IdUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步转账：提交时做参数校验，在转出账户所在分库写入 async_transfer（pending）后入队，立即返回转账ID，由后台线程异步记账
+ * 按转出账号哈希路由到N个队列，每个队列只有一个写线程，同一账户的扣款因此在单线程内顺序执行，不再争用账户锁
+ * 写线程每次取出一组转账，在内存中按顺序校验余额后把各账户的净变动与各笔转账的终态合并到一个事务中提交
+ * 热点账户、分片账户、跨库转账与合并提交失败的转账逐笔处理：先置为processing再以同一转账ID执行，流水与热点、跨库转账记录均使用该ID
+ * 进程异常退出时尚未处理的转账保持pending，由定时任务在超过 bank.transfer.async.pending-timeout-millis 后重新入队；
+ * 逐笔处理中断的转账无法确定是否已记账，超时后置为unknown，可按转账ID查询流水对账
+ */
+@Service
+@Slf4j
+public class AsyncTransferService {
+    public static final String STATUS_PENDING = AsyncTransferPo.STATUS_PENDING;
+    public static final String STATUS_SUCCESS = AsyncTransferPo.STATUS_SUCCESS;
+    public static final String STATUS_FAILED = AsyncTransferPo.STATUS_FAILED;
+    public static final String STATUS_UNKNOWN = AsyncTransferPo.STATUS_UNKNOWN;
+    private static final String OPERATION = "asyncTransfer";
+
+    @Autowired
+    private AccountManagerService accountManagerService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private AccountBatchRepository accountBatchRepository;
+
+    @Autowired
+    private AsyncTransferRepository asyncTransferRepository;
+
+    @Autowired
+    private AccountCacheService accountCacheService;
+
+    @Autowired
+    private HotBalanceService hotBalanceService;
+
+    @Autowired
+    private AccountShardService accountShardService;
+
+    @Autowired
+    private TransferLedgerService transferLedgerService;
+
+    @Autowired
+    private AccountEventOutboxService accountEventOutboxService;
+
+    @Autowired
+    private DatabaseShardRouter databaseShardRouter;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private BankMetrics bankMetrics;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${bank.transfer.async.enabled:false}")
+    private boolean enabled;
+
+    @Value("${bank.transfer.async.partitions:16}")
+    private int partitions;
+
+    @Value("${bank.transfer.async.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${bank.transfer.async.group-size:200}")
+    private int groupSize;
+
+    @Value("${bank.transfer.async.status-ttl-millis:600000}")
+    private long statusTtlMillis;
+
+    @Value("${bank.transfer.async.pending-timeout-millis:60000}")
+    private long pendingTimeoutMillis;
+
+    @Value("${bank.transfer.async.recovery-batch-size:1000}")
+    private int recoveryBatchSize;
+
+    private final List<BlockingQueue<AsyncTransferPo>> queues = new ArrayList<>();
+
+    private final List<Thread> workers = new ArrayList<>();
+
+    private volatile boolean running;
+
+    private Counter rejectedCounter;
+
+    private Counter requeuedCounter;
+
+    private Counter unknownCounter;
+
+    private DistributionSummary groupSizeSummary;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < partitions; i++) {
+            BlockingQueue<AsyncTransferPo> queue = new ArrayBlockingQueue<>(queueCapacity);
+            queues.add(queue);
+            Thread worker = new Thread(() -> runWorker(queue), "async-transfer-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+
+        Gauge.builder("bank.transfer.async.queue.size", queues, list -> list.stream().mapToInt(BlockingQueue::size).sum())
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("bank.transfer.async.rejected").register(meterRegistry);
+        requeuedCounter = Counter.builder("bank.transfer.async.recovered").tag("outcome", "requeued").register(meterRegistry);
+        unknownCounter = Counter.builder("bank.transfer.async.recovered").tag("outcome", "unknown").register(meterRegistry);
+        groupSizeSummary = DistributionSummary.builder("bank.transfer.async.group.size").register(meterRegistry);
+        log.info("async transfer started, partitions = {}, queueCapacity = {}, groupSize = {}", partitions, queueCapacity, groupSize);
+    }
+
+    /**
+     * 停止接收新的转账，等待写线程处理完已入队的转账后退出，未处理的转账保持pending，由恢复任务重新入队
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        for (Thread worker : workers) {
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        int remaining = queues.stream().mapToInt(BlockingQueue::size).sum();
+        if (remaining > 0) {
+            log.warn("async transfer stopped with pending transfers, remaining = {}", remaining);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 提交转账，转账记录写入数据库并入队成功后返回，队列已满时撤销记录并抛出BM-015
+     * 账户是否存在与余额是否充足在记账时校验，结果通过getStatus查询
+     */
+    public TransferSubmitResponse submit(TransferRequestParam transferRequestParam) {
+        String fromAccountNo = transferRequestParam.getFromAccount();
+        String toAccountNo = transferRequestParam.getToAccount();
+        if (fromAccountNo.equals(toAccountNo)) {
+            throw new BusinessException("BM-006");
+        }
+        if (!running) {
+            throw new BusinessException("BM-015");
+        }
+        long now = System.currentTimeMillis();
+        AsyncTransferPo transfer = AsyncTransferPo.builder()
+                .transferId(IdUtils.getNextId())
+                .fromAccount(fromAccountNo)
+                .toAccount(toAccountNo)
+                .amount(transferRequestParam.getAmount())
+                .status(AsyncTransferPo.STATUS_PENDING)
+                .createTime(now)
+                .updateTime(now)
+                .build();
+        databaseShardRouter.runOnShardOf(fromAccountNo, () -> asyncTransferRepository.insert(transfer));
+        TransferSubmitResponse response = TransferSubmitResponse.builder()
+                .transferId(String.valueOf(transfer.getTransferId()))
+                .status(STATUS_PENDING)
+                .build();
+        if (!enqueue(transfer)) {
+            rejectedCounter.increment();
+            try {
+                databaseShardRouter.runOnShardOf(fromAccountNo,
+                        () -> asyncTransferRepository.delete(transfer.getTransferId(), AsyncTransferPo.STATUS_PENDING));
+            } catch (RuntimeException e) {
+                // 记录已持久化且无法撤销，按已受理返回，由恢复任务处理
+                log.error("revoke rejected async transfer error, transferId = {}", transfer.getTransferId(), e);
+                return response;
+            }
+            throw new BusinessException("BM-015");
+        }
+        return response;
+    }
+
+    /**
+     * 查询转账状态，转账记录在任一节点受理后即可在所有节点查询，终态记录保留 bank.transfer.async.status-ttl-millis
+     */
+    public TransferStatusResponse getStatus(String transferId) {
+        long id = parseTransferId(transferId);
+        // 查询时只有转账ID，无法确定转出账户所在分库
+        AsyncTransferPo transfer = databaseShardRouter.scatter(shard -> asyncTransferRepository.findByTransferId(id)).stream()
+                .filter(Objects::nonNull)
+                .findFirst()
+                .orElseThrow(() -> new BusinessException("BM-016", transferId));
+        // processing对调用方而言仍在处理中
+        String status = AsyncTransferPo.STATUS_PROCESSING.equals(transfer.getStatus()) ? STATUS_PENDING : transfer.getStatus();
+        String errorCode = transfer.getErrorCode();
+        return TransferStatusResponse.builder()
+                .transferId(transferId)
+                .fromAccount(transfer.getFromAccount())
+                .toAccount(transfer.getToAccount())
+                .amount(transfer.getAmount())
+                .status(status)
+                .errorCode(errorCode)
+                .errorMsg(errorCode == null ? null : messageService.getMessage(errorCode, readArgs(transfer.getErrorArgs())))
+                .createTime(transfer.getCreateTime())
+                .finishTime(STATUS_PENDING.equals(status) ? null : transfer.getUpdateTime())
+                .build();
+    }
+
+    /**
+     * 在各分库上把超时仍为pending的转账重新入队，超时仍为processing的转账置为unknown，并清理过期的终态记录
+     * 重新入队的转账若仍在其他队列中排队，两次处理中只有一次能把状态从pending推进，不会重复记账
+     */
+    @Scheduled(fixedDelayString = "${bank.transfer.async.recovery-interval-millis:5000}")
+    public void recover() {
+        if (!running) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (int shard = 0; shard < databaseShardRouter.getShardCount(); shard++) {
+            try {
+                databaseShardRouter.runOnShard(shard, () -> recoverShard(now));
+            } catch (RuntimeException e) {
+                log.error("recover async transfers error, shard = {}", shard, e);
+            }
+        }
+    }
+
+    private void recoverShard(long now) {
+        long staleBefore = now - pendingTimeoutMillis;
+        for (AsyncTransferPo transfer : asyncTransferRepository.findByStatusBefore(AsyncTransferPo.STATUS_PENDING, staleBefore, recoveryBatchSize)) {
+            if (!enqueue(transfer)) {
+                break;
+            }
+            requeuedCounter.increment();
+            log.warn("async transfer requeued, transferId = {}", transfer.getTransferId());
+        }
+        for (AsyncTransferPo transfer : asyncTransferRepository.findByStatusBefore(AsyncTransferPo.STATUS_PROCESSING, staleBefore, recoveryBatchSize)) {
+            String transferId = String.valueOf(transfer.getTransferId());
+            if (asyncTransferRepository.updateStatus(transfer.getTransferId(), AsyncTransferPo.STATUS_PROCESSING,
+                    AsyncTransferPo.STATUS_UNKNOWN, "BM-018", writeArgs(new Object[]{transferId})) == 1) {
+                unknownCounter.increment();
+                log.error("async transfer interrupted while processing, marked unknown, transferId = {}, from = {}, to = {}, amount = {}",
+                        transferId, transfer.getFromAccount(), transfer.getToAccount(), transfer.getAmount());
+            }
+        }
+        int deleted = asyncTransferRepository.deleteFinishedBefore(now - statusTtlMillis);
+        if (deleted > 0) {
+            log.info("expired async transfers deleted, count = {}", deleted);
+        }
+    }
+
+    private long parseTransferId(String transferId) {
+        try {
+            return Long.parseLong(transferId);
+        } catch (NumberFormatException e) {
+            throw new BusinessException("BM-016", transferId);
+        }
+    }
+
+    private boolean enqueue(AsyncTransferPo transfer) {
+        return queues.get(Math.floorMod(transfer.getFromAccount().hashCode(), partitions)).offer(transfer);
+    }
+
+    private void runWorker(BlockingQueue<AsyncTransferPo> queue) {
+        List<AsyncTransferPo> group = new ArrayList<>(groupSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                AsyncTransferPo first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                queue.drainTo(group, groupSize - 1);
+                groupSizeSummary.record(group.size());
+                applyGroup(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // 未推进的转账保持原状态，由恢复任务处理
+                log.error("async transfer group error, size = {}", group.size(), e);
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    /**
+     * 热点账户、分片账户与跨库转账有各自的记账路径，逐笔处理；其余转账按分库合并提交，合并提交失败时退回逐笔处理
+     */
+    private void applyGroup(List<AsyncTransferPo> group) {
+        Map<Integer, List<AsyncTransferPo>> batchable = new TreeMap<>();
+        for (AsyncTransferPo task : group) {
+            if (hotBalanceService.handles(task.getFromAccount(), task.getToAccount())
+                    || accountShardService.handles(task.getFromAccount(), task.getToAccount())
+                    || !databaseShardRouter.isSameShard(task.getFromAccount(), task.getToAccount())) {
+                applyIndividually(task);
+            } else {
+                batchable.computeIfAbsent(databaseShardRouter.shardOf(task.getFromAccount()), shard -> new ArrayList<>()).add(task);
+            }
+        }
+        batchable.forEach(this::applyBatchable);
+    }
+
+    /**
+     * 只有一笔转账时同样走合并提交，使记账与状态更新在同一事务中完成
+     */
+    private void applyBatchable(int shard, List<AsyncTransferPo> batchable) {
+        if (batchable.isEmpty()) {
+            return;
+        }
+        try {
+            bankMetrics.recordPhase(OPERATION, "group_commit", () -> databaseShardRouter.runOnShard(shard, () -> commitGroup(batchable)));
+        } catch (RuntimeException e) {
+            log.warn("async transfer group commit failed, fall back to single transfers, size = {}, cause = {}",
+                    batchable.size(), e.getMessage());
+            batchable.forEach(this::applyIndividually);
+        }
+    }
+
+    /**
+     * 以一次查询得到的余额为起点按提交顺序逐笔校验，再把各账户的净变动按账号顺序在一个事务中提交
+     * 更新条件要求余额加上净变动不为负，期间若有其他路径扣款导致条件不满足，整组回滚后由调用方逐笔重试
+     * 事务中先锁定各笔转账记录，部分转账已被恢复后的重复执行处理时同样整组回滚，逐笔重试时跳过已处理的转账
+     */
+    private void commitGroup(List<AsyncTransferPo> group) {
+        TreeSet<String> accountNumbers = new TreeSet<>();
+        for (AsyncTransferPo task : group) {
+            accountNumbers.add(task.getFromAccount());
+            accountNumbers.add(task.getToAccount());
+        }
+        Map<String, BigDecimal> balances = new HashMap<>(accountNumbers.size() * 2);
+        for (BankAccountPo account : accountRepository.findByAccountNumberIn(accountNumbers)) {
+            balances.put(account.getAccountNumber(), account.getBalance());
+        }
+
+        TreeMap<String, BigDecimal> deltas = new TreeMap<>();
+        Map<Long, BusinessException> rejected = new HashMap<>();
+        for (AsyncTransferPo task : group) {
+            BigDecimal fromBalance = balances.get(task.getFromAccount());
+            if (fromBalance == null) {
+                rejected.put(task.getTransferId(), new BusinessException("BM-005", task.getFromAccount()));
+                continue;
+            }
+            if (!balances.containsKey(task.getToAccount())) {
+                rejected.put(task.getTransferId(), new BusinessException("BM-005", task.getToAccount()));
+                continue;
+            }
+            if (fromBalance.compareTo(task.getAmount()) < 0) {
+                rejected.put(task.getTransferId(), new BusinessException("BM-007"));
+                continue;
+            }
+            balances.put(task.getFromAccount(), fromBalance.subtract(task.getAmount()));
+            balances.merge(task.getToAccount(), task.getAmount(), BigDecimal::add);
+            deltas.merge(task.getFromAccount(), task.getAmount().negate(), BigDecimal::add);
+            deltas.merge(task.getToAccount(), task.getAmount(), BigDecimal::add);
+        }
+        deltas.values().removeIf(delta -> delta.signum() == 0);
+
+        List<AsyncTransferPo> accepted = group.stream()
+                .filter(task -> !rejected.containsKey(task.getTransferId()))
+                .toList();
+        List<AccountEventPo> events = accepted.stream()
+                .map(task -> accountEventOutboxService.transferEvent(task.getFromAccount(), task.getToAccount(), task.getAmount()))
+                .toList();
+        List<TransferLedgerPo> ledgerEntries = accepted.stream()
+                .flatMap(task -> transferLedgerService.entries(String.valueOf(task.getTransferId()),
+                        task.getFromAccount(), task.getToAccount(), task.getAmount()).stream())
+                .toList();
+        List<AsyncTransferPo> results = group.stream().map(task -> {
+            BusinessException exception = rejected.get(task.getTransferId());
+            return exception == null
+                    ? result(task, AsyncTransferPo.STATUS_SUCCESS, null, null)
+                    : result(task, AsyncTransferPo.STATUS_FAILED, exception.getErrorCode(), exception.getArgs());
+        }).toList();
+        List<Long> transferIds = group.stream().map(AsyncTransferPo::getTransferId).toList();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (asyncTransferRepository.lockPending(transferIds) != group.size()) {
+                throw new IllegalStateException("transfer status changed concurrently");
+            }
+            if (!accountBatchRepository.applyBalanceDeltas(deltas)) {
+                throw new IllegalStateException("balance changed concurrently");
+            }
+            accountEventOutboxService.record(events);
+            transferLedgerService.record(ledgerEntries);
+            asyncTransferRepository.batchUpdateStatus(results);
+        });
+
+        deltas.keySet().forEach(accountCacheService::evict);
+        log.info("async transfer group commit finish, transfers = {}, rejected = {}, accounts = {}",
+                group.size(), rejected.size(), deltas.size());
+    }
+
+    /**
+     * 先把转账从pending置为processing，已被其他执行者处理时跳过；以转账ID执行转账后写入终态
+     * 热点与跨库转账返回BM-018时仍在由各自的恢复任务推进，结果未知，置为unknown
+     */
+    private void applyIndividually(AsyncTransferPo task) {
+        long transferId = task.getTransferId();
+        String fromAccountNo = task.getFromAccount();
+        if (databaseShardRouter.callOnShardOf(fromAccountNo, () -> asyncTransferRepository.updateStatus(transferId,
+                AsyncTransferPo.STATUS_PENDING, AsyncTransferPo.STATUS_PROCESSING, null, null)) != 1) {
+            return;
+        }
+        TransferRequestParam param = new TransferRequestParam();
+        param.setFromAccount(fromAccountNo);
+        param.setToAccount(task.getToAccount());
+        param.setAmount(task.getAmount());
+        AsyncTransferPo result = execute(task, param);
+        try {
+            if (databaseShardRouter.callOnShardOf(fromAccountNo, () -> asyncTransferRepository.updateStatus(transferId,
+                    AsyncTransferPo.STATUS_PROCESSING, result.getStatus(), result.getErrorCode(), result.getErrorArgs())) != 1) {
+                log.warn("async transfer finished after marked unknown, transferId = {}, status = {}", transferId, result.getStatus());
+            }
+        } catch (RuntimeException e) {
+            // 保持processing，超时后由恢复任务置为unknown
+            log.error("update async transfer status error, transferId = {}, status = {}", transferId, result.getStatus(), e);
+        }
+    }
+
+    private AsyncTransferPo execute(AsyncTransferPo task, TransferRequestParam param) {
+        try {
+            accountManagerService.transferFunds(param, task.getTransferId());
+            return result(task, AsyncTransferPo.STATUS_SUCCESS, null, null);
+        } catch (BusinessException e) {
+            String status = "BM-018".equals(e.getErrorCode()) ? AsyncTransferPo.STATUS_UNKNOWN : AsyncTransferPo.STATUS_FAILED;
+            return result(task, status, e.getErrorCode(), e.getArgs());
+        } catch (RuntimeException e) {
+            log.error("async transfer error, transferId = {}, from = {}, to = {}",
+                    task.getTransferId(), task.getFromAccount(), task.getToAccount(), e);
+            return result(task, AsyncTransferPo.STATUS_FAILED, "BM-001", null);
+        }
+    }
+
+    private AsyncTransferPo result(AsyncTransferPo task, String status, String errorCode, Object[] errorArgs) {
+        return AsyncTransferPo.builder()
+                .transferId(task.getTransferId())
+                .status(status)
+                .errorCode(errorCode)
+                .errorArgs(writeArgs(errorArgs))
+                .build();
+    }
+
+    private String writeArgs(Object[] args) {
+        if (args == null || args.length == 0) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(Arrays.stream(args).map(String::valueOf).toList());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Object[] readArgs(String args) {
+        if (args == null) {
+            return new Object[0];
+        }
+        try {
+            return objectMapper.readValue(args, String[].class);
+        } catch (JsonProcessingException e) {
+            log.error("invalid async transfer error args = {}", args);
+            return new Object[0];
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.mxh.bank.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * 账户服务的耗时指标：operation为接口方法整体耗时，phase为方法内各阶段（加锁、事务等）的耗时
+ * 两者的operation标签均为AccountManagerService的方法名，便于按接口拆解延迟来源
+ * 当前线程所在的接口方法由OperationMetricsAspect登记，下层组件通过@PhaseTimed按该方法记录阶段耗时
+ */
+@Component
+public class BankMetrics {
+    public static final String OPERATION_TIMER = "bank.account.operation";
+    public static final String PHASE_TIMER = "bank.account.phase";
+
+    private static final ThreadLocal<String> CURRENT_OPERATION = new ThreadLocal<>();
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 登记当前线程正在执行的接口方法
+     * @return 之前登记的接口方法，退出时传给exitOperation恢复
+     */
+    public String enterOperation(String operation) {
+        String previous = CURRENT_OPERATION.get();
+        CURRENT_OPERATION.set(operation);
+        return previous;
+    }
+
+    public void exitOperation(String previous) {
+        if (previous == null) {
+            CURRENT_OPERATION.remove();
+        } else {
+            CURRENT_OPERATION.set(previous);
+        }
+    }
+
+    /**
+     * @return 当前线程正在执行的接口方法，不在接口方法内时返回null
+     */
+    public String currentOperation() {
+        return CURRENT_OPERATION.get();
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    /**
+     * @param outcome 成功为success，业务异常为错误码，其他异常为error
+     */
+    public void stopOperation(Timer.Sample sample, String operation, String outcome) {
+        sample.stop(meterRegistry.timer(OPERATION_TIMER, "operation", operation, "outcome", outcome));
+    }
+
+    public void stopPhase(Timer.Sample sample, String operation, String phase) {
+        sample.stop(meterRegistry.timer(PHASE_TIMER, "operation", operation, "phase", phase));
+    }
+
+    public <T> T recordPhase(String operation, String phase, Supplier<T> action) {
+        Timer.Sample sample = start();
+        try {
+            return action.get();
+        } finally {
+            stopPhase(sample, operation, phase);
+        }
+    }
+
+    public void recordPhase(String operation, String phase, Runnable action) {
+        Timer.Sample sample = start();
+        try {
+            action.run();
+        } finally {
+            stopPhase(sample, operation, phase);
+        }
+    }
+
+    /**
+     * 按当前线程登记的接口方法记录阶段耗时，不在接口方法内时只执行不计时
+     */
+    public <T> T recordCurrentPhase(String phase, Supplier<T> action) {
+        String operation = currentOperation();
+        return operation == null ? action.get() : recordPhase(operation, phase, action);
+    }
+
+    public void recordCurrentPhase(String phase, Runnable action) {
+        String operation = currentOperation();
+        if (operation == null) {
+            action.run();
+        } else {
+            recordPhase(operation, phase, action);
+        }
+    }
+}
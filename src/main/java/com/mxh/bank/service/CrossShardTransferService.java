@@ -0,0 +1,237 @@
+package com.mxh.bank.service;
+
+import com.mxh.bank.config.DatabaseShardRouter;
+import com.mxh.bank.exception.BusinessException;
+import com.mxh.bank.model.po.PendingTransferPo;
+import com.mxh.bank.repository.AccountRepository;
+import com.mxh.bank.repository.PendingTransferRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 跨库转账：转出与转入账户位于不同分库时无法在一个本地事务中完成，拆为三个本地事务依次执行
+ * 1. 转出库：条件扣款并写入 pending_transfer（PENDING）
+ * 2. 转入库：以转账ID为主键写入 transfer_credit 入账标记并入账，账户不存在时标记为ABORTED；重复执行时以已有标记为准
+ * 3. 转出库：入账成功时置为COMPLETED并写入转账事件与流水，入账失败时置为COMPENSATED并退回扣款
+ * 第2、3步因数据库异常中断时转账保持PENDING并返回BM-018，由定时任务在超过 bank.sharding.pending-timeout-millis 后从第2步起重新执行
+ * 完成前资金处于在途状态：已从转出账户扣除、尚未到达转入账户，全部账户余额与PENDING转账金额之和守恒
+ */
+@Service
+@Slf4j
+public class CrossShardTransferService {
+    private static final String OPERATION = "crossShardTransfer";
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private PendingTransferRepository pendingTransferRepository;
+
+    @Autowired
+    private AccountEventOutboxService accountEventOutboxService;
+
+    @Autowired
+    private AccountCacheService accountCacheService;
+
+    @Autowired
+    private TransferLedgerService transferLedgerService;
+
+    @Autowired
+    private DatabaseShardRouter databaseShardRouter;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private BankMetrics bankMetrics;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${bank.sharding.pending-timeout-millis:30000}")
+    private long pendingTimeoutMillis;
+
+    @Value("${bank.sharding.recovery-batch-size:100}")
+    private int recoveryBatchSize;
+
+    private Counter completedCounter;
+
+    private Counter compensatedCounter;
+
+    private Counter pendingCounter;
+
+    @PostConstruct
+    public void init() {
+        completedCounter = Counter.builder("bank.sharding.cross.transfer").tag("outcome", "completed").register(meterRegistry);
+        compensatedCounter = Counter.builder("bank.sharding.cross.transfer").tag("outcome", "compensated").register(meterRegistry);
+        pendingCounter = Counter.builder("bank.sharding.cross.transfer").tag("outcome", "pending").register(meterRegistry);
+    }
+
+    /**
+     * 执行一笔跨库转账，成功后写入转账流水；调用方需持有两个账户的锁，返回或抛出异常后均需清除两个账户的缓存
+     * @param transferId 转账ID，同时作为 pending_transfer 的主键与流水的转账ID
+     */
+    public void transfer(long transferId, String fromAccountNo, String toAccountNo, BigDecimal amount) {
+        // 持有账户锁期间转入账户不会被删除，提前校验可避免绝大多数补偿
+        if (!databaseShardRouter.callOnShardOf(toAccountNo, () -> accountRepository.existsByAccountNumber(toAccountNo))) {
+            throw new BusinessException("BM-005", toAccountNo);
+        }
+        long now = System.currentTimeMillis();
+        PendingTransferPo transfer = PendingTransferPo.builder()
+                .transferId(transferId)
+                .fromAccount(fromAccountNo)
+                .toAccount(toAccountNo)
+                .amount(amount)
+                .status(PendingTransferPo.STATUS_PENDING)
+                .createTime(now)
+                .updateTime(now)
+                .build();
+        bankMetrics.recordPhase(OPERATION, "debit", () -> debit(transfer));
+
+        Resolution resolution;
+        try {
+            resolution = resolve(transfer);
+        } catch (RuntimeException e) {
+            pendingCounter.increment();
+            log.error("cross shard transfer left pending, transferId = {}, from = {}, to = {}, amount = {}",
+                    transfer.getTransferId(), fromAccountNo, toAccountNo, amount, e);
+            throw new BusinessException("BM-018", String.valueOf(transfer.getTransferId()));
+        }
+        if (PendingTransferPo.STATUS_COMPENSATED.equals(resolution.status())) {
+            throw new BusinessException("BM-005", toAccountNo);
+        }
+        log.info("cross shard transfer finish, transferId = {}, from = {}, to = {}, amount = {}",
+                transfer.getTransferId(), fromAccountNo, toAccountNo, amount);
+    }
+
+    /**
+     * 在各分库上查找超时未完成的转账并重新推进
+     */
+    @Scheduled(fixedDelayString = "${bank.sharding.recovery-interval-millis:5000}")
+    public void recover() {
+        if (databaseShardRouter.getShardCount() == 1) {
+            return;
+        }
+        long createdBefore = System.currentTimeMillis() - pendingTimeoutMillis;
+        for (int shard = 0; shard < databaseShardRouter.getShardCount(); shard++) {
+            List<PendingTransferPo> transfers;
+            try {
+                transfers = databaseShardRouter.callOnShard(shard,
+                        () -> pendingTransferRepository.findPendingBefore(createdBefore, recoveryBatchSize));
+            } catch (RuntimeException e) {
+                log.error("query pending transfers error, shard = {}", shard, e);
+                continue;
+            }
+            for (PendingTransferPo transfer : transfers) {
+                try {
+                    recover(transfer);
+                } catch (RuntimeException e) {
+                    log.error("recover pending transfer error, transferId = {}", transfer.getTransferId(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 从入账一步起推进一笔转账直至终态
+     * 恢复时不持有账户锁：入账与退款都是增量更新，与其他转账并发执行不影响余额的正确性
+     * @return 终态 COMPLETED 或 COMPENSATED
+     */
+    public String recover(PendingTransferPo transfer) {
+        Resolution resolution = resolve(transfer);
+        accountCacheService.evict(transfer.getFromAccount());
+        accountCacheService.evict(transfer.getToAccount());
+        log.warn("pending transfer recovered, transferId = {}, status = {}", transfer.getTransferId(), resolution.status());
+        return resolution.status();
+    }
+
+    private void debit(PendingTransferPo transfer) {
+        String fromAccountNo = transfer.getFromAccount();
+        databaseShardRouter.runOnShardOf(fromAccountNo, () -> transactionTemplate.executeWithoutResult(status -> {
+            if (accountRepository.debitIfSufficient(fromAccountNo, transfer.getAmount()) != 1) {
+                if (!accountRepository.existsByAccountNumber(fromAccountNo)) {
+                    throw new BusinessException("BM-005", fromAccountNo);
+                }
+                throw new BusinessException("BM-007");
+            }
+            pendingTransferRepository.insert(transfer);
+        }));
+    }
+
+    /**
+     * 入账与终态更新均可重复执行，只有把状态从PENDING推进到终态的执行者写入事件、流水与计数
+     */
+    private Resolution resolve(PendingTransferPo transfer) {
+        String creditStatus = bankMetrics.recordPhase(OPERATION, "credit", () -> credit(transfer));
+        Resolution resolution = bankMetrics.recordPhase(OPERATION, "finish", () -> finish(transfer, creditStatus));
+        if (resolution.transitioned()) {
+            if (PendingTransferPo.STATUS_COMPLETED.equals(resolution.status())) {
+                completedCounter.increment();
+            } else {
+                compensatedCounter.increment();
+            }
+        }
+        return resolution;
+    }
+
+    private String credit(PendingTransferPo transfer) {
+        return databaseShardRouter.callOnShardOf(transfer.getToAccount(), () -> {
+            try {
+                return transactionTemplate.execute(status -> {
+                    pendingTransferRepository.insertCredit(transfer, PendingTransferPo.CREDIT_APPLIED);
+                    if (accountRepository.credit(transfer.getToAccount(), transfer.getAmount()) == 1) {
+                        return PendingTransferPo.CREDIT_APPLIED;
+                    }
+                    pendingTransferRepository.updateCreditStatus(transfer.getTransferId(), PendingTransferPo.CREDIT_ABORTED);
+                    return PendingTransferPo.CREDIT_ABORTED;
+                });
+            } catch (DuplicateKeyException e) {
+                // 已执行过入账，以首次执行的结果为准
+                String creditStatus = pendingTransferRepository.findCreditStatus(transfer.getTransferId());
+                if (creditStatus == null) {
+                    throw new IllegalStateException("credit marker not found, transferId = " + transfer.getTransferId());
+                }
+                return creditStatus;
+            }
+        });
+    }
+
+    private Resolution finish(PendingTransferPo transfer, String creditStatus) {
+        return databaseShardRouter.callOnShardOf(transfer.getFromAccount(), () -> transactionTemplate.execute(status -> {
+            long transferId = transfer.getTransferId();
+            if (PendingTransferPo.CREDIT_APPLIED.equals(creditStatus)) {
+                boolean transitioned = pendingTransferRepository.updateStatus(transferId,
+                        PendingTransferPo.STATUS_PENDING, PendingTransferPo.STATUS_COMPLETED) == 1;
+                if (transitioned) {
+                    accountEventOutboxService.recordTransfer(transfer.getFromAccount(), transfer.getToAccount(), transfer.getAmount());
+                    transferLedgerService.record(String.valueOf(transferId), transfer.getFromAccount(), transfer.getToAccount(), transfer.getAmount());
+                }
+                return new Resolution(PendingTransferPo.STATUS_COMPLETED, transitioned);
+            }
+            boolean transitioned = pendingTransferRepository.updateStatus(transferId,
+                    PendingTransferPo.STATUS_PENDING, PendingTransferPo.STATUS_COMPENSATED) == 1;
+            if (transitioned && accountRepository.credit(transfer.getFromAccount(), transfer.getAmount()) != 1) {
+                // 转出账户已被删除，回滚后保持PENDING，等待人工处理
+                throw new IllegalStateException("refund account not found, transferId = " + transferId);
+            }
+            return new Resolution(PendingTransferPo.STATUS_COMPENSATED, transitioned);
+        }));
+    }
+
+    /**
+     * @param transitioned 本次执行是否把转账从PENDING推进到终态
+     */
+    private record Resolution(String status, boolean transitioned) {
+    }
+}
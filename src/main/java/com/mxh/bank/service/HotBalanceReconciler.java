@@ -0,0 +1,129 @@
+package com.mxh.bank.service;
+
+import com.mxh.bank.model.po.HotBalanceJournalPo;
+import com.mxh.bank.model.po.TransferLedgerPo;
+import com.mxh.bank.repository.HotBalanceJournalRepository;
+import com.mxh.bank.utils.AmountUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RStream;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.StreamMessageId;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 热点账户流水的异步回写：按批读取Redis Stream中的流水，在一个事务内写入回放日志、
+ * 按账户汇总增量更新余额并推进检查点，提交后再从Stream中删除已回写的流水
+ * 检查点与余额在同一事务中更新，进程崩溃后从检查点继续，不会重复回写
+ * 两端均为热点账户的转账只在Redis中记账，回写其转出流水时在同一事务中写入转账流水
+ */
+@Service
+@Slf4j
+public class HotBalanceReconciler {
+
+    @Autowired
+    private RedissonClient redissonClient;
+
+    @Autowired
+    private HotBalanceJournalRepository hotBalanceJournalRepository;
+
+    @Autowired
+    private TransferLedgerService transferLedgerService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${bank.hot-account.enabled:false}")
+    private boolean enabled;
+
+    @Value("${bank.hot-account.flush-batch-size:1000}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${bank.hot-account.flush-interval-millis:200}")
+    public void scheduledFlush() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            // 积压较多时连续回写，直到不足一批
+            while (flush() >= batchSize) {
+                log.info("hot balance journal backlog, continue flushing");
+            }
+        } catch (Exception e) {
+            log.error("hot balance flush error", e);
+        }
+    }
+
+    /**
+     * 回写一批流水
+     * @return 本次回写的流水条数
+     */
+    public int flush() {
+        RStream<String, String> stream = redissonClient.getStream(HotBalanceService.JOURNAL_KEY, StringCodec.INSTANCE);
+        List<StreamMessageId> applied = transactionTemplate.execute(status -> {
+            String checkpoint = hotBalanceJournalRepository.lockCheckpoint();
+            Map<StreamMessageId, Map<String, String>> entries = stream.range(batchSize, nextId(checkpoint), StreamMessageId.MAX);
+            if (entries.isEmpty()) {
+                return List.of();
+            }
+            List<HotBalanceJournalPo> journal = new ArrayList<>(entries.size());
+            List<TransferLedgerPo> ledgerEntries = new ArrayList<>();
+            // 按账号排序回写，与转账的加锁顺序一致
+            Map<String, Long> deltaCents = new TreeMap<>();
+            StreamMessageId lastId = null;
+            for (Map.Entry<StreamMessageId, Map<String, String>> entry : entries.entrySet()) {
+                Map<String, String> fields = entry.getValue();
+                HotBalanceJournalPo po = HotBalanceJournalPo.builder()
+                        .entryId(entry.getKey().toString())
+                        .transferId(fields.get("transfer_id"))
+                        .accountNumber(fields.get("account_number"))
+                        .delta(Long.parseLong(fields.get("delta")))
+                        .createTime(Long.parseLong(fields.get("create_time")))
+                        .build();
+                journal.add(po);
+                String counterparty = fields.get("counterparty");
+                if (counterparty != null && po.getDelta() < 0) {
+                    ledgerEntries.addAll(transferLedgerService.entries(po.getTransferId(), po.getAccountNumber(), counterparty,
+                            AmountUtils.fromCents(-po.getDelta()), po.getCreateTime()));
+                }
+                deltaCents.merge(po.getAccountNumber(), po.getDelta(), Long::sum);
+                if (lastId == null || compare(entry.getKey(), lastId) > 0) {
+                    lastId = entry.getKey();
+                }
+            }
+            Map<String, BigDecimal> deltas = new TreeMap<>();
+            deltaCents.forEach((accountNumber, cents) -> deltas.put(accountNumber, AmountUtils.fromCents(cents)));
+
+            hotBalanceJournalRepository.batchInsert(journal);
+            hotBalanceJournalRepository.batchApplyDeltas(deltas);
+            hotBalanceJournalRepository.updateCheckpoint(lastId.toString());
+            transferLedgerService.record(ledgerEntries);
+            return new ArrayList<>(entries.keySet());
+        });
+        if (!applied.isEmpty()) {
+            stream.remove(applied.toArray(new StreamMessageId[0]));
+            log.info("hot balance flush finish, entries = {}", applied.size());
+        }
+        return applied.size();
+    }
+
+    private StreamMessageId nextId(String checkpoint) {
+        String[] parts = checkpoint.split("-");
+        return new StreamMessageId(Long.parseLong(parts[0]), Long.parseLong(parts[1]) + 1);
+    }
+
+    private int compare(StreamMessageId a, StreamMessageId b) {
+        int result = Long.compare(a.getId0(), b.getId0());
+        return result != 0 ? result : Long.compare(a.getId1(), b.getId1());
+    }
+}
@@ -0,0 +1,372 @@
+package com.mxh.bank.service;
+
+import com.mxh.bank.exception.BusinessException;
+import com.mxh.bank.model.po.BankAccountPo;
+import com.mxh.bank.model.po.HotTransferPo;
+import com.mxh.bank.repository.AccountRepository;
+import com.mxh.bank.repository.HotTransferRepository;
+import com.mxh.bank.utils.AmountUtils;
+import com.mxh.bank.utils.RedisCircuitBreaker;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 热点账户余额引擎：指定账户的余额常驻Redis，转账由Lua脚本原子地校验余额并记账
+ * 每条记账流水追加到Redis Stream，由HotBalanceReconciler批量回写数据库
+ * 所有键带有相同的hash tag，Redis Cluster部署时位于同一slot
+ * 同一转账ID的脚本只生效一次，热点账户与普通账户之间的转账可以从数据库中的 hot_transfer 记录安全地重新推进
+ */
+@Service
+@Slf4j
+public class HotBalanceService {
+    public static final String JOURNAL_KEY = "account:hot:{hot}:journal";
+    private static final String BALANCE_KEY_PREFIX = "account:hot:{hot}:balance:";
+    private static final String APPLIED_KEY_PREFIX = "account:hot:{hot}:applied:";
+    private static final String REVERSAL_SUFFIX = "-R";
+    private static final String RESULT_OK = "OK";
+    private static final String RESULT_MISSING = "MISSING";
+    private static final String RESULT_INSUFFICIENT = "INSUFFICIENT";
+    /**
+     * KEYS[1]: 流水Stream; KEYS[2]: 转账已记账标记; KEYS[3..n+2]: 各账户余额键
+     * ARGV[1]: 转账ID; ARGV[2..n+1]: 各账户变动金额（分）; ARGV[n+2..2n+1]: 各账号; ARGV[2n+2]: 时间; ARGV[2n+3]: 标记保留秒数
+     * 已记账的转账直接返回OK；否则先校验全部账户已加载且扣款后余额不为负，再统一记账、追加流水并写入标记
+     * 两端均为热点账户时流水带上对手账号，回写时据此写入转账流水
+     */
+    private static final String APPLY_SCRIPT =
+            "if redis.call('exists', KEYS[2]) == 1 then return 'OK'; end; " +
+            "local n = #KEYS - 2; " +
+            "for i = 1, n do " +
+            "  local balance = redis.call('get', KEYS[i + 2]); " +
+            "  if not balance then return 'MISSING:' .. i; end; " +
+            "  if tonumber(balance) + tonumber(ARGV[i + 1]) < 0 then return 'INSUFFICIENT:' .. i; end; " +
+            "end; " +
+            "for i = 1, n do " +
+            "  redis.call('incrby', KEYS[i + 2], ARGV[i + 1]); " +
+            "  local fields = {'transfer_id', ARGV[1], 'account_number', ARGV[n + i + 1], 'delta', ARGV[i + 1], 'create_time', ARGV[2 * n + 2]}; " +
+            "  if n == 2 then " +
+            "    table.insert(fields, 'counterparty'); " +
+            "    table.insert(fields, ARGV[n + (3 - i) + 1]); " +
+            "  end; " +
+            "  redis.call('xadd', KEYS[1], '*', unpack(fields)); " +
+            "end; " +
+            "redis.call('set', KEYS[2], '1', 'EX', ARGV[2 * n + 3]); " +
+            "return 'OK';";
+
+    @Autowired
+    private RedissonClient redissonClient;
+
+    @Autowired
+    private RedisCircuitBreaker redisCircuitBreaker;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private AccountEventOutboxService accountEventOutboxService;
+
+    @Autowired
+    private HotTransferRepository hotTransferRepository;
+
+    @Autowired
+    private TransferLedgerService transferLedgerService;
+
+    @Autowired
+    private AccountCacheService accountCacheService;
+
+    @Value("${bank.hot-account.enabled:false}")
+    private boolean enabled;
+
+    @Value("${bank.hot-account.accounts:}")
+    private Set<String> hotAccounts;
+
+    @Value("${bank.hot-account.pending-timeout-millis:30000}")
+    private long pendingTimeoutMillis;
+
+    @Value("${bank.hot-account.recovery-batch-size:100}")
+    private int recoveryBatchSize;
+
+    /**
+     * 记账标记的保留时间，需远大于转账的恢复超时，过期后同一转账ID的脚本会再次生效
+     */
+    @Value("${bank.hot-account.applied-ttl-seconds:604800}")
+    private long appliedTtlSeconds;
+
+    public boolean isHot(String accountNumber) {
+        return enabled && hotAccounts.contains(accountNumber);
+    }
+
+    /**
+     * 转账任意一方为热点账户时由本引擎处理
+     */
+    public boolean handles(String fromAccountNo, String toAccountNo) {
+        return isHot(fromAccountNo) || isHot(toAccountNo);
+    }
+
+    /**
+     * 读取Redis中的热点账户余额
+     * @return 余额，尚未加载到Redis时返回null
+     */
+    public BigDecimal getBalance(String accountNumber) {
+        redisCircuitBreaker.checkAvailable();
+        String cents = redissonClient.<String>getBucket(BALANCE_KEY_PREFIX + accountNumber, StringCodec.INSTANCE).get();
+        return cents == null ? null : AmountUtils.fromCents(Long.parseLong(cents));
+    }
+
+    /**
+     * 删除账户时移除其Redis余额，已产生的流水仍会回写
+     */
+    public void unload(String accountNumber) {
+        redissonClient.getBucket(BALANCE_KEY_PREFIX + accountNumber, StringCodec.INSTANCE).delete();
+    }
+
+    /**
+     * 执行转账：两端均为热点账户时只需一次脚本调用
+     * 只有一端为热点账户时，先在数据库中提交PENDING转账记录（普通账户转出时在同一事务中扣款），
+     * 再在Redis中记账，最后在数据库中把转账置为终态并给普通账户入账
+     * 中途因Redis或数据库异常中断时转账保持PENDING并返回BM-018，由定时任务在超过 bank.hot-account.pending-timeout-millis 后重新推进
+     * @param transferId 转账ID，同时作为Redis记账标记、hot_transfer 的主键与流水的转账ID
+     */
+    public void transfer(long transferId, String fromAccountNo, String toAccountNo, BigDecimal amount) {
+        // 热点账户余额以Redis为准，无法降级到数据库，熔断期间快速失败
+        redisCircuitBreaker.checkAvailable();
+        if (isHot(fromAccountNo) && isHot(toAccountNo)) {
+            long cents = AmountUtils.toCents(amount);
+            apply(String.valueOf(transferId), List.of(fromAccountNo, toAccountNo), List.of(-cents, cents));
+            // 余额只在Redis中变更，转账流水由HotBalanceReconciler回写Redis流水时在同一事务中写入
+            recordTransferEvent(fromAccountNo, toAccountNo, amount);
+        } else {
+            long now = System.currentTimeMillis();
+            HotTransferPo transfer = HotTransferPo.builder()
+                    .transferId(transferId)
+                    .fromAccount(fromAccountNo)
+                    .toAccount(toAccountNo)
+                    .amount(amount)
+                    .status(HotTransferPo.STATUS_PENDING)
+                    .createTime(now)
+                    .updateTime(now)
+                    .build();
+            begin(transfer);
+            String status;
+            try {
+                status = resolve(transfer);
+            } catch (BusinessException e) {
+                // 热点账户不存在或余额不足，转账已置为FAILED
+                throw e;
+            } catch (RuntimeException e) {
+                log.error("hot transfer left pending, transferId = {}, from = {}, to = {}, amount = {}",
+                        transferId, fromAccountNo, toAccountNo, amount, e);
+                throw new BusinessException("BM-018", String.valueOf(transferId));
+            }
+            if (HotTransferPo.STATUS_COMPENSATED.equals(status)) {
+                throw new BusinessException("BM-005", toAccountNo);
+            }
+        }
+        log.info("hot transfer finish, transferId = {}, from = {}, to = {}, amount = {}", transferId, fromAccountNo, toAccountNo, amount);
+    }
+
+    /**
+     * 推进超时仍为PENDING的热点转账，Redis熔断期间跳过
+     */
+    @Scheduled(fixedDelayString = "${bank.hot-account.recovery-interval-millis:5000}")
+    public void recover() {
+        if (!enabled || !redisCircuitBreaker.isClosed()) {
+            return;
+        }
+        List<HotTransferPo> transfers = hotTransferRepository.findPendingBefore(
+                System.currentTimeMillis() - pendingTimeoutMillis, recoveryBatchSize);
+        for (HotTransferPo transfer : transfers) {
+            try {
+                recover(transfer);
+            } catch (RuntimeException e) {
+                log.error("recover hot transfer error, transferId = {}", transfer.getTransferId(), e);
+            }
+        }
+    }
+
+    /**
+     * 从Redis记账一步起推进一笔转账直至终态，Redis记账与终态更新均可重复执行
+     * @return 终态 COMPLETED、FAILED 或 COMPENSATED
+     */
+    public String recover(HotTransferPo transfer) {
+        String status;
+        try {
+            status = resolve(transfer);
+        } catch (BusinessException e) {
+            status = HotTransferPo.STATUS_FAILED;
+        }
+        accountCacheService.evict(transfer.getFromAccount());
+        accountCacheService.evict(transfer.getToAccount());
+        log.warn("hot transfer recovered, transferId = {}, status = {}", transfer.getTransferId(), status);
+        return status;
+    }
+
+    /**
+     * 提交PENDING转账记录，普通账户转出时在同一事务中扣款，此后的Redis记账可由恢复任务重新执行
+     */
+    private void begin(HotTransferPo transfer) {
+        String fromAccountNo = transfer.getFromAccount();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!isHot(fromAccountNo) && accountRepository.debitIfSufficient(fromAccountNo, transfer.getAmount()) != 1) {
+                throw accountRepository.existsByAccountNumber(fromAccountNo)
+                        ? new BusinessException("BM-007")
+                        : new BusinessException("BM-005", fromAccountNo);
+            }
+            hotTransferRepository.insert(transfer);
+        });
+    }
+
+    /**
+     * 普通账户转入热点账户：普通账户已在begin中扣款，在Redis中给热点账户入账后完成；热点账户不存在时退款
+     * 热点账户转入普通账户：在Redis中给热点账户扣款，余额不足或账户不存在时置为FAILED并抛出对应的业务异常；
+     * 扣款后给普通账户入账并完成，普通账户不存在时冲正Redis扣款
+     * 只有把状态从PENDING推进到COMPLETED的执行者写入转账事件与流水
+     */
+    private String resolve(HotTransferPo transfer) {
+        String transferId = String.valueOf(transfer.getTransferId());
+        long cents = AmountUtils.toCents(transfer.getAmount());
+        if (isHot(transfer.getToAccount())) {
+            try {
+                apply(transferId, List.of(transfer.getToAccount()), List.of(cents));
+            } catch (BusinessException e) {
+                return refund(transfer);
+            }
+            return complete(transfer, false);
+        }
+        try {
+            apply(transferId, List.of(transfer.getFromAccount()), List.of(-cents));
+        } catch (BusinessException e) {
+            hotTransferRepository.updateStatus(transfer.getTransferId(), HotTransferPo.STATUS_PENDING, HotTransferPo.STATUS_FAILED);
+            throw e;
+        }
+        String status = complete(transfer, true);
+        if (status != null) {
+            return status;
+        }
+        reverse(transferId, transfer.getFromAccount(), cents);
+        hotTransferRepository.updateStatus(transfer.getTransferId(), HotTransferPo.STATUS_PENDING, HotTransferPo.STATUS_COMPENSATED);
+        return HotTransferPo.STATUS_COMPENSATED;
+    }
+
+    /**
+     * 把转账置为COMPLETED，credit为true时在同一事务中给普通转入账户入账，只有完成状态推进的执行者写入转账事件与流水
+     * @return 转账当前状态，转入账户不存在时回滚并返回null
+     */
+    private String complete(HotTransferPo transfer, boolean credit) {
+        long transferId = transfer.getTransferId();
+        return transactionTemplate.execute(tx -> {
+            if (hotTransferRepository.updateStatus(transferId, HotTransferPo.STATUS_PENDING, HotTransferPo.STATUS_COMPLETED) != 1) {
+                // 已由其他执行者推进
+                return hotTransferRepository.findByTransferId(transferId).getStatus();
+            }
+            if (credit && accountRepository.credit(transfer.getToAccount(), transfer.getAmount()) != 1) {
+                tx.setRollbackOnly();
+                return null;
+            }
+            accountEventOutboxService.recordTransfer(transfer.getFromAccount(), transfer.getToAccount(), transfer.getAmount());
+            transferLedgerService.record(String.valueOf(transferId), transfer.getFromAccount(), transfer.getToAccount(), transfer.getAmount());
+            return HotTransferPo.STATUS_COMPLETED;
+        });
+    }
+
+    /**
+     * 热点转入账户不存在时退回普通账户的扣款
+     */
+    private String refund(HotTransferPo transfer) {
+        transactionTemplate.executeWithoutResult(tx -> {
+            long transferId = transfer.getTransferId();
+            boolean transitioned = hotTransferRepository.updateStatus(transferId,
+                    HotTransferPo.STATUS_PENDING, HotTransferPo.STATUS_COMPENSATED) == 1;
+            if (transitioned && accountRepository.credit(transfer.getFromAccount(), transfer.getAmount()) != 1) {
+                // 转出账户已被删除，回滚后保持PENDING，等待人工处理
+                throw new IllegalStateException("refund account not found, transferId = " + transferId);
+            }
+        });
+        return HotTransferPo.STATUS_COMPENSATED;
+    }
+
+    /**
+     * 两端均为热点账户时没有数据库事务，记账成功后在单独的事务中写入事件，写入失败时只记录日志
+     */
+    private void recordTransferEvent(String fromAccountNo, String toAccountNo, BigDecimal amount) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> accountEventOutboxService.recordTransfer(fromAccountNo, toAccountNo, amount));
+        } catch (RuntimeException e) {
+            log.error("record hot transfer event error, from = {}, to = {}, amount = {}", fromAccountNo, toAccountNo, amount, e);
+        }
+    }
+
+    private void apply(String transferId, List<String> accountNumbers, List<Long> deltas) {
+        for (int attempt = 0; ; attempt++) {
+            String result = evalApply(transferId, accountNumbers, deltas);
+            if (RESULT_OK.equals(result)) {
+                return;
+            }
+            String[] parts = result.split(":");
+            String accountNumber = accountNumbers.get(Integer.parseInt(parts[1]) - 1);
+            if (RESULT_INSUFFICIENT.equals(parts[0])) {
+                throw new BusinessException("BM-007");
+            }
+            if (!RESULT_MISSING.equals(parts[0]) || attempt >= accountNumbers.size()) {
+                throw new IllegalStateException("hot transfer script error, transferId = " + transferId + ", result = " + result);
+            }
+            load(accountNumber);
+        }
+    }
+
+    private String evalApply(String transferId, List<String> accountNumbers, List<Long> deltas) {
+        List<Object> keys = new ArrayList<>(accountNumbers.size() + 2);
+        keys.add(JOURNAL_KEY);
+        keys.add(APPLIED_KEY_PREFIX + transferId);
+        List<Object> args = new ArrayList<>(accountNumbers.size() * 2 + 3);
+        args.add(transferId);
+        for (int i = 0; i < accountNumbers.size(); i++) {
+            keys.add(BALANCE_KEY_PREFIX + accountNumbers.get(i));
+            args.add(deltas.get(i));
+        }
+        args.addAll(accountNumbers);
+        args.add(System.currentTimeMillis());
+        args.add(appliedTtlSeconds);
+        RScript script = redissonClient.getScript(StringCodec.INSTANCE);
+        return script.eval(RScript.Mode.READ_WRITE, APPLY_SCRIPT, RScript.ReturnType.VALUE, keys, args.toArray());
+    }
+
+    /**
+     * 首次使用时从数据库加载余额，仅在键不存在时写入，避免覆盖其他节点已加载且已记账的余额
+     * 数据库余额已包含全部已回写的流水，而未回写的流水只可能存在于已加载的键上
+     */
+    private void load(String accountNumber) {
+        BankAccountPo account = accountRepository.findByAccountNumber(accountNumber);
+        if (account == null) {
+            throw new BusinessException("BM-005", accountNumber);
+        }
+        boolean loaded = redissonClient.getBucket(BALANCE_KEY_PREFIX + accountNumber, StringCodec.INSTANCE)
+                .trySet(String.valueOf(AmountUtils.toCents(account.getBalance())));
+        log.info("load hot account = {}, balance = {}, loaded = {}", accountNumber, account.getBalance(), loaded);
+    }
+
+    /**
+     * 冲正Redis一侧的扣款，同样写入流水以便回写时抵消；冲正使用独立的转账ID，重复执行只生效一次
+     * 冲正失败时抛出异常，转账保持PENDING由恢复任务重试
+     */
+    private void reverse(String transferId, String accountNumber, long cents) {
+        String result = evalApply(transferId + REVERSAL_SUFFIX, List.of(accountNumber), List.of(cents));
+        if (!RESULT_OK.equals(result)) {
+            throw new IllegalStateException("hot transfer reverse failed, transferId = " + transferId + ", result = " + result);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.mxh.bank.service;
+
+import com.mxh.bank.utils.IdUtils;
+import com.mxh.bank.utils.SnowflakeIdGenerator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动时为本节点分配雪花ID的节点号：优先使用配置项bank.id.worker-id，
+ * 否则在开启租约时通过Redis租约抢占一个空闲节点号并定期续约，二者均未配置时沿用默认节点号（仅适用于单实例部署）
+ * 续约发现租约已丢失（如长时间与Redis断连后被其他节点占用）时立即重新抢占并切换节点号
+ * 发号截止时间为最近一次续约请求发出时间加租约时长再减去renew-margin-millis，未能按时续约时IdUtils停止发号，
+ * 租约在Redis中过期、节点号可能被其他节点抢占之前本节点已不再使用该节点号
+ */
+@Component
+@Slf4j
+public class IdWorkerAssigner {
+    private static final String LEASE_KEY_PREFIX = "id:worker:lease:";
+    /**
+     * 仍由本节点持有时延长租约
+     */
+    private static final String RENEW_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]); end; return 0;";
+    /**
+     * 仍由本节点持有时释放租约
+     */
+    private static final String RELEASE_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]); end; return 0;";
+
+    @Autowired
+    private RedissonClient redissonClient;
+
+    @Value("${bank.id.worker-id:-1}")
+    private int configuredWorkerId;
+
+    @Value("${bank.id.block-size:" + IdUtils.DEFAULT_BLOCK_SIZE + "}")
+    private int blockSize;
+
+    @Value("${bank.id.lease.enabled:false}")
+    private boolean leaseEnabled;
+
+    @Value("${bank.id.lease.ttl-seconds:30}")
+    private long leaseTtlSeconds;
+
+    @Value("${bank.id.lease.renew-margin-millis:5000}")
+    private long renewMarginMillis;
+
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName() + ":" + UUID.randomUUID();
+
+    private volatile int workerId = -1;
+
+    private volatile long lastRenewMillis;
+
+    @PostConstruct
+    public void init() {
+        if (configuredWorkerId >= 0) {
+            workerId = configuredWorkerId;
+            log.info("id worker assigned from configuration, workerId = {}", workerId);
+        } else if (leaseEnabled) {
+            if (renewMarginMillis < 0 || renewMarginMillis >= TimeUnit.SECONDS.toMillis(leaseTtlSeconds)) {
+                throw new IllegalStateException("bank.id.lease.renew-margin-millis must be between 0 and the lease ttl: " + renewMarginMillis);
+            }
+            workerId = acquire();
+        } else {
+            workerId = IdUtils.DEFAULT_WORKER_ID;
+            log.warn("id worker is neither configured nor leased, use default workerId = {}, only safe for a single instance", workerId);
+        }
+        IdUtils.configure(workerId, blockSize);
+        if (configuredWorkerId < 0 && leaseEnabled) {
+            IdUtils.setLeaseDeadline(leaseDeadline());
+        }
+    }
+
+    public int getWorkerId() {
+        return workerId;
+    }
+
+    @Scheduled(fixedDelayString = "${bank.id.lease.renew-interval-millis:10000}")
+    public void renew() {
+        if (configuredWorkerId >= 0 || !leaseEnabled) {
+            return;
+        }
+        // 租约在Redis中从执行续约时起算，以请求发出时间为准，不晚于实际起算时间
+        long requestedAt = System.currentTimeMillis();
+        try {
+            Long renewed = redissonClient.getScript(StringCodec.INSTANCE).eval(RScript.Mode.READ_WRITE, RENEW_SCRIPT,
+                    RScript.ReturnType.INTEGER, List.<Object>of(LEASE_KEY_PREFIX + workerId), owner,
+                    String.valueOf(TimeUnit.SECONDS.toMillis(leaseTtlSeconds)));
+            if (renewed != null && renewed == 1) {
+                lastRenewMillis = requestedAt;
+                IdUtils.setLeaseDeadline(leaseDeadline());
+                return;
+            }
+            log.error("id worker lease lost, workerId = {}, reacquire", workerId);
+            workerId = acquire();
+            IdUtils.configure(workerId, blockSize);
+            IdUtils.setLeaseDeadline(leaseDeadline());
+        } catch (RuntimeException e) {
+            long sinceLastRenew = System.currentTimeMillis() - lastRenewMillis;
+            if (sinceLastRenew >= TimeUnit.SECONDS.toMillis(leaseTtlSeconds) - renewMarginMillis) {
+                log.error("id worker lease is not renewed in time, id generation suspended, workerId = {}, sinceLastRenewMillis = {}",
+                        workerId, sinceLastRenew, e);
+            } else {
+                log.warn("id worker lease renew error, workerId = {}", workerId, e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void release() {
+        if (configuredWorkerId >= 0 || !leaseEnabled || workerId < 0) {
+            return;
+        }
+        // 释放后节点号可能立即被其他节点抢占，先停止发号
+        IdUtils.setLeaseDeadline(System.currentTimeMillis());
+        try {
+            redissonClient.getScript(StringCodec.INSTANCE).eval(RScript.Mode.READ_WRITE, RELEASE_SCRIPT,
+                    RScript.ReturnType.INTEGER, List.<Object>of(LEASE_KEY_PREFIX + workerId), owner);
+            log.info("id worker lease released, workerId = {}", workerId);
+        } catch (RuntimeException e) {
+            // 未释放的租约到期后自动失效
+            log.warn("id worker lease release error, workerId = {}", workerId, e);
+        }
+    }
+
+    /**
+     * 从随机位置开始依次尝试抢占节点号，降低多个节点同时启动时的冲突
+     */
+    private int acquire() {
+        int start = ThreadLocalRandom.current().nextInt(SnowflakeIdGenerator.MAX_WORKER_ID + 1);
+        for (int i = 0; i <= SnowflakeIdGenerator.MAX_WORKER_ID; i++) {
+            int candidate = (start + i) % (SnowflakeIdGenerator.MAX_WORKER_ID + 1);
+            long requestedAt = System.currentTimeMillis();
+            boolean acquired = redissonClient.getBucket(LEASE_KEY_PREFIX + candidate, StringCodec.INSTANCE)
+                    .trySet(owner, leaseTtlSeconds, TimeUnit.SECONDS);
+            if (acquired) {
+                lastRenewMillis = requestedAt;
+                log.info("id worker lease acquired, workerId = {}, owner = {}", candidate, owner);
+                return candidate;
+            }
+        }
+        throw new IllegalStateException("no free id worker, all " + (SnowflakeIdGenerator.MAX_WORKER_ID + 1) + " worker ids are leased");
+    }
+
+    private long leaseDeadline() {
+        return lastRenewMillis + TimeUnit.SECONDS.toMillis(leaseTtlSeconds) - renewMarginMillis;
+    }
+}
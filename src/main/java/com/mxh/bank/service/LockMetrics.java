@@ -0,0 +1,112 @@
+package com.mxh.bank.service;
+
+import cn.hutool.cache.impl.LRUCache;
+import com.mxh.bank.model.response.LockStatsResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按锁键统计加锁次数、超时次数以及等待耗时
+ * 锁键数量与账户数一致，只保留最近活跃的部分键，另外单独维护全部键的汇总
+ * 绑定MeterRegistry后，汇总数据同时记录到按加锁结果区分的bank.lock.wait计时器，不按锁键打标签以免指标基数膨胀
+ */
+public class LockMetrics {
+    public static final String TOTAL_KEY = "*";
+    private static final int MAX_TRACKED_KEYS = 1024;
+    private static final int TOP_KEYS = 20;
+
+    private final String provider;
+
+    private final LRUCache<String, KeyStats> keyStats = new LRUCache<>(MAX_TRACKED_KEYS);
+
+    private final KeyStats total = new KeyStats(TOTAL_KEY);
+
+    private volatile Timer acquiredTimer;
+
+    private volatile Timer timeoutTimer;
+
+    public LockMetrics(String provider) {
+        this.provider = provider;
+    }
+
+    public void bindTo(MeterRegistry meterRegistry) {
+        acquiredTimer = Timer.builder("bank.lock.wait")
+                .tag("provider", provider)
+                .tag("outcome", "acquired")
+                .register(meterRegistry);
+        timeoutTimer = Timer.builder("bank.lock.wait")
+                .tag("provider", provider)
+                .tag("outcome", "timeout")
+                .register(meterRegistry);
+    }
+
+    public void record(String key, long waitNanos, boolean acquired) {
+        total.record(waitNanos, acquired);
+        Timer timer = acquired ? acquiredTimer : timeoutTimer;
+        if (timer != null) {
+            timer.record(waitNanos, TimeUnit.NANOSECONDS);
+        }
+        KeyStats stats = keyStats.get(key, false, () -> new KeyStats(key));
+        stats.record(waitNanos, acquired);
+    }
+
+    /**
+     * 返回汇总数据以及累计等待时间最长的若干个锁键
+     */
+    public List<LockStatsResponse> snapshot() {
+        List<LockStatsResponse> result = new ArrayList<>();
+        result.add(total.toResponse(provider));
+        List<LockStatsResponse> keys = new ArrayList<>();
+        for (KeyStats stats : keyStats) {
+            keys.add(stats.toResponse(provider));
+        }
+        keys.stream()
+                .sorted(Comparator.comparingLong(LockStatsResponse::getTotalWaitMillis).reversed())
+                .limit(TOP_KEYS)
+                .forEach(result::add);
+        return result;
+    }
+
+    private static class KeyStats {
+        private final String key;
+        private final LongAdder acquired = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder totalWaitNanos = new LongAdder();
+        private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+        private KeyStats(String key) {
+            this.key = key;
+        }
+
+        private void record(long waitNanos, boolean success) {
+            if (success) {
+                acquired.increment();
+            } else {
+                timeouts.increment();
+            }
+            totalWaitNanos.add(waitNanos);
+            maxWaitNanos.accumulate(waitNanos);
+        }
+
+        private LockStatsResponse toResponse(String provider) {
+            long count = acquired.sum() + timeouts.sum();
+            long totalWait = TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.sum());
+            return LockStatsResponse.builder()
+                    .provider(provider)
+                    .key(key)
+                    .acquired(acquired.sum())
+                    .timeouts(timeouts.sum())
+                    .totalWaitMillis(totalWait)
+                    .maxWaitMillis(TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()))
+                    .avgWaitMicros(count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalWaitNanos.sum()) / count)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.mxh.bank.service;
+
+import com.mxh.bank.model.response.LockStatsResponse;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 账户锁抽象，由配置项 bank.lock.provider 选择实现
+ */
+public interface LockProvider {
+
+    /**
+     * 实现名称，对应 bank.lock.provider 的取值
+     */
+    String type();
+
+    /**
+     * 尝试获取单个锁
+     * @param waitTime 最长等待时间
+     * @param leaseTime 持有锁的最长时间，超时自动释放（本地锁忽略该参数）
+     * @return 锁句柄，等待超时返回null
+     */
+    LockHandle tryLock(String key, long waitTime, long leaseTime, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * 按统一顺序获取多个锁，任意一个获取失败时释放已获取的锁
+     * @return 锁句柄，等待超时返回null
+     */
+    LockHandle tryLockAll(Collection<String> keys, long waitTime, long leaseTime, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * 各锁键的等待耗时统计
+     */
+    List<LockStatsResponse> getStats();
+
+    interface LockHandle {
+        /**
+         * 释放锁，只能由加锁线程调用
+         */
+        void unlock();
+    }
+}
@@ -0,0 +1,94 @@
+package com.mxh.bank.service;
+
+import com.mxh.bank.exception.BusinessException;
+import com.mxh.bank.model.response.OptimisticStatsResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 乐观锁模式下的有限次重试，版本冲突后按指数退避加随机抖动等待再重试
+ * 每次重试都必须是一个新的事务，因此调用方不能处于外层事务中
+ */
+@Service
+@Slf4j
+public class OptimisticRetryService {
+    public static final String MODE = "optimistic";
+
+    @Value("${bank.optimistic.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${bank.optimistic.backoff-base-millis:10}")
+    private long backoffBaseMillis;
+
+    @Value("${bank.optimistic.backoff-max-millis:200}")
+    private long backoffMaxMillis;
+
+    private final Map<String, OperationStats> operationStats = new ConcurrentHashMap<>();
+
+    /**
+     * 执行操作，发生版本冲突时重试，超过最大次数后抛出BM-003
+     * @param operation 操作名称，用于统计
+     * @param accountNumber 操作的账号，用于错误提示
+     */
+    public <T> T execute(String operation, String accountNumber, Supplier<T> action) {
+        OperationStats stats = operationStats.computeIfAbsent(operation, key -> new OperationStats());
+        stats.calls.increment();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.get();
+            } catch (OptimisticLockingFailureException e) {
+                stats.conflicts.increment();
+                if (attempt >= maxAttempts) {
+                    stats.exhausted.increment();
+                    log.error("optimistic retry exhausted, operation = {}, accountNumber = {}, attempts = {}",
+                            operation, accountNumber, attempt);
+                    throw new BusinessException("BM-003", accountNumber);
+                }
+                stats.retries.increment();
+                backoff(attempt);
+            }
+        }
+    }
+
+    public List<OptimisticStatsResponse> getStats() {
+        return operationStats.entrySet().stream()
+                .map(entry -> entry.getValue().toResponse(entry.getKey()))
+                .toList();
+    }
+
+    private void backoff(int attempt) {
+        long ceiling = Math.min(backoffMaxMillis, backoffBaseMillis << Math.min(attempt - 1, 20));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("BM-004");
+        }
+    }
+
+    private static class OperationStats {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder conflicts = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder exhausted = new LongAdder();
+
+        private OptimisticStatsResponse toResponse(String operation) {
+            return OptimisticStatsResponse.builder()
+                    .operation(operation)
+                    .calls(calls.sum())
+                    .conflicts(conflicts.sum())
+                    .retries(retries.sum())
+                    .exhausted(exhausted.sum())
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.mxh.bank.service;
+
+import com.mxh.bank.config.DatabaseShardRouter;
+import com.mxh.bank.exception.BusinessException;
+import com.mxh.bank.model.po.TransferLedgerPo;
+import com.mxh.bank.model.response.LedgerEntryResponse;
+import com.mxh.bank.model.response.LedgerPageResponse;
+import com.mxh.bank.repository.TransferLedgerRepository;
+import com.mxh.bank.utils.IdUtils;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 转账流水：借贷两条流水在转账的余额事务中写入所在分库的 transfer_ledger_pending，与余额一同提交或回滚，
+ * 由定时任务按批移入0号分库的 transfer_ledger，把逐笔的插入与提交合并为组提交
+ * 移入时先写 transfer_ledger 再删除待移入的流水，两步不在同一事务中，中断后重试时按流水ID跳过已写入的流水
+ */
+@Service
+@Slf4j
+public class TransferLedgerService {
+    private static final String OPERATION = "ledger";
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    @Autowired
+    private TransferLedgerRepository transferLedgerRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private DatabaseShardRouter databaseShardRouter;
+
+    @Autowired
+    private BankMetrics bankMetrics;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${bank.ledger.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bank.ledger.batch-size:500}")
+    private int batchSize;
+
+    private DistributionSummary batchSizeSummary;
+
+    @PostConstruct
+    public void init() {
+        batchSizeSummary = DistributionSummary.builder("bank.ledger.batch.size").register(meterRegistry);
+    }
+
+    /**
+     * 记录一笔转账，需在转账的余额事务内调用
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(String transferId, String fromAccountNo, String toAccountNo, BigDecimal amount) {
+        record(entries(transferId, fromAccountNo, toAccountNo, amount));
+    }
+
+    /**
+     * 批量写入流水，批量转账等场景先用entries构建流水，再一次写入
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(List<TransferLedgerPo> entries) {
+        if (!enabled || entries.isEmpty()) {
+            return;
+        }
+        transferLedgerRepository.batchInsertPending(entries);
+    }
+
+    /**
+     * 构建一笔转账的借贷两条流水
+     */
+    public List<TransferLedgerPo> entries(String transferId, String fromAccountNo, String toAccountNo, BigDecimal amount) {
+        return entries(transferId, fromAccountNo, toAccountNo, amount, System.currentTimeMillis());
+    }
+
+    /**
+     * @param createTime 转账的记账时间，异步回写的热点转账使用Redis流水中的时间
+     */
+    public List<TransferLedgerPo> entries(String transferId, String fromAccountNo, String toAccountNo, BigDecimal amount, long createTime) {
+        return List.of(
+                entry(transferId, fromAccountNo, toAccountNo, TransferLedgerPo.DIRECTION_DEBIT, amount, createTime),
+                entry(transferId, toAccountNo, fromAccountNo, TransferLedgerPo.DIRECTION_CREDIT, amount, createTime));
+    }
+
+    @Scheduled(fixedDelayString = "${bank.ledger.drain-interval-millis:200}")
+    public void scheduledDrain() {
+        if (!enabled) {
+            return;
+        }
+        for (int shard = 0; shard < databaseShardRouter.getShardCount(); shard++) {
+            try {
+                // 积压较多时连续移入，直到不足一批
+                while (drain(shard) >= batchSize) {
+                    log.info("transfer ledger backlog, continue draining, shard = {}", shard);
+                }
+            } catch (Exception e) {
+                // 写入失败（如数据库暂时不可用或多个节点同时移入同一批）时流水仍留在待移入表中，下一轮重试
+                log.error("transfer ledger drain error, shard = {}", shard, e);
+            }
+        }
+    }
+
+    /**
+     * 把分库中的一批待移入流水写入0号分库的 transfer_ledger，提交后再从待移入表中删除
+     * @return 本次移入的流水条数
+     */
+    public int drain(int shard) {
+        List<TransferLedgerPo> entries = databaseShardRouter.callOnShard(shard, () -> transferLedgerRepository.findPending(batchSize));
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        List<Long> entryIds = entries.stream().map(TransferLedgerPo::getEntryId).toList();
+        bankMetrics.recordPhase(OPERATION, "batch_insert", () -> databaseShardRouter.runOnShard(DatabaseShardRouter.DEFAULT_SHARD,
+                () -> transactionTemplate.executeWithoutResult(status -> {
+                    Set<Long> existing = transferLedgerRepository.findExistingEntryIds(entryIds);
+                    List<TransferLedgerPo> missing = entries.stream()
+                            .filter(entry -> !existing.contains(entry.getEntryId()))
+                            .toList();
+                    if (!missing.isEmpty()) {
+                        transferLedgerRepository.batchInsert(missing);
+                    }
+                })));
+        databaseShardRouter.runOnShard(shard,
+                () -> transactionTemplate.executeWithoutResult(status -> transferLedgerRepository.deletePending(entryIds)));
+        batchSizeSummary.record(entries.size());
+        return entries.size();
+    }
+
+    /**
+     * 查询账户在 [start_time, end_time) 内的流水，按时间倒序分页
+     * 流水在转账提交后异步移入，刚完成的转账可能短暂查询不到
+     */
+    @Transactional(readOnly = true)
+    public LedgerPageResponse getHistory(String accountNumber, Long startTime, Long endTime, String cursor, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new BusinessException("BM-013", "size");
+        }
+        long start = startTime == null ? 0 : startTime;
+        long end = endTime == null ? Long.MAX_VALUE : endTime;
+        if (start >= end) {
+            throw new BusinessException("BM-013", "end_time");
+        }
+        // 首页的上界为结束时间（不含），翻页时为上一页最后一条流水
+        long[] position = cursor == null || cursor.isBlank() ? new long[]{end, Long.MIN_VALUE} : decodeCursor(cursor);
+        // 多读一条用于判断是否还有下一页
+        List<TransferLedgerPo> entries = bankMetrics.recordPhase(OPERATION, "history_query",
+                () -> transferLedgerRepository.findByAccountNumber(accountNumber, start, position[0], position[1], size + 1));
+        boolean hasMore = entries.size() > size;
+        if (hasMore) {
+            entries = entries.subList(0, size);
+        }
+        TransferLedgerPo last = entries.isEmpty() ? null : entries.get(entries.size() - 1);
+        return LedgerPageResponse.builder()
+                .content(entries.stream().map(this::mapToResponse).toList())
+                .size(entries.size())
+                .nextCursor(hasMore ? encodeCursor(last.getCreateTime(), last.getEntryId()) : null)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    private TransferLedgerPo entry(String transferId, String accountNumber, String counterpartyAccount, String direction,
+                                   BigDecimal amount, long createTime) {
+        return TransferLedgerPo.builder()
+                .entryId(IdUtils.getNextId())
+                .transferId(transferId)
+                .accountNumber(accountNumber)
+                .counterpartyAccount(counterpartyAccount)
+                .direction(direction)
+                .amount(amount)
+                .createTime(createTime)
+                .build();
+    }
+
+    private LedgerEntryResponse mapToResponse(TransferLedgerPo entry) {
+        return LedgerEntryResponse.builder()
+                .entryId(String.valueOf(entry.getEntryId()))
+                .transferId(entry.getTransferId())
+                .accountNumber(entry.getAccountNumber())
+                .counterpartyAccount(entry.getCounterpartyAccount())
+                .direction(entry.getDirection())
+                .amount(entry.getAmount())
+                .createTime(entry.getCreateTime())
+                .build();
+    }
+
+    /**
+     * 游标对调用方不透明，内容为上一页最后一条流水的时间与ID
+     */
+    private String encodeCursor(long createTime, long entryId) {
+        String raw = createTime + ":" + entryId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private long[] decodeCursor(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+            if (parts.length == 2) {
+                return new long[]{Long.parseLong(parts[0]), Long.parseLong(parts[1])};
+            }
+        } catch (IllegalArgumentException e) {
+            log.error("invalid ledger cursor = {}", cursor);
+        }
+        throw new BusinessException("BM-013", "cursor");
+    }
+}
@@ -0,0 +1,27 @@
+package com.mxh.bank.service;
+
+import java.math.BigDecimal;
+
+/**
+ * 转账扣款/入账的执行策略，由配置项 bank.transfer.mode 选择
+ */
+public interface TransferStrategy {
+
+    /**
+     * 策略名称，对应 bank.transfer.mode 的取值
+     */
+    String mode();
+
+    /**
+     * 在同一事务内完成扣款与入账并写入转账事件与流水，账户不存在或余额不足时抛出BusinessException并回滚
+     * @param transferId 转账ID，写入流水
+     */
+    void transfer(long transferId, String fromAccountNo, String toAccountNo, BigDecimal amount);
+
+    /**
+     * 执行前是否需要先获取两个账户的分布式锁，与删除、更新等操作互斥
+     */
+    default boolean requiresAccountLock() {
+        return true;
+    }
+}
@@ -1,195 +1,825 @@
 package com.mxh.bank.service.impl;
 
+import com.mxh.bank.config.DatabaseShardRouter;
 import com.mxh.bank.exception.BusinessException;
+import com.mxh.bank.model.po.AccountEventPo;
 import com.mxh.bank.model.po.BankAccountPo;
+import com.mxh.bank.model.po.TransferLedgerPo;
+import com.mxh.bank.model.request.BatchCreateAccountRequestParam;
+import com.mxh.bank.model.request.BatchGetAccountRequestParam;
+import com.mxh.bank.model.request.BatchTransferRequestParam;
 import com.mxh.bank.model.request.CreateAccountRequestParam;
 import com.mxh.bank.model.request.TransferRequestParam;
 import com.mxh.bank.model.request.UpdateAccountRequestParam;
+import com.mxh.bank.model.response.AccountCreateResultResponse;
+import com.mxh.bank.model.response.AccountCursorPageResponse;
 import com.mxh.bank.model.response.AccountInfoResponse;
+import com.mxh.bank.model.response.BatchCreateAccountResponse;
+import com.mxh.bank.model.response.BatchGetAccountResponse;
+import com.mxh.bank.model.response.BatchTransferResponse;
 import com.mxh.bank.model.response.OperationResponse;
+import com.mxh.bank.model.response.TransferResultResponse;
+import com.mxh.bank.repository.AccountBatchRepository;
 import com.mxh.bank.repository.AccountRepository;
+import com.mxh.bank.service.AccountCacheService;
+import com.mxh.bank.service.AccountEventOutboxService;
 import com.mxh.bank.service.AccountManagerService;
-import com.mxh.bank.utils.RedisUtils;
+import com.mxh.bank.service.AccountShardService;
+import com.mxh.bank.service.CrossShardTransferService;
+import com.mxh.bank.service.HotBalanceService;
+import com.mxh.bank.service.LockProvider;
+import com.mxh.bank.service.MessageService;
+import com.mxh.bank.service.OptimisticRetryService;
+import com.mxh.bank.service.TransferLedgerService;
+import com.mxh.bank.service.TransferStrategy;
+import com.mxh.bank.utils.IdUtils;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
-import org.redisson.api.RLock;
-import org.redisson.api.RedissonClient;
+import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class AccountManagerServiceImpl implements AccountManagerService {
     private static final String ACCOUNT_LOCK_PREFIX = "account:lock:";
-    private static final String ACCOUNT_CACHE_PREFIX = "account:cache:";
+    private static final int MAX_CURSOR_PAGE_SIZE = 1000;
+    private static final Comparator<BankAccountPo> ID_ORDER = Comparator.comparing(BankAccountPo::getId);
 
     @Autowired
-    private RedissonClient redissonClient;
+    private AccountRepository accountRepository;
 
     @Autowired
-    private AccountRepository accountRepository;
+    private AccountCacheService accountCacheService;
+
+    @Autowired
+    private AccountBatchRepository accountBatchRepository;
+
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private List<TransferStrategy> transferStrategies;
+
+    @Autowired
+    private OptimisticRetryService optimisticRetryService;
+
+    @Autowired
+    private HotBalanceService hotBalanceService;
+
+    @Autowired
+    private AccountShardService accountShardService;
+
+    @Autowired
+    private TransferLedgerService transferLedgerService;
+
+    @Autowired
+    private AccountEventOutboxService accountEventOutboxService;
+
+    @Autowired
+    private CrossShardTransferService crossShardTransferService;
+
+    @Autowired
+    private DatabaseShardRouter databaseShardRouter;
 
     @Autowired
-    private RedisUtils redisUtils;
+    private TransactionTemplate transactionTemplate;
 
+    @Value("${bank.transfer.mode:" + PessimisticTransferStrategy.MODE + "}")
+    private String transferMode;
+
+    @Value("${bank.update.mode:" + PessimisticTransferStrategy.MODE + "}")
+    private String updateMode;
+
+    @Value("${bank.onboarding.chunk-size:1000}")
+    private int onboardingChunkSize;
+
+    @Value("${bank.sharding.max-page-rows:10000}")
+    private long maxShardPageRows;
+
+    private TransferStrategy transferStrategy;
+
+    @Autowired
+    private List<LockProvider> lockProviders;
+
+    @Value("${bank.lock.provider:" + RedissonLockProvider.TYPE + "}")
+    private String lockProviderType;
+
+    private LockProvider lockProvider;
+
+    /**
+     * 缓存未命中时的回源查询在只读事务中执行，开启读写分离时路由到从库
+     */
+    private TransactionTemplate readOnlyTransactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnlyTransactionTemplate.setReadOnly(true);
+        transferStrategy = transferStrategies.stream()
+                .filter(strategy -> strategy.mode().equals(transferMode))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("unknown bank.transfer.mode: " + transferMode));
+        lockProvider = lockProviders.stream()
+                .filter(provider -> provider.type().equals(lockProviderType))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("unknown bank.lock.provider: " + lockProviderType));
+        log.info("transfer mode = {}, lock provider = {}", transferMode, lockProviderType);
+    }
+
+    /**
+     * 事务在账户锁内、账户所在分库上开启，提交后才释放锁
+     */
     @Override
-    @Transactional
     public AccountInfoResponse createAccount(CreateAccountRequestParam accountRequestParam) {
         String lockKey = ACCOUNT_LOCK_PREFIX + accountRequestParam.getAccountNumber();
-        RLock lock = redissonClient.getLock(lockKey);
+        LockProvider.LockHandle lock = null;
 
         try {
-            boolean locked = lock.tryLock(2, 10, TimeUnit.SECONDS);
-            if (!locked) {
+            lock = lockProvider.tryLock(lockKey, 2, 10, TimeUnit.SECONDS);
+            if (lock == null) {
                 throw new BusinessException("BM-003", accountRequestParam.getAccountNumber());
             }
 
-            if (accountRepository.existsByAccountNumber(accountRequestParam.getAccountNumber())) {
-                throw new BusinessException("BM-002", accountRequestParam.getAccountNumber());
-            }
-            // 创建并保存新账户
-            BankAccountPo account = BankAccountPo.builder()
-                    .accountNumber(accountRequestParam.getAccountNumber())
-                    .accountHolderName(accountRequestParam.getAccountHolderName())
-                    .contactNumber(accountRequestParam.getContactNumber())
-                    .balance(new BigDecimal("0.00"))
-                    .createTime(System.currentTimeMillis())
-                    .build();
-            accountRepository.save(account);
-            redisUtils.set(getCacheKey(accountRequestParam.getAccountNumber()), account, 10, TimeUnit.MINUTES);
-            log.info("create account = {} finish", account);
-            return mapToAccountResponse(account);
+            return databaseShardRouter.callOnShardOf(accountRequestParam.getAccountNumber(),
+                    () -> transactionTemplate.execute(status -> doCreateAccount(accountRequestParam)));
         } catch (InterruptedException e) {
             log.error("create account error, accountNumber = {}", accountRequestParam.getAccountNumber(), e);
             throw new BusinessException("BM-004");
         } finally {
-            if (lock.isHeldByCurrentThread()) {
+            if (lock != null) {
                 lock.unlock();
             }
         }
     }
 
+    private AccountInfoResponse doCreateAccount(CreateAccountRequestParam accountRequestParam) {
+        if (accountRepository.existsByAccountNumber(accountRequestParam.getAccountNumber())) {
+            throw new BusinessException("BM-002", accountRequestParam.getAccountNumber());
+        }
+        // 创建并保存新账户
+        BankAccountPo account = BankAccountPo.builder()
+                .accountNumber(accountRequestParam.getAccountNumber())
+                .accountHolderName(accountRequestParam.getAccountHolderName())
+                .contactNumber(accountRequestParam.getContactNumber())
+                .balance(new BigDecimal("0.00"))
+                .createTime(System.currentTimeMillis())
+                .build();
+        accountRepository.save(account);
+        if (accountShardService.isSharded(account.getAccountNumber())) {
+            accountShardService.createShards(account.getAccountNumber());
+        }
+        accountEventOutboxService.recordCreated(account);
+        accountCacheService.put(account);
+        log.info("create account = {} finish", account);
+        return mapToAccountResponse(account);
+    }
+
+    /**
+     * 不加分布式锁，与单笔开户的并发冲突由账号唯一约束兜底
+     * 分库时每个分块再按分库拆分，各分库的部分在所在分库的独立事务中提交
+     */
     @Override
-    public AccountInfoResponse getAccount(String accountNumber) {
-        BankAccountPo accountFromCache = redisUtils.get(getCacheKey(accountNumber), BankAccountPo.class);
-        if (accountFromCache != null) {
-            return mapToAccountResponse(accountFromCache);
+    public BatchCreateAccountResponse createAccountsBatch(BatchCreateAccountRequestParam batchCreateAccountRequestParam) {
+        List<CreateAccountRequestParam> requests = batchCreateAccountRequestParam.getAccounts();
+        List<AccountCreateResultResponse> failures = new ArrayList<>();
+        // 请求内重复的账号只保留第一条
+        Map<String, Integer> indexes = new LinkedHashMap<>(requests.size() * 2);
+        for (int i = 0; i < requests.size(); i++) {
+            String accountNumber = requests.get(i).getAccountNumber();
+            if (indexes.putIfAbsent(accountNumber, i) != null) {
+                failures.add(buildCreateFailure(i, accountNumber, "BM-002"));
+            }
+        }
+
+        List<String> accountNumbers = new ArrayList<>(indexes.keySet());
+        int createdCount = 0;
+        long start = System.currentTimeMillis();
+        for (int from = 0; from < accountNumbers.size(); from += onboardingChunkSize) {
+            List<String> chunk = accountNumbers.subList(from, Math.min(from + onboardingChunkSize, accountNumbers.size()));
+            for (Map.Entry<Integer, List<String>> shardChunk : databaseShardRouter.groupByShard(chunk).entrySet()) {
+                createdCount += databaseShardRouter.callOnShard(shardChunk.getKey(), () -> createAccountChunk(shardChunk.getValue(),
+                        requests, indexes, failures, batchCreateAccountRequestParam.isWarmCache(), false));
+            }
+        }
+        failures.sort(Comparator.comparingInt(AccountCreateResultResponse::getIndex));
+        log.info("batch create accounts finish, total = {}, created = {}, cost = {}ms",
+                requests.size(), createdCount, System.currentTimeMillis() - start);
+        return BatchCreateAccountResponse.builder()
+                .total(requests.size())
+                .createdCount(createdCount)
+                .failedCount(failures.size())
+                .failures(failures)
+                .build();
+    }
+
+    /**
+     * 在独立事务中创建一个分块的账户
+     * @param retried 检查与插入之间被并发创建了账号时，重新检查后重试一次
+     * @return 创建成功的账户数
+     */
+    private int createAccountChunk(List<String> chunk, List<CreateAccountRequestParam> requests, Map<String, Integer> indexes,
+                                   List<AccountCreateResultResponse> failures, boolean warmCache, boolean retried) {
+        Set<String> existing = new HashSet<>(accountRepository.findExistingAccountNumbers(chunk));
+        List<AccountCreateResultResponse> chunkFailures = new ArrayList<>();
+        List<BankAccountPo> accounts = new ArrayList<>(chunk.size());
+        long createTime = System.currentTimeMillis();
+        for (String accountNumber : chunk) {
+            int index = indexes.get(accountNumber);
+            if (existing.contains(accountNumber)) {
+                chunkFailures.add(buildCreateFailure(index, accountNumber, "BM-002"));
+                continue;
+            }
+            CreateAccountRequestParam request = requests.get(index);
+            // 预先分配雪花ID，JDBC批量插入不依赖数据库生成主键
+            accounts.add(BankAccountPo.builder()
+                    .id(IdUtils.getNextId())
+                    .accountNumber(accountNumber)
+                    .accountHolderName(request.getAccountHolderName())
+                    .contactNumber(request.getContactNumber())
+                    .balance(new BigDecimal("0.00"))
+                    .createTime(createTime)
+                    .version(0L)
+                    .build());
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                accountBatchRepository.batchInsert(accounts);
+                accountEventOutboxService.recordCreated(accounts);
+            });
+        } catch (DuplicateKeyException e) {
+            if (retried) {
+                throw e;
+            }
+            log.warn("batch create accounts conflict, retry chunk, size = {}", chunk.size());
+            return createAccountChunk(chunk, requests, indexes, failures, warmCache, true);
+        }
+        failures.addAll(chunkFailures);
+
+        accounts.stream()
+                .map(BankAccountPo::getAccountNumber)
+                .filter(accountShardService::isSharded)
+                .forEach(accountShardService::createShards);
+        if (warmCache && !accounts.isEmpty()) {
+            accountCacheService.putAll(accounts);
         }
-        BankAccountPo account = accountRepository.findByAccountNumber(accountNumber);
+        return accounts.size();
+    }
+
+    private AccountCreateResultResponse buildCreateFailure(int index, String accountNumber, String errorCode) {
+        return AccountCreateResultResponse.builder()
+                .index(index)
+                .accountNumber(accountNumber)
+                .errorCode(errorCode)
+                .errorMsg(messageService.getMessage(errorCode, accountNumber))
+                .build();
+    }
+
+    @Override
+    public AccountInfoResponse getAccount(String accountNumber) {
+        BankAccountPo account = accountCacheService.getOrLoad(accountNumber,
+                key -> databaseShardRouter.callOnShardOf(key,
+                        () -> readOnlyTransactionTemplate.execute(status -> accountRepository.findByAccountNumber(key))));
         if (account == null) {
             log.error("accountNumber = {} is not exist", accountNumber);
             throw new BusinessException("BM-005", accountNumber);
         }
-        return mapToAccountResponse(account);
+        return mapToLiveAccountResponse(account);
+    }
+
+    @Override
+    public BatchGetAccountResponse getAccounts(BatchGetAccountRequestParam batchGetAccountRequestParam) {
+        // 去重并保持请求顺序
+        Set<String> accountNumbers = new LinkedHashSet<>(batchGetAccountRequestParam.getAccountNumbers());
+        Map<String, BankAccountPo> accounts = accountCacheService.getAllOrLoad(accountNumbers, this::findAccountsAcrossShards);
+        List<AccountInfoResponse> found = new ArrayList<>(accounts.size());
+        List<String> notFound = new ArrayList<>();
+        for (String accountNumber : accountNumbers) {
+            BankAccountPo account = accounts.get(accountNumber);
+            if (account == null) {
+                notFound.add(accountNumber);
+            } else {
+                found.add(mapToLiveAccountResponse(account));
+            }
+        }
+        return BatchGetAccountResponse.builder()
+                .accounts(found)
+                .notFound(notFound)
+                .build();
+    }
+
+    /**
+     * 缓存中的余额只对普通账户准确：热点账户以Redis中的余额为准，分片账户需要补查总余额
+     */
+    private AccountInfoResponse mapToLiveAccountResponse(BankAccountPo account) {
+        String accountNumber = account.getAccountNumber();
+        AccountInfoResponse response = mapToAccountResponse(account);
+        if (hotBalanceService.isHot(accountNumber)) {
+            // 热点账户以Redis中的余额为准，数据库余额由后台异步回写
+            BigDecimal hotBalance = hotBalanceService.getBalance(accountNumber);
+            if (hotBalance != null) {
+                response.setBalance(hotBalance);
+            }
+        } else if (accountShardService.isSharded(accountNumber)) {
+            // 分片账户的余额分散在多行，缓存中的主账户余额不是总余额
+            BigDecimal totalBalance = accountShardService.getBalance(accountNumber);
+            if (totalBalance != null) {
+                response.setBalance(totalBalance);
+            }
+        }
+        return response;
     }
 
     @Override
-    @Transactional
     public AccountInfoResponse updateAccount(String accountNumber, UpdateAccountRequestParam updatedAccount) {
+        if (OptimisticRetryService.MODE.equals(updateMode)) {
+            // 乐观锁模式不加分布式锁与行锁，版本冲突时在新事务中重试
+            return optimisticRetryService.execute("updateAccount", accountNumber,
+                    () -> databaseShardRouter.callOnShardOf(accountNumber, () -> doUpdateAccount(accountNumber, updatedAccount, false)));
+        }
         String lockKey = ACCOUNT_LOCK_PREFIX + accountNumber;
-        RLock lock = redissonClient.getLock(lockKey);
+        LockProvider.LockHandle lock = null;
 
         try {
-            boolean locked = lock.tryLock(5, 10, TimeUnit.SECONDS);
-            if (!locked) {
+            lock = lockProvider.tryLock(lockKey, 5, 10, TimeUnit.SECONDS);
+            if (lock == null) {
                 throw new BusinessException("BM-003", accountNumber);
             }
-            BankAccountPo account = accountRepository.findWithLockByAccountNumber(accountNumber).orElseThrow(() ->
-                    new BusinessException("BM-005", accountNumber));
-            account.setAccountHolderName(updatedAccount.getAccountHolderName());
-            account.setContactNumber(updatedAccount.getContactNumber());
-            accountRepository.save(account);
-            redisUtils.set(getCacheKey(accountNumber), account, 10, TimeUnit.MINUTES);
-            log.info("update account = {} finish", account);
-            return mapToAccountResponse(account);
+            return databaseShardRouter.callOnShardOf(accountNumber, () -> doUpdateAccount(accountNumber, updatedAccount, true));
         } catch (InterruptedException e) {
             throw new RuntimeException(e);
         } finally {
-            if (lock.isHeldByCurrentThread()) {
+            if (lock != null) {
                 lock.unlock();
             }
         }
     }
 
+    /**
+     * 事务在账户锁内、账户所在分库上开启，提交后才释放锁
+     */
     @Override
-    @Transactional
     public OperationResponse deleteAccount(String accountNumber) {
         String lockKey = ACCOUNT_LOCK_PREFIX + accountNumber;
-        RLock lock = redissonClient.getLock(lockKey);
+        LockProvider.LockHandle lock = null;
 
         try {
-            boolean locked = lock.tryLock(5, 10, TimeUnit.SECONDS);
-            if (!locked) {
+            lock = lockProvider.tryLock(lockKey, 5, 10, TimeUnit.SECONDS);
+            if (lock == null) {
                 throw new BusinessException("BM-002", accountNumber);
             }
-            BankAccountPo account = accountRepository.findByAccountNumber(accountNumber);
-            if (account == null) {
-                log.error("accountNumber = {} is not exist", accountNumber);
-                throw new BusinessException("BM-005", accountNumber);
-            }
-            accountRepository.deleteByAccountNumber(accountNumber);
-            redisUtils.delete(getCacheKey(accountNumber));
-            log.info("accountNumber = {} delete finish", accountNumber);
-            return new OperationResponse("success", "delete finish");
+            return databaseShardRouter.callOnShardOf(accountNumber,
+                    () -> transactionTemplate.execute(status -> doDeleteAccount(accountNumber)));
         } catch (InterruptedException e) {
             throw new RuntimeException(e);
         } finally {
-            if (lock.isHeldByCurrentThread()) {
+            if (lock != null) {
                 lock.unlock();
             }
         }
     }
 
+    private OperationResponse doDeleteAccount(String accountNumber) {
+        // 加行锁：分布式锁降级为本地锁时，与其他节点上的转账、更新仍然互斥
+        BankAccountPo account = accountRepository.findWithLockByAccountNumber(accountNumber).orElse(null);
+        if (account == null) {
+            log.error("accountNumber = {} is not exist", accountNumber);
+            throw new BusinessException("BM-005", accountNumber);
+        }
+        accountRepository.deleteByAccountNumber(accountNumber);
+        accountShardService.deleteShards(accountNumber);
+        accountEventOutboxService.recordDeleted(accountNumber);
+        accountCacheService.evict(accountNumber);
+        if (hotBalanceService.isHot(accountNumber)) {
+            hotBalanceService.unload(accountNumber);
+        }
+        log.info("accountNumber = {} delete finish", accountNumber);
+        return new OperationResponse("success", "delete finish");
+    }
+
+    /**
+     * 在只读事务中查询，开启读写分离时路由到从库；分库时并行查询各库后合并
+     */
     @Override
     public Page<AccountInfoResponse> listAllAccounts(Pageable pageable) {
-        return accountRepository.findAll(pageable)
-                .map(this::mapToAccountResponse);
+        Page<BankAccountPo> accounts = databaseShardRouter.getShardCount() == 1
+                ? readOnlyTransactionTemplate.execute(status -> accountRepository.findAll(pageable))
+                : findAllAcrossShards(pageable);
+        return accounts.map(this::mapToListResponse);
     }
 
     @Override
-    @Transactional
+    public AccountCursorPageResponse listAccountsByCursor(String cursor, int size, Sort.Direction direction) {
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            throw new BusinessException("BM-013", "size");
+        }
+        Long lastId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] parts = decodeCursor(cursor);
+            direction = Sort.Direction.fromString(parts[0]);
+            lastId = Long.valueOf(parts[1]);
+        }
+        // 多读一条用于判断是否还有下一页
+        Pageable pageable = PageRequest.of(0, size + 1, Sort.by(direction, "id"));
+        boolean descending = direction.isDescending();
+        long startId = lastId != null ? lastId : descending ? Long.MAX_VALUE : Long.MIN_VALUE;
+        // 雪花ID全局唯一，各库按ID取前 size + 1 条，合并后的前 size + 1 条即为全局结果
+        List<BankAccountPo> accounts = databaseShardRouter.scatter(shard -> readOnlyTransactionTemplate.execute(status -> descending
+                        ? accountRepository.findByIdLessThan(startId, pageable)
+                        : accountRepository.findByIdGreaterThan(startId, pageable))).stream()
+                .flatMap(List::stream)
+                .sorted(descending ? ID_ORDER.reversed() : ID_ORDER)
+                .limit(size + 1)
+                .toList();
+        boolean hasMore = accounts.size() > size;
+        if (hasMore) {
+            accounts = accounts.subList(0, size);
+        }
+        return AccountCursorPageResponse.builder()
+                .content(accounts.stream().map(this::mapToListResponse).toList())
+                .size(accounts.size())
+                .nextCursor(hasMore ? encodeCursor(direction, accounts.get(accounts.size() - 1).getId()) : null)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * 事务由具体的转账策略开启，乐观锁模式需要在每次重试时开启新事务
+     * 分库时同库转账在所在分库上执行，跨库转账由CrossShardTransferService分步完成并写入流水
+     */
+    @Override
     public OperationResponse transferFunds(TransferRequestParam transferRequestParam) {
+        return transferFunds(transferRequestParam, IdUtils.getNextId());
+    }
+
+    @Override
+    public OperationResponse transferFunds(TransferRequestParam transferRequestParam, long transferId) {
         String toAccountNo = transferRequestParam.getToAccount();
         String fromAccountNo = transferRequestParam.getFromAccount();
-         if (fromAccountNo.equals(toAccountNo)) {
+        if (fromAccountNo.equals(toAccountNo)) {
             throw new BusinessException("BM-006");
         }
-        String firstLock;
-        String secondLock;
-        if (toAccountNo.compareTo(fromAccountNo) < 0) {
-            firstLock = toAccountNo;
-            secondLock = fromAccountNo;
-        } else {
-            firstLock = fromAccountNo;
-            secondLock = toAccountNo;
+        BigDecimal amount = transferRequestParam.getAmount();
+        if (hotBalanceService.handles(fromAccountNo, toAccountNo)) {
+            // 热点转账由HotBalanceService在完成时写入流水
+            hotBalanceService.transfer(transferId, fromAccountNo, toAccountNo, amount);
+            evictTransferAccounts(fromAccountNo, toAccountNo);
+            return new OperationResponse("success", "transfer finish");
+        }
+        if (accountShardService.handles(fromAccountNo, toAccountNo)) {
+            // 分片账户的两条腿均为条件更新，不加账户锁，避免分布式锁把分片重新串行化
+            accountShardService.transfer(transferId, fromAccountNo, toAccountNo, amount);
+            evictTransferAccounts(fromAccountNo, toAccountNo);
+            return new OperationResponse("success", "transfer finish");
+        }
+        LockProvider.LockHandle lock = null;
+        try {
+            if (transferStrategy.requiresAccountLock()) {
+                // 与删除、更新互斥，两个账户的锁在一次调用中按顺序获取
+                lock = lockProvider.tryLockAll(List.of(ACCOUNT_LOCK_PREFIX + fromAccountNo, ACCOUNT_LOCK_PREFIX + toAccountNo),
+                        5, 10, TimeUnit.SECONDS);
+                if (lock == null) {
+                    throw new BusinessException("BM-003", fromAccountNo);
+                }
+            }
+            if (!databaseShardRouter.isSameShard(fromAccountNo, toAccountNo)) {
+                try {
+                    crossShardTransferService.transfer(transferId, fromAccountNo, toAccountNo, amount);
+                } finally {
+                    // 返回BM-018时扣款或入账可能已提交
+                    evictTransferAccounts(fromAccountNo, toAccountNo);
+                }
+                return new OperationResponse("success", "transfer finish");
+            }
+            databaseShardRouter.runOnShardOf(fromAccountNo, () -> transferStrategy.transfer(transferId, fromAccountNo, toAccountNo, amount));
+        } catch (InterruptedException e) {
+            log.error("transfer interrupted, from = {}, to = {}", fromAccountNo, toAccountNo, e);
+            throw new BusinessException("BM-004");
+        } finally {
+            if (lock != null) {
+                lock.unlock();
+            }
         }
 
-        BankAccountPo firstAccount = accountRepository.findWithLockByAccountNumber(firstLock).orElseThrow(() -> new BusinessException("BM-005", firstLock));
-        BankAccountPo secondAccount = accountRepository.findWithLockByAccountNumber(secondLock).orElseThrow(() -> new BusinessException("BM-005", secondLock));
+        evictTransferAccounts(fromAccountNo, toAccountNo);
+        log.info("account = {} to account = {}, amount = {}, mode = {}, transferId = {}", fromAccountNo, toAccountNo, amount,
+                transferStrategy.mode(), transferId);
+        return new OperationResponse("success", "transfer finish");
+    }
 
-        BankAccountPo fromAccount = firstLock.equals(fromAccountNo) ? firstAccount : secondAccount;
-        BankAccountPo toAccount = firstLock.equals(fromAccountNo) ? secondAccount : firstAccount;
+    @Override
+    public BatchTransferResponse transferFundsBatch(BatchTransferRequestParam batchTransferRequestParam) {
+        List<TransferRequestParam> transfers = batchTransferRequestParam.getTransfers();
+        // 汇总涉及的全部账户，按账号升序一次性加锁
+        TreeSet<String> accountNumbers = new TreeSet<>();
+        for (TransferRequestParam transfer : transfers) {
+            accountNumbers.add(transfer.getFromAccount());
+            accountNumbers.add(transfer.getToAccount());
+        }
+        List<String> lockKeys = accountNumbers.stream().map(accountNumber -> ACCOUNT_LOCK_PREFIX + accountNumber).toList();
+        LockProvider.LockHandle lock = null;
+        try {
+            lock = lockProvider.tryLockAll(lockKeys, 5, 30, TimeUnit.SECONDS);
+            if (lock == null) {
+                throw new BusinessException("BM-003", accountNumbers.first());
+            }
+            if (databaseShardRouter.getShardCount() > 1) {
+                return doTransferFundsBatchAcrossShards(transfers);
+            }
+            // 分布式锁在事务提交之后才释放
+            return transactionTemplate.execute(status -> doTransferFundsBatch(transfers, accountNumbers));
+        } catch (InterruptedException e) {
+            log.error("batch transfer interrupted, accounts = {}", accountNumbers.size(), e);
+            throw new BusinessException("BM-004");
+        } finally {
+            if (lock != null) {
+                lock.unlock();
+            }
+        }
+    }
 
-        // 验证余额是否充足
-        if (fromAccount.getBalance().compareTo(transferRequestParam.getAmount()) < 0) {
-            throw new BusinessException("BM-007");
+    /**
+     * 分库时同库的转账按分库分组，每组在所在分库的独立事务中批量记账；跨库转账逐笔执行跨库转账流程
+     * 各组分别提交，整批不再是一个原子操作，每笔转账的结果以results为准
+     */
+    private BatchTransferResponse doTransferFundsBatchAcrossShards(List<TransferRequestParam> transfers) {
+        Map<Integer, List<Integer>> localIndexes = new TreeMap<>();
+        List<Integer> crossShardIndexes = new ArrayList<>();
+        for (int i = 0; i < transfers.size(); i++) {
+            TransferRequestParam transfer = transfers.get(i);
+            if (databaseShardRouter.isSameShard(transfer.getFromAccount(), transfer.getToAccount())) {
+                localIndexes.computeIfAbsent(databaseShardRouter.shardOf(transfer.getFromAccount()), shard -> new ArrayList<>()).add(i);
+            } else {
+                crossShardIndexes.add(i);
+            }
         }
 
-        BigDecimal amount = transferRequestParam.getAmount();
-        fromAccount.setBalance(fromAccount.getBalance().subtract(amount));
-        toAccount.setBalance(toAccount.getBalance().add(amount));
-
-        accountRepository.save(fromAccount);
-        accountRepository.save(toAccount);
-        redisUtils.delete(getCacheKey(fromAccountNo));
-        redisUtils.delete(getCacheKey(toAccountNo));
-        log.info("account = {} to account = {}, amount = {}", fromAccount, toAccount, amount);
-        return new OperationResponse("success", "transfer finish");
+        TransferResultResponse[] results = new TransferResultResponse[transfers.size()];
+        for (Map.Entry<Integer, List<Integer>> entry : localIndexes.entrySet()) {
+            List<Integer> indexes = entry.getValue();
+            List<TransferRequestParam> group = indexes.stream().map(transfers::get).toList();
+            TreeSet<String> groupAccounts = new TreeSet<>();
+            for (TransferRequestParam transfer : group) {
+                groupAccounts.add(transfer.getFromAccount());
+                groupAccounts.add(transfer.getToAccount());
+            }
+            BatchTransferResponse groupResponse = databaseShardRouter.callOnShard(entry.getKey(),
+                    () -> transactionTemplate.execute(status -> doTransferFundsBatch(group, groupAccounts)));
+            // 组内序号换回请求中的序号
+            for (TransferResultResponse result : groupResponse.getResults()) {
+                result.setIndex(indexes.get(result.getIndex()));
+                results[result.getIndex()] = result;
+            }
+        }
+        for (int index : crossShardIndexes) {
+            TransferRequestParam transfer = transfers.get(index);
+            TransferResultResponse.TransferResultResponseBuilder result = TransferResultResponse.builder()
+                    .index(index)
+                    .fromAccount(transfer.getFromAccount())
+                    .toAccount(transfer.getToAccount())
+                    .amount(transfer.getAmount());
+            try {
+                crossShardTransferService.transfer(IdUtils.getNextId(), transfer.getFromAccount(), transfer.getToAccount(), transfer.getAmount());
+                results[index] = result.status("success").build();
+            } catch (BusinessException e) {
+                results[index] = result.status("failed")
+                        .errorCode(e.getErrorCode())
+                        .errorMsg(messageService.getMessage(e.getErrorCode(), e.getArgs()))
+                        .build();
+            } catch (RuntimeException e) {
+                // 扣款提交之后的异常已转为BM-018，此处为扣款未提交的数据库异常，不影响其余转账
+                log.error("batch cross shard transfer error, index = {}, from = {}, to = {}",
+                        index, transfer.getFromAccount(), transfer.getToAccount(), e);
+                results[index] = result.status("failed")
+                        .errorCode("BM-001")
+                        .errorMsg(messageService.getMessage("BM-001"))
+                        .build();
+            } finally {
+                evictTransferAccounts(transfer.getFromAccount(), transfer.getToAccount());
+            }
+        }
+
+        int successCount = (int) Arrays.stream(results).filter(result -> "success".equals(result.getStatus())).count();
+        log.info("batch transfer across shards finish, total = {}, success = {}, shards = {}, cross shard = {}",
+                transfers.size(), successCount, localIndexes.size(), crossShardIndexes.size());
+        return BatchTransferResponse.builder()
+                .total(transfers.size())
+                .successCount(successCount)
+                .failedCount(transfers.size() - successCount)
+                .results(Arrays.asList(results))
+                .build();
+    }
+
+    private BatchTransferResponse doTransferFundsBatch(List<TransferRequestParam> transfers, TreeSet<String> accountNumbers) {
+        Map<String, BankAccountPo> accounts = accountRepository.findAllWithLockByAccountNumberIn(accountNumbers).stream()
+                .collect(Collectors.toMap(BankAccountPo::getAccountNumber, Function.identity(), (a, b) -> a, LinkedHashMap::new));
+
+        // 在内存中依次执行借记与贷记，单笔失败不影响其他转账
+        List<TransferResultResponse> results = new ArrayList<>(transfers.size());
+        Map<String, BankAccountPo> changedAccounts = new LinkedHashMap<>();
+        List<AccountEventPo> events = new ArrayList<>();
+        List<TransferLedgerPo> ledgerEntries = new ArrayList<>();
+        int successCount = 0;
+        for (int i = 0; i < transfers.size(); i++) {
+            TransferRequestParam transfer = transfers.get(i);
+            String errorCode = null;
+            Object[] args = new Object[0];
+            BankAccountPo fromAccount = accounts.get(transfer.getFromAccount());
+            BankAccountPo toAccount = accounts.get(transfer.getToAccount());
+            if (transfer.getFromAccount().equals(transfer.getToAccount())) {
+                errorCode = "BM-006";
+            } else if (hotBalanceService.handles(transfer.getFromAccount(), transfer.getToAccount())) {
+                // 热点账户余额在Redis中，不能参与数据库批量记账
+                errorCode = "BM-011";
+                args = new Object[]{hotBalanceService.isHot(transfer.getFromAccount()) ? transfer.getFromAccount() : transfer.getToAccount()};
+            } else if (accountShardService.handles(transfer.getFromAccount(), transfer.getToAccount())) {
+                // 分片账户的余额分散在多行，批量转账只按主账户余额记账
+                errorCode = "BM-012";
+                args = new Object[]{accountShardService.isSharded(transfer.getFromAccount()) ? transfer.getFromAccount() : transfer.getToAccount()};
+            } else if (fromAccount == null) {
+                errorCode = "BM-005";
+                args = new Object[]{transfer.getFromAccount()};
+            } else if (toAccount == null) {
+                errorCode = "BM-005";
+                args = new Object[]{transfer.getToAccount()};
+            } else if (fromAccount.getBalance().compareTo(transfer.getAmount()) < 0) {
+                errorCode = "BM-007";
+            }
+
+            TransferResultResponse.TransferResultResponseBuilder result = TransferResultResponse.builder()
+                    .index(i)
+                    .fromAccount(transfer.getFromAccount())
+                    .toAccount(transfer.getToAccount())
+                    .amount(transfer.getAmount());
+            if (errorCode != null) {
+                results.add(result.status("failed")
+                        .errorCode(errorCode)
+                        .errorMsg(messageService.getMessage(errorCode, args))
+                        .build());
+                continue;
+            }
+            fromAccount.setBalance(fromAccount.getBalance().subtract(transfer.getAmount()));
+            toAccount.setBalance(toAccount.getBalance().add(transfer.getAmount()));
+            changedAccounts.put(fromAccount.getAccountNumber(), fromAccount);
+            changedAccounts.put(toAccount.getAccountNumber(), toAccount);
+            events.add(accountEventOutboxService.transferEvent(transfer.getFromAccount(), transfer.getToAccount(), transfer.getAmount()));
+            ledgerEntries.addAll(transferLedgerService.entries(String.valueOf(IdUtils.getNextId()),
+                    transfer.getFromAccount(), transfer.getToAccount(), transfer.getAmount()));
+            results.add(result.status("success").build());
+            successCount++;
+        }
+
+        accountBatchRepository.batchUpdateBalances(changedAccounts.values());
+        accountEventOutboxService.record(events);
+        transferLedgerService.record(ledgerEntries);
+        changedAccounts.keySet().forEach(accountCacheService::evict);
+        log.info("batch transfer finish, total = {}, success = {}, changed accounts = {}",
+                transfers.size(), successCount, changedAccounts.size());
+        return BatchTransferResponse.builder()
+                .total(transfers.size())
+                .successCount(successCount)
+                .failedCount(transfers.size() - successCount)
+                .results(results)
+                .build();
+    }
+
+    /**
+     * 在独立事务中更新账户信息，事务提交后再写缓存
+     * @param pessimistic 是否使用 SELECT ... FOR UPDATE 读取账户
+     */
+    private AccountInfoResponse doUpdateAccount(String accountNumber, UpdateAccountRequestParam updatedAccount, boolean pessimistic) {
+        BankAccountPo account = transactionTemplate.execute(status -> {
+            BankAccountPo po = pessimistic
+                    ? accountRepository.findWithLockByAccountNumber(accountNumber).orElse(null)
+                    : accountRepository.findByAccountNumber(accountNumber);
+            if (po == null) {
+                throw new BusinessException("BM-005", accountNumber);
+            }
+            po.setAccountHolderName(updatedAccount.getAccountHolderName());
+            po.setContactNumber(updatedAccount.getContactNumber());
+            BankAccountPo saved = accountRepository.save(po);
+            accountEventOutboxService.recordUpdated(saved);
+            return saved;
+        });
+        accountCacheService.put(account);
+        log.info("update account = {} finish", account);
+        return mapToAccountResponse(account);
+    }
+
+    private void evictTransferAccounts(String fromAccountNo, String toAccountNo) {
+        accountCacheService.evict(fromAccountNo);
+        accountCacheService.evict(toAccountNo);
+    }
+
+    /**
+     * 按分库分组后逐库查询，各分库均在只读事务中执行
+     */
+    private List<BankAccountPo> findAccountsAcrossShards(Collection<String> accountNumbers) {
+        List<BankAccountPo> accounts = new ArrayList<>(accountNumbers.size());
+        databaseShardRouter.groupByShard(accountNumbers).forEach((shard, shardAccountNumbers) ->
+                accounts.addAll(databaseShardRouter.callOnShard(shard,
+                        () -> readOnlyTransactionTemplate.execute(status -> accountRepository.findByAccountNumberIn(shardAccountNumbers)))));
+        return accounts;
+    }
+
+    /**
+     * 各库按同一排序读取前 offset + size 条，合并排序后截取目标页，总数为各库之和
+     * 页码越大各库读取的行数越多，offset + size 超过 bank.sharding.max-page-rows 时抛出BM-013，深分页应使用游标分页
+     */
+    private Page<BankAccountPo> findAllAcrossShards(Pageable pageable) {
+        // 以long计算，避免页码过大时溢出为负数
+        long rows = pageable.getOffset() + pageable.getPageSize();
+        if (rows > maxShardPageRows) {
+            throw new BusinessException("BM-013", "page");
+        }
+        Pageable shardPageable = PageRequest.of(0, (int) rows, pageable.getSort());
+        List<Page<BankAccountPo>> pages = databaseShardRouter.scatter(
+                shard -> readOnlyTransactionTemplate.execute(status -> accountRepository.findAll(shardPageable)));
+        List<BankAccountPo> content = pages.stream()
+                .flatMap(page -> page.getContent().stream())
+                .sorted(accountOrder(pageable.getSort()))
+                .skip(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .toList();
+        return new PageImpl<>(content, pageable, pages.stream().mapToLong(Page::getTotalElements).sum());
+    }
+
+    /**
+     * 与数据库排序一致的内存比较器，排序字段相同时按ID排序，使合并结果稳定
+     */
+    @SuppressWarnings("unchecked")
+    private Comparator<BankAccountPo> accountOrder(Sort sort) {
+        Comparator<BankAccountPo> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<BankAccountPo> next = Comparator.comparing(
+                    (BankAccountPo account) -> (Comparable<Object>) new BeanWrapperImpl(account).getPropertyValue(order.getProperty()),
+                    Comparator.nullsFirst(Comparator.naturalOrder()));
+            if (order.isDescending()) {
+                next = next.reversed();
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator == null ? ID_ORDER : comparator.thenComparing(ID_ORDER);
+    }
+
+    /**
+     * 列表查询不经过缓存，分片账户需要补查总余额
+     */
+    private AccountInfoResponse mapToListResponse(BankAccountPo account) {
+        AccountInfoResponse response = mapToAccountResponse(account);
+        if (accountShardService.isSharded(account.getAccountNumber())) {
+            response.setBalance(accountShardService.getBalance(account.getAccountNumber()));
+        }
+        return response;
+    }
+
+    /**
+     * 游标对调用方不透明，内容为排序方向与上一页最后一条记录的ID
+     */
+    private String encodeCursor(Sort.Direction direction, Long lastId) {
+        String raw = direction.name() + ":" + lastId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String[] decodeCursor(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+            if (parts.length == 2) {
+                Sort.Direction.fromString(parts[0]);
+                Long.parseLong(parts[1]);
+                return parts;
+            }
+        } catch (IllegalArgumentException e) {
+            log.error("invalid cursor = {}", cursor);
+        }
+        throw new BusinessException("BM-013", "cursor");
     }
 
     private AccountInfoResponse mapToAccountResponse(BankAccountPo account) {
@@ -200,8 +830,4 @@ public class AccountManagerServiceImpl implements AccountManagerService {
                 .balance(account.getBalance())
                 .build();
     }
-
-    private String getCacheKey(String accountNumber) {
-        return ACCOUNT_CACHE_PREFIX + accountNumber;
-    }
 }
@@ -0,0 +1,68 @@
+package com.mxh.bank.service.impl;
+
+import com.mxh.bank.config.PhaseTimed;
+import com.mxh.bank.exception.BusinessException;
+import com.mxh.bank.repository.AccountRepository;
+import com.mxh.bank.service.AccountEventOutboxService;
+import com.mxh.bank.service.TransferLedgerService;
+import com.mxh.bank.service.TransferStrategy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+
+/**
+ * 不预先加锁，直接执行带余额条件的UPDATE，根据影响行数判断扣款/入账是否成功
+ * 行锁只在语句执行到事务提交之间持有，减少了查询与回写之间的往返
+ */
+@Component
+public class ConditionalUpdateTransferStrategy implements TransferStrategy {
+    public static final String MODE = "conditional";
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private AccountEventOutboxService accountEventOutboxService;
+
+    @Autowired
+    private TransferLedgerService transferLedgerService;
+
+    @Override
+    public String mode() {
+        return MODE;
+    }
+
+    @Override
+    @PhaseTimed("db_transaction")
+    @Transactional
+    public void transfer(long transferId, String fromAccountNo, String toAccountNo, BigDecimal amount) {
+        // 两条语句同样按账号顺序执行，与悲观锁模式保持一致的加锁顺序，避免互转死锁
+        if (fromAccountNo.compareTo(toAccountNo) < 0) {
+            debit(fromAccountNo, amount);
+            credit(toAccountNo, amount);
+        } else {
+            credit(toAccountNo, amount);
+            debit(fromAccountNo, amount);
+        }
+        accountEventOutboxService.recordTransfer(fromAccountNo, toAccountNo, amount);
+        transferLedgerService.record(String.valueOf(transferId), fromAccountNo, toAccountNo, amount);
+    }
+
+    private void debit(String accountNo, BigDecimal amount) {
+        if (accountRepository.debitIfSufficient(accountNo, amount) == 1) {
+            return;
+        }
+        if (!accountRepository.existsByAccountNumber(accountNo)) {
+            throw new BusinessException("BM-005", accountNo);
+        }
+        throw new BusinessException("BM-007");
+    }
+
+    private void credit(String accountNo, BigDecimal amount) {
+        if (accountRepository.credit(accountNo, amount) != 1) {
+            throw new BusinessException("BM-005", accountNo);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.mxh.bank.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mxh.bank.model.po.AccountEventPo;
+import com.mxh.bank.service.AccountEventSink;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * 追加写入本地文件，每个事件一行JSON（NDJSON），每批写完后刷盘再推进高水位
+ */
+@Component
+@Slf4j
+public class FileAccountEventSink implements AccountEventSink {
+    public static final String TYPE = "file";
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${bank.outbox.file.path:data/account-events.ndjson}")
+    private String path;
+
+    private FileChannel channel;
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    public synchronized void publish(List<AccountEventPo> events) {
+        StringBuilder lines = new StringBuilder(events.size() * 256);
+        for (AccountEventPo event : events) {
+            lines.append(toJson(event)).append('\n');
+        }
+        try {
+            FileChannel fileChannel = channel();
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                fileChannel.write(buffer);
+            }
+            fileChannel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("write account events error, path = " + path, e);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("close account event file error, path = {}", path, e);
+        }
+        channel = null;
+    }
+
+    /**
+     * 首次投递时再打开文件，未选用文件投递时不创建文件
+     */
+    private FileChannel channel() throws IOException {
+        if (channel == null) {
+            Path file = Paths.get(path).toAbsolutePath();
+            Files.createDirectories(file.getParent());
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            log.info("account event file opened, path = {}", file);
+        }
+        return channel;
+    }
+
+    private String toJson(AccountEventPo event) {
+        try {
+            ObjectNode node = objectMapper.createObjectNode();
+            node.put("event_id", event.getId());
+            node.put("event_type", event.getEventType());
+            node.put("account_number", event.getAccountNumber());
+            node.set("payload", objectMapper.readTree(event.getPayload()));
+            node.put("create_time", event.getCreateTime());
+            return objectMapper.writeValueAsString(node);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("serialize account event error, id = " + event.getId(), e);
+        }
+    }
+}
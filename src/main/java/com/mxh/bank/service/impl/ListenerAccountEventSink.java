@@ -0,0 +1,31 @@
+package com.mxh.bank.service.impl;
+
+import com.mxh.bank.model.po.AccountEventPo;
+import com.mxh.bank.service.AccountEventSink;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 以Spring应用事件的形式在进程内投递，监听方通过 @EventListener 接收 AccountEventPo
+ * 监听方同步执行，抛出异常时整批重新投递
+ */
+@Component
+public class ListenerAccountEventSink implements AccountEventSink {
+    public static final String TYPE = "listener";
+
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    public void publish(List<AccountEventPo> events) {
+        events.forEach(applicationEventPublisher::publishEvent);
+    }
+}
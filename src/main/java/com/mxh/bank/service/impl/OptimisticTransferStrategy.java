@@ -0,0 +1,86 @@
+package com.mxh.bank.service.impl;
+
+import com.mxh.bank.config.PhaseTimed;
+import com.mxh.bank.exception.BusinessException;
+import com.mxh.bank.model.po.BankAccountPo;
+import com.mxh.bank.repository.AccountRepository;
+import com.mxh.bank.service.AccountEventOutboxService;
+import com.mxh.bank.service.OptimisticRetryService;
+import com.mxh.bank.service.TransferLedgerService;
+import com.mxh.bank.service.TransferStrategy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+
+/**
+ * 不加锁读取两个账户，提交时依赖@Version校验，冲突后由OptimisticRetryService在新事务中重试
+ */
+@Component
+public class OptimisticTransferStrategy implements TransferStrategy {
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private OptimisticRetryService optimisticRetryService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private AccountEventOutboxService accountEventOutboxService;
+
+    @Autowired
+    private TransferLedgerService transferLedgerService;
+
+    @Override
+    public String mode() {
+        return OptimisticRetryService.MODE;
+    }
+
+    /**
+     * 删除或并发修改会使版本校验失败，无需额外的分布式锁
+     */
+    @Override
+    public boolean requiresAccountLock() {
+        return false;
+    }
+
+    @Override
+    @PhaseTimed("db_transaction")
+    public void transfer(long transferId, String fromAccountNo, String toAccountNo, BigDecimal amount) {
+        optimisticRetryService.execute("transfer", fromAccountNo, () ->
+                transactionTemplate.execute(status -> doTransfer(transferId, fromAccountNo, toAccountNo, amount)));
+    }
+
+    private Void doTransfer(long transferId, String fromAccountNo, String toAccountNo, BigDecimal amount) {
+        // 按账号顺序读取，使flush时的UPDATE顺序一致，避免互转时行锁死锁
+        boolean fromFirst = fromAccountNo.compareTo(toAccountNo) < 0;
+        BankAccountPo firstAccount = load(fromFirst ? fromAccountNo : toAccountNo);
+        BankAccountPo secondAccount = load(fromFirst ? toAccountNo : fromAccountNo);
+        BankAccountPo fromAccount = fromFirst ? firstAccount : secondAccount;
+        BankAccountPo toAccount = fromFirst ? secondAccount : firstAccount;
+
+        if (fromAccount.getBalance().compareTo(amount) < 0) {
+            throw new BusinessException("BM-007");
+        }
+        fromAccount.setBalance(fromAccount.getBalance().subtract(amount));
+        toAccount.setBalance(toAccount.getBalance().add(amount));
+        accountRepository.save(firstAccount);
+        accountRepository.save(secondAccount);
+        // 版本校验在提交时的flush中进行，冲突回滚时事件与流水一并回滚
+        accountEventOutboxService.recordTransfer(fromAccountNo, toAccountNo, amount);
+        transferLedgerService.record(String.valueOf(transferId), fromAccountNo, toAccountNo, amount);
+        return null;
+    }
+
+    private BankAccountPo load(String accountNo) {
+        BankAccountPo account = accountRepository.findByAccountNumber(accountNo);
+        if (account == null) {
+            throw new BusinessException("BM-005", accountNo);
+        }
+        return account;
+    }
+}
@@ -0,0 +1,79 @@
+package com.mxh.bank.service.impl;
+
+import com.mxh.bank.config.PhaseTimed;
+import com.mxh.bank.exception.BusinessException;
+import com.mxh.bank.model.po.BankAccountPo;
+import com.mxh.bank.repository.AccountRepository;
+import com.mxh.bank.service.AccountEventOutboxService;
+import com.mxh.bank.service.BankMetrics;
+import com.mxh.bank.service.TransferLedgerService;
+import com.mxh.bank.service.TransferStrategy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+
+/**
+ * SELECT ... FOR UPDATE 按账号顺序锁定两行后在内存中校验余额并回写
+ */
+@Component
+public class PessimisticTransferStrategy implements TransferStrategy {
+    public static final String MODE = "pessimistic";
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private BankMetrics bankMetrics;
+
+    @Autowired
+    private AccountEventOutboxService accountEventOutboxService;
+
+    @Autowired
+    private TransferLedgerService transferLedgerService;
+
+    @Override
+    public String mode() {
+        return MODE;
+    }
+
+    @Override
+    @PhaseTimed("db_transaction")
+    @Transactional
+    public void transfer(long transferId, String fromAccountNo, String toAccountNo, BigDecimal amount) {
+        String firstLock;
+        String secondLock;
+        if (toAccountNo.compareTo(fromAccountNo) < 0) {
+            firstLock = toAccountNo;
+            secondLock = fromAccountNo;
+        } else {
+            firstLock = fromAccountNo;
+            secondLock = toAccountNo;
+        }
+
+        // 行锁等待单独计时，用于区分数据库锁争用与分布式锁争用
+        BankAccountPo firstAccount = bankMetrics.recordCurrentPhase("row_lock",
+                () -> accountRepository.findWithLockByAccountNumber(firstLock)).orElseThrow(() -> new BusinessException("BM-005", firstLock));
+        BankAccountPo secondAccount = bankMetrics.recordCurrentPhase("row_lock",
+                () -> accountRepository.findWithLockByAccountNumber(secondLock)).orElseThrow(() -> new BusinessException("BM-005", secondLock));
+
+        BankAccountPo fromAccount = firstLock.equals(fromAccountNo) ? firstAccount : secondAccount;
+        BankAccountPo toAccount = firstLock.equals(fromAccountNo) ? secondAccount : firstAccount;
+
+        // 验证余额是否充足
+        if (fromAccount.getBalance().compareTo(amount) < 0) {
+            throw new BusinessException("BM-007");
+        }
+
+        fromAccount.setBalance(fromAccount.getBalance().subtract(amount));
+        toAccount.setBalance(toAccount.getBalance().add(amount));
+
+        accountRepository.save(fromAccount);
+        accountRepository.save(toAccount);
+        // 提前flush以单独统计Hibernate flush耗时，提交时不再有待写入的变更
+        bankMetrics.recordCurrentPhase("flush", accountRepository::flush);
+        accountEventOutboxService.recordTransfer(fromAccountNo, toAccountNo, amount);
+        transferLedgerService.record(String.valueOf(transferId), fromAccountNo, toAccountNo, amount);
+    }
+}
@@ -0,0 +1,191 @@
+package com.mxh.bank.service.impl;
+
+import com.mxh.bank.config.PhaseTimed;
+import com.mxh.bank.model.response.LockStatsResponse;
+import com.mxh.bank.service.LockMetrics;
+import com.mxh.bank.service.LockProvider;
+import com.mxh.bank.utils.RedisCircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于Redisson的分布式锁，多实例部署时使用
+ * Redis熔断期间或加锁时Redis异常，降级为本节点的分段锁：只保证本节点内互斥，
+ * 跨节点的正确性由转账、更新、删除路径上的数据库行锁、条件更新与版本号保证
+ */
+@Component
+@Slf4j
+public class RedissonLockProvider implements LockProvider {
+    public static final String TYPE = "redisson";
+    private static final long RETRY_INTERVAL_MILLIS = 20;
+    /**
+     * KEYS: 锁键; ARGV[1]: 持有者标识; ARGV[2]: 租期毫秒
+     * 成功返回nil，失败返回占用键的剩余毫秒数
+     */
+    private static final String LOCK_ALL_SCRIPT =
+            "for i, key in ipairs(KEYS) do " +
+            "  if redis.call('exists', key) == 1 and redis.call('hexists', key, ARGV[1]) == 0 then " +
+            "    return redis.call('pttl', key); " +
+            "  end; " +
+            "end; " +
+            "for i, key in ipairs(KEYS) do " +
+            "  redis.call('hincrby', key, ARGV[1], 1); " +
+            "  redis.call('pexpire', key, ARGV[2]); " +
+            "end; " +
+            "return nil;";
+    /**
+     * 删除当前持有者的锁，并向Redisson的解锁频道发消息唤醒等待中的RLock
+     */
+    private static final String UNLOCK_ALL_SCRIPT =
+            "for i, key in ipairs(KEYS) do " +
+            "  if redis.call('hexists', key, ARGV[1]) == 1 then " +
+            "    redis.call('del', key); " +
+            "    redis.call('publish', 'redisson_lock__channel:{' .. key .. '}', 0); " +
+            "  end; " +
+            "end; " +
+            "return 1;";
+
+    @Autowired
+    private RedissonClient redissonClient;
+
+    @Autowired
+    private RedisCircuitBreaker redisCircuitBreaker;
+
+    @Autowired
+    private StripedLockProvider fallbackLockProvider;
+
+    private final LockMetrics lockMetrics = new LockMetrics(TYPE);
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @PostConstruct
+    public void init() {
+        if (meterRegistry != null) {
+            lockMetrics.bindTo(meterRegistry);
+        }
+    }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    @PhaseTimed("lock")
+    public LockHandle tryLock(String key, long waitTime, long leaseTime, TimeUnit unit) throws InterruptedException {
+        if (!redisCircuitBreaker.isClosed()) {
+            return fallbackLockProvider.tryLock(key, waitTime, leaseTime, unit);
+        }
+        RLock lock = redissonClient.getLock(key);
+        long start = System.nanoTime();
+        boolean locked = false;
+        try {
+            locked = lock.tryLock(waitTime, leaseTime, unit);
+            redisCircuitBreaker.recordSuccess();
+        } catch (RedisException e) {
+            redisCircuitBreaker.recordFailure(e);
+            log.error("redisson lock error, fallback to local lock, key = {}", key, e);
+            return fallbackLockProvider.tryLock(key, waitTime, leaseTime, unit);
+        } finally {
+            lockMetrics.record(key, System.nanoTime() - start, locked);
+        }
+        return locked ? () -> unlock(lock) : null;
+    }
+
+    /**
+     * 通过一次脚本调用原子地获取全部锁，任一键被其他持有者占用时整体失败并返回其剩余时间后重试
+     * 锁结构与Redisson RLock一致（hash + 过期时间），因此与单键RLock互斥
+     * 脚本涉及多个键，Redis Cluster部署时需保证这些键位于同一slot
+     */
+    @Override
+    @PhaseTimed("lock")
+    public LockHandle tryLockAll(Collection<String> keys, long waitTime, long leaseTime, TimeUnit unit) throws InterruptedException {
+        if (!redisCircuitBreaker.isClosed()) {
+            return fallbackLockProvider.tryLockAll(keys, waitTime, leaseTime, unit);
+        }
+        List<Object> lockKeys = new ArrayList<>(new TreeSet<>(keys));
+        String owner = UUID.randomUUID() + ":" + Thread.currentThread().getId();
+        long leaseMillis = unit.toMillis(leaseTime);
+        long start = System.nanoTime();
+        long deadline = start + unit.toNanos(waitTime);
+        RScript script = redissonClient.getScript(StringCodec.INSTANCE);
+        boolean locked = false;
+        try {
+            while (true) {
+                Long ttl;
+                try {
+                    ttl = script.eval(RScript.Mode.READ_WRITE, LOCK_ALL_SCRIPT, RScript.ReturnType.INTEGER,
+                            lockKeys, owner, leaseMillis);
+                    redisCircuitBreaker.recordSuccess();
+                } catch (RedisException e) {
+                    // 脚本原子执行，失败时不会持有部分锁
+                    redisCircuitBreaker.recordFailure(e);
+                    log.error("redisson lock all error, fallback to local lock, keys = {}", keys, e);
+                    return fallbackLockProvider.tryLockAll(keys, Math.max(0, deadline - System.nanoTime()), leaseTime, TimeUnit.NANOSECONDS);
+                }
+                if (ttl == null) {
+                    locked = true;
+                    return () -> unlockAll(script, lockKeys, owner);
+                }
+                long remainingNanos = deadline - System.nanoTime();
+                if (remainingNanos <= 0) {
+                    return null;
+                }
+                // 等待时间取占用方剩余时间与轮询间隔中的较小值，避免频繁调用脚本
+                long sleepMillis = Math.min(ttl > 0 ? ttl : RETRY_INTERVAL_MILLIS,
+                        ThreadLocalRandom.current().nextLong(1, RETRY_INTERVAL_MILLIS + 1));
+                TimeUnit.MILLISECONDS.sleep(Math.min(sleepMillis, TimeUnit.NANOSECONDS.toMillis(remainingNanos) + 1));
+            }
+        } finally {
+            long waitNanos = System.nanoTime() - start;
+            for (Object key : lockKeys) {
+                lockMetrics.record((String) key, waitNanos, locked);
+            }
+        }
+    }
+
+    @Override
+    public List<LockStatsResponse> getStats() {
+        return lockMetrics.snapshot();
+    }
+
+    /**
+     * 解锁时Redis异常只记录日志，锁在租期到达后自动释放
+     */
+    private void unlock(RLock lock) {
+        try {
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        } catch (RedisException e) {
+            redisCircuitBreaker.recordFailure(e);
+            log.error("redisson unlock error, key = {}", lock.getName(), e);
+        }
+    }
+
+    private void unlockAll(RScript script, List<Object> lockKeys, String owner) {
+        try {
+            script.eval(RScript.Mode.READ_WRITE, UNLOCK_ALL_SCRIPT, RScript.ReturnType.INTEGER, lockKeys, owner);
+        } catch (RedisException e) {
+            redisCircuitBreaker.recordFailure(e);
+            log.error("redisson unlock all error, keys = {}", lockKeys, e);
+        }
+    }
+}
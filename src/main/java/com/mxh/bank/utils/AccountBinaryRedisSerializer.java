@@ -0,0 +1,192 @@
+package com.mxh.bank.utils;
+
+import com.mxh.bank.model.po.BankAccountPo;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 账户缓存的紧凑二进制编码，其他类型的值（空值占位、失效消息等）仍交给JSON序列化
+ * 格式：魔数(1) 版本(1) 字段存在标记(1)，随后按顺序写入存在的字段
+ * 整数字段为zigzag变长编码，余额以分为单位的整数保存，字符串为变长长度前缀加UTF-8字节
+ * 魔数不是ASCII字符，而JSON总是以ASCII字符开头，因此两种编码可以共存，切换编码时不需要清理缓存
+ */
+public class AccountBinaryRedisSerializer implements RedisSerializer<Object> {
+    public static final byte MAGIC = (byte) 0xAC;
+    public static final byte VERSION = 1;
+    private static final int HEADER_SIZE = 3;
+    private static final int MAX_VARLONG_SIZE = 10;
+    private static final int MAX_VARINT_SIZE = 5;
+
+    private static final int FLAG_ID = 1;
+    private static final int FLAG_ACCOUNT_NUMBER = 1 << 1;
+    private static final int FLAG_ACCOUNT_HOLDER_NAME = 1 << 2;
+    private static final int FLAG_CONTACT_NUMBER = 1 << 3;
+    private static final int FLAG_BALANCE = 1 << 4;
+    private static final int FLAG_CREATE_TIME = 1 << 5;
+    private static final int FLAG_VERSION = 1 << 6;
+
+    private final RedisSerializer<Object> fallback;
+
+    public AccountBinaryRedisSerializer() {
+        this(new GenericJackson2JsonRedisSerializer());
+    }
+
+    public AccountBinaryRedisSerializer(RedisSerializer<Object> fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (!(value instanceof BankAccountPo account)) {
+            return fallback.serialize(value);
+        }
+        byte[] accountNumber = utf8(account.getAccountNumber());
+        byte[] accountHolderName = utf8(account.getAccountHolderName());
+        byte[] contactNumber = utf8(account.getContactNumber());
+        Writer writer = new Writer(HEADER_SIZE + 4 * MAX_VARLONG_SIZE + 3 * MAX_VARINT_SIZE
+                + length(accountNumber) + length(accountHolderName) + length(contactNumber));
+        int flags = (account.getId() != null ? FLAG_ID : 0)
+                | (accountNumber != null ? FLAG_ACCOUNT_NUMBER : 0)
+                | (accountHolderName != null ? FLAG_ACCOUNT_HOLDER_NAME : 0)
+                | (contactNumber != null ? FLAG_CONTACT_NUMBER : 0)
+                | (account.getBalance() != null ? FLAG_BALANCE : 0)
+                | (account.getCreateTime() != null ? FLAG_CREATE_TIME : 0)
+                | (account.getVersion() != null ? FLAG_VERSION : 0);
+        writer.writeByte(MAGIC);
+        writer.writeByte(VERSION);
+        writer.writeByte(flags);
+        if (account.getId() != null) {
+            writer.writeLong(account.getId());
+        }
+        writer.writeBytes(accountNumber);
+        writer.writeBytes(accountHolderName);
+        writer.writeBytes(contactNumber);
+        if (account.getBalance() != null) {
+            try {
+                writer.writeLong(AmountUtils.toCents(account.getBalance()));
+            } catch (ArithmeticException e) {
+                throw new SerializationException("balance cannot be encoded as cents: " + account.getBalance(), e);
+            }
+        }
+        if (account.getCreateTime() != null) {
+            writer.writeLong(account.getCreateTime());
+        }
+        if (account.getVersion() != null) {
+            writer.writeLong(account.getVersion());
+        }
+        return writer.toByteArray();
+    }
+
+    /**
+     * 无法识别的版本返回null，缓存层按未命中处理并用当前版本重新写入，编码升级或回退时无需清理缓存
+     */
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != MAGIC) {
+            return fallback.deserialize(bytes);
+        }
+        if (bytes.length < HEADER_SIZE || bytes[1] != VERSION) {
+            return null;
+        }
+        try {
+            Reader reader = new Reader(bytes, HEADER_SIZE);
+            int flags = bytes[2];
+            BankAccountPo account = new BankAccountPo();
+            account.setId((flags & FLAG_ID) != 0 ? reader.readLong() : null);
+            account.setAccountNumber((flags & FLAG_ACCOUNT_NUMBER) != 0 ? reader.readString() : null);
+            account.setAccountHolderName((flags & FLAG_ACCOUNT_HOLDER_NAME) != 0 ? reader.readString() : null);
+            account.setContactNumber((flags & FLAG_CONTACT_NUMBER) != 0 ? reader.readString() : null);
+            account.setBalance((flags & FLAG_BALANCE) != 0 ? AmountUtils.fromCents(reader.readLong()) : null);
+            account.setCreateTime((flags & FLAG_CREATE_TIME) != 0 ? reader.readLong() : null);
+            account.setVersion((flags & FLAG_VERSION) != 0 ? reader.readLong() : null);
+            return account;
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new SerializationException("truncated account cache entry, length = " + bytes.length, e);
+        }
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static final class Writer {
+        private final byte[] buffer;
+        private int position;
+
+        private Writer(int capacity) {
+            this.buffer = new byte[capacity];
+        }
+
+        private void writeByte(int value) {
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeLong(long value) {
+            long zigzag = (value << 1) ^ (value >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            buffer[position++] = (byte) zigzag;
+        }
+
+        private void writeBytes(byte[] bytes) {
+            if (bytes == null) {
+                return;
+            }
+            writeLong(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] buffer;
+        private int position;
+
+        private Reader(byte[] buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        private long readLong() {
+            long zigzag = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = buffer[position++];
+                zigzag |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+                if (shift >= 63) {
+                    throw new SerializationException("malformed varlong at " + position);
+                }
+            }
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+
+        private String readString() {
+            int length = (int) readLong();
+            if (length < 0 || position + length > buffer.length) {
+                throw new SerializationException("malformed string length " + length + " at " + position);
+            }
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.mxh.bank.utils;
+
+import java.math.BigDecimal;
+
+public final class AmountUtils {
+    private static final int SCALE = 2;
+
+    private AmountUtils() {
+    }
+
+    /**
+     * 金额转换为以分为单位的整数，超过两位小数时抛出ArithmeticException
+     */
+    public static long toCents(BigDecimal amount) {
+        return amount.movePointRight(SCALE).longValueExact();
+    }
+
+    /**
+     * 以分为单位的整数转换为两位小数的金额
+     */
+    public static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+}
@@ -1,12 +1,53 @@
 package com.mxh.bank.utils;
 
-import cn.hutool.core.lang.Snowflake;
-import cn.hutool.core.util.IdUtil;
-
 public final class IdUtils {
-    private static final Snowflake SNOWFLAKE = IdUtil.getSnowflake(1, 1);
+    /**
+     * 与此前IdUtil.getSnowflake(1, 1)相同的节点号（数据中心1、机器1），未分配节点号时沿用
+     */
+    public static final int DEFAULT_WORKER_ID = 33;
+    public static final int DEFAULT_BLOCK_SIZE = 32;
+
+    private static volatile SnowflakeIdGenerator generator = new SnowflakeIdGenerator(DEFAULT_WORKER_ID, DEFAULT_BLOCK_SIZE);
+
+    /**
+     * 节点号租约的发号截止时间，超过后拒绝发号，避免租约过期后节点号被其他节点抢占而生成重复ID；未使用租约时不限制
+     */
+    private static volatile long leaseDeadlineMillis = Long.MAX_VALUE;
+
+    private IdUtils() {
+    }
 
+    /**
+     * @throws IllegalStateException 节点号租约未能按时续约
+     */
     public static Long getNextId() {
-        return SNOWFLAKE.nextId();
+        if (System.currentTimeMillis() >= leaseDeadlineMillis) {
+            throw new IllegalStateException("id worker lease is not renewed in time, deadline = " + leaseDeadlineMillis);
+        }
+        while (true) {
+            long id = generator.nextId();
+            if (id != SnowflakeIdGenerator.RETIRED) {
+                return id;
+            }
+            // 生成器正在被替换，等待新生成器生效
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * 切换节点号，由IdWorkerAssigner在启动及租约重新分配时调用
+     * 先停用旧生成器再从其未用过的毫秒开始发号：切换期间仍持有旧生成器的线程无法再预留号段，节点号不变时也不会与此前的ID重复
+     */
+    public static synchronized void configure(int workerId, int blockSize) {
+        // 参数非法时保留旧生成器
+        SnowflakeIdGenerator.checkArguments(workerId, blockSize);
+        generator = new SnowflakeIdGenerator(workerId, blockSize, generator.retire());
+    }
+
+    /**
+     * 设置发号截止时间，由IdWorkerAssigner在取得及续约租约后调用，取值应早于租约在Redis中的过期时间
+     */
+    public static void setLeaseDeadline(long deadlineMillis) {
+        leaseDeadlineMillis = deadlineMillis;
     }
 }
@@ -0,0 +1,209 @@
+package com.mxh.bank.utils;
+
+import com.mxh.bank.exception.BusinessException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.client.RedisException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Redis熔断器：连续失败（含超过bank.redis.breaker.slow-call-millis的慢调用）达到阈值后熔断，
+ * 熔断期间缓存读写直接降级（读走数据库、写入待恢复后删除），分布式锁降级为本地锁，依赖数据库行锁保证跨节点的正确性
+ * 熔断open-millis后由定时探测进入半开状态发送PING，探测成功并执行完恢复动作（补删缓存、清空L1）后才关闭，失败则重新熔断
+ * 熔断状态通过健康检查的redisCircuitBreaker组件展示，服务在熔断期间仍可用，因此状态保持UP
+ */
+@Component("redisCircuitBreaker")
+@Slf4j
+public class RedisCircuitBreaker implements HealthIndicator {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    @Autowired
+    private RedisConnectionFactory redisConnectionFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${bank.redis.breaker.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bank.redis.breaker.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${bank.redis.breaker.slow-call-millis:500}")
+    private long slowCallMillis;
+
+    @Value("${bank.redis.breaker.open-millis:10000}")
+    private long openMillis;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    private final List<Runnable> recoveryActions = new CopyOnWriteArrayList<>();
+
+    private volatile long openedAt;
+
+    private volatile String lastFailure;
+
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    public void init() {
+        rejectedCounter = Counter.builder("bank.redis.breaker.rejected").register(meterRegistry);
+        Gauge.builder("bank.redis.breaker.state", state, current -> current.get().ordinal())
+                .register(meterRegistry);
+    }
+
+    /**
+     * 执行Redis命令，熔断中直接返回降级结果；命令抛出Redis访问异常时计入失败并返回降级结果
+     */
+    public <T> T call(Supplier<T> action, Supplier<T> fallback) {
+        if (!enabled) {
+            return action.get();
+        }
+        if (!isClosed()) {
+            rejectedCounter.increment();
+            return fallback.get();
+        }
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            if (!isRedisFailure(e)) {
+                throw e;
+            }
+            recordFailure(e);
+            return fallback.get();
+        }
+        if (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= slowCallMillis) {
+            markFailure("slow call, threshold = " + slowCallMillis + " ms");
+        } else {
+            recordSuccess();
+        }
+        return result;
+    }
+
+    public void run(Runnable action, Runnable fallback) {
+        call(() -> {
+            action.run();
+            return null;
+        }, () -> {
+            fallback.run();
+            return null;
+        });
+    }
+
+    /**
+     * 熔断器关闭时才允许访问Redis，未启用熔断时始终返回true
+     */
+    public boolean isClosed() {
+        return !enabled || state.get() == State.CLOSED;
+    }
+
+    /**
+     * 以Redis为唯一数据源、无法降级的操作（如热点账户记账）在熔断期间快速失败
+     */
+    public void checkAvailable() {
+        if (!isClosed()) {
+            rejectedCounter.increment();
+            throw new BusinessException("BM-017");
+        }
+    }
+
+    public void recordSuccess() {
+        consecutiveFailures.set(0);
+    }
+
+    public void recordFailure(Throwable e) {
+        markFailure(e.getClass().getSimpleName() + ": " + e.getMessage());
+    }
+
+    private void markFailure(String reason) {
+        if (!enabled) {
+            return;
+        }
+        lastFailure = reason;
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold && state.compareAndSet(State.CLOSED, State.OPEN)) {
+            openedAt = System.currentTimeMillis();
+            log.error("redis circuit breaker open, consecutiveFailures = {}, lastFailure = {}", consecutiveFailures.get(), lastFailure);
+        }
+    }
+
+    /**
+     * Spring Data Redis将客户端异常转换为DataAccessException，Redisson的异常均继承RedisException
+     */
+    public boolean isRedisFailure(Throwable e) {
+        return e instanceof DataAccessException || e instanceof RedisException;
+    }
+
+    /**
+     * 注册恢复动作，在熔断器关闭前执行，用于补偿熔断期间未能写入Redis的变更
+     */
+    public void addRecoveryAction(Runnable action) {
+        recoveryActions.add(action);
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * 半开探测：熔断时间到达后发送PING，成功则执行恢复动作并关闭熔断器，失败则重新计时
+     */
+    @Scheduled(fixedDelayString = "${bank.redis.breaker.probe-interval-millis:1000}")
+    public void probe() {
+        if (!enabled || state.get() != State.OPEN || System.currentTimeMillis() - openedAt < openMillis) {
+            return;
+        }
+        if (!state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+            return;
+        }
+        try (RedisConnection connection = redisConnectionFactory.getConnection()) {
+            connection.ping();
+            recoveryActions.forEach(Runnable::run);
+            consecutiveFailures.set(0);
+            state.set(State.CLOSED);
+            log.info("redis circuit breaker closed, open duration = {} ms", System.currentTimeMillis() - openedAt);
+        } catch (RuntimeException e) {
+            lastFailure = e.getClass().getSimpleName() + ": " + e.getMessage();
+            openedAt = System.currentTimeMillis();
+            state.set(State.OPEN);
+            log.error("redis circuit breaker probe failed, reopen for {} ms", openMillis, e);
+        }
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder = Health.up()
+                .withDetail("enabled", enabled)
+                .withDetail("state", state.get())
+                .withDetail("consecutiveFailures", consecutiveFailures.get());
+        if (state.get() != State.CLOSED) {
+            builder.withDetail("openedAt", openedAt)
+                    .withDetail("lastFailure", String.valueOf(lastFailure));
+        }
+        return builder.build();
+    }
+}
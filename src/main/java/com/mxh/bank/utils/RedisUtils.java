@@ -1,32 +1,127 @@
 package com.mxh.bank.utils;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
 
+/**
+ * 每类命令的耗时记录在bank.redis.command计时器中，包含序列化与网络往返
+ * 命令经过RedisCircuitBreaker执行，Redis不可用时读命令按未命中返回，写入与删除的键记录下来，
+ * 熔断恢复时统一删除，避免熔断期间已变更的数据在恢复后仍从Redis读到旧值
+ */
 @Component
+@Slf4j
 public class RedisUtils {
+    private static final int PENDING_DELETE_BATCH = 1000;
+
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private RedisCircuitBreaker redisCircuitBreaker;
+
+    @Value("${bank.redis.breaker.max-pending-deletes:100000}")
+    private int maxPendingDeletes;
+
+    /**
+     * 熔断期间未能写入或删除的键，超过上限的部分只能依靠缓存TTL过期
+     */
+    private final Set<String> pendingDeletes = ConcurrentHashMap.newKeySet();
+
+    private Timer setTimer;
+
+    private Timer getTimer;
+
+    private Timer deleteTimer;
+
+    private Timer publishTimer;
+
+    private Timer pipelineSetTimer;
+
+    private Timer multiGetTimer;
+
+    @PostConstruct
+    public void init() {
+        setTimer = commandTimer("set");
+        getTimer = commandTimer("get");
+        deleteTimer = commandTimer("delete");
+        publishTimer = commandTimer("publish");
+        pipelineSetTimer = commandTimer("pipeline_set");
+        multiGetTimer = commandTimer("mget");
+        redisCircuitBreaker.addRecoveryAction(this::deletePending);
+    }
+
     public void set(String key, Object value) {
-        redisTemplate.opsForValue().set(key, value);
+        redisCircuitBreaker.run(() -> setTimer.record(() -> redisTemplate.opsForValue().set(key, value)),
+                () -> deleteLater(List.of(key)));
     }
 
     /**
      * 设置缓存并指定过期时间
      */
     public void set(String key, Object value, long time, TimeUnit unit) {
-        redisTemplate.opsForValue().set(key, value, time, unit);
+        redisCircuitBreaker.run(() -> setTimer.record(() -> redisTemplate.opsForValue().set(key, value, time, unit)),
+                () -> deleteLater(List.of(key)));
+    }
+
+    /**
+     * 通过管道批量设置缓存，一次往返写入全部键
+     * @param ttlSeconds 按值计算每个键的过期时间（秒），逐键调用以便加入随机抖动
+     */
+    public void pipelineSet(Map<String, Object> values, ToLongFunction<Object> ttlSeconds) {
+        redisCircuitBreaker.run(() -> pipelineSetTimer.record(() -> redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                values.forEach((key, value) -> ops.opsForValue().set(key, value, ttlSeconds.applyAsLong(value), TimeUnit.SECONDS));
+                return null;
+            }
+        })), () -> deleteLater(values.keySet()));
+    }
+
+    /**
+     * 获取缓存原始值
+     */
+    public Object get(String key) {
+        return redisCircuitBreaker.call(() -> getTimer.record(() -> redisTemplate.opsForValue().get(key)), () -> null);
+    }
+
+    /**
+     * 一次MGET获取多个键的原始值
+     * @return 与keys顺序一致的值列表，不存在的键对应null
+     */
+    public List<Object> multiGet(List<String> keys) {
+        List<Object> values = redisCircuitBreaker.call(() -> multiGetTimer.record(() -> redisTemplate.opsForValue().multiGet(keys)),
+                () -> null);
+        return values == null ? Collections.nCopies(keys.size(), null) : values;
     }
 
     /**
      * 获取缓存
      */
     public <T> T get(String key, Class<T> clazz) {
-        Object result = redisTemplate.opsForValue().get(key);
+        Object result = get(key);
         if (result == null) {
             return null;
         }
@@ -41,7 +136,51 @@ public class RedisUtils {
      * 删除缓存
      */
     public Boolean delete(String key) {
-        return redisTemplate.delete(key);
+        return redisCircuitBreaker.call(() -> deleteTimer.record(() -> redisTemplate.delete(key)), () -> {
+            deleteLater(List.of(key));
+            return false;
+        });
+    }
+
+    /**
+     * 向频道发布消息，熔断期间丢弃
+     */
+    public void publish(String channel, Object message) {
+        redisCircuitBreaker.run(() -> publishTimer.record(() -> redisTemplate.convertAndSend(channel, message)), () -> {
+        });
+    }
+
+    private void deleteLater(Collection<String> keys) {
+        for (String key : keys) {
+            if (pendingDeletes.size() >= maxPendingDeletes) {
+                log.error("too many pending redis deletes, dropped key = {}", key);
+                return;
+            }
+            pendingDeletes.add(key);
+        }
+    }
+
+    /**
+     * 熔断恢复时删除熔断期间记录的键，直接访问Redis，失败时抛出异常使熔断器保持打开
+     */
+    private void deletePending() {
+        List<String> keys = new ArrayList<>(pendingDeletes);
+        if (keys.isEmpty()) {
+            return;
+        }
+        // 分批删除，避免单条命令过大阻塞Redis
+        for (int from = 0; from < keys.size(); from += PENDING_DELETE_BATCH) {
+            List<String> batch = keys.subList(from, Math.min(from + PENDING_DELETE_BATCH, keys.size()));
+            redisTemplate.delete(batch);
+            batch.forEach(pendingDeletes::remove);
+        }
+        log.info("pending redis deletes applied, count = {}", keys.size());
+    }
+
+    private Timer commandTimer(String command) {
+        return Timer.builder("bank.redis.command")
+                .tag("command", command)
+                .register(meterRegistry);
     }
 }
 
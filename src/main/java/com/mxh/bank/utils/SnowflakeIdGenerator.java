@@ -0,0 +1,126 @@
+package com.mxh.bank.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 分段发号的雪花ID生成器，位布局与hutool Snowflake一致：41位毫秒时间戳 | 10位节点号 | 12位序列号
+ * 各线程通过一次CAS从共享状态中预留同一毫秒内的一段序列号，之后在线程内无锁发号
+ * 时钟进入下一毫秒时丢弃线程内剩余的序列号，旧毫秒的序列号不会再被使用，因此不会浪费号段，ID仍按毫秒有序
+ * 同一毫秒的序列号用完或时钟回拨时借用后续毫秒，领先系统时钟超过MAX_AHEAD_MILLIS时等待时钟追上
+ */
+public class SnowflakeIdGenerator {
+    /**
+     * 与hutool Snowflake默认起始时间一致，切换生成器后新ID仍大于此前生成的ID
+     */
+    public static final long EPOCH = 1288834974657L;
+    public static final int WORKER_ID_BITS = 10;
+    public static final int MAX_WORKER_ID = (1 << WORKER_ID_BITS) - 1;
+    private static final int SEQUENCE_BITS = 12;
+    private static final int SEQUENCE_LIMIT = 1 << SEQUENCE_BITS;
+    private static final long MAX_AHEAD_MILLIS = 1000;
+    /**
+     * 生成器已停用的状态标记，也是停用后nextId的返回值
+     */
+    public static final long RETIRED = -1;
+
+    private final long workerBits;
+
+    private final int blockSize;
+
+    /**
+     * 高位为最后预留号段的相对时间戳，低12位为该毫秒内下一个可分配的序列号
+     */
+    private final AtomicLong state = new AtomicLong();
+
+    private final ThreadLocal<Block> blocks = ThreadLocal.withInitial(Block::new);
+
+    /**
+     * @param workerId 节点号，0 ~ 1023
+     * @param blockSize 每次预留的序列号数量，1 ~ 4096，越大CAS越少，但同一毫秒可参与发号的线程越少
+     */
+    public SnowflakeIdGenerator(int workerId, int blockSize) {
+        this(workerId, blockSize, 0);
+    }
+
+    /**
+     * @param minTimestamp 最小的相对时间戳，替换同一节点号的旧生成器时传入旧生成器retire()的返回值，避免同一毫秒内重复发号
+     */
+    public SnowflakeIdGenerator(int workerId, int blockSize, long minTimestamp) {
+        checkArguments(workerId, blockSize);
+        this.workerBits = (long) workerId << SEQUENCE_BITS;
+        this.blockSize = blockSize;
+        this.state.set(minTimestamp << SEQUENCE_BITS);
+    }
+
+    static void checkArguments(int workerId, int blockSize) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("workerId must be between 0 and " + MAX_WORKER_ID + ": " + workerId);
+        }
+        if (blockSize < 1 || blockSize > SEQUENCE_LIMIT) {
+            throw new IllegalArgumentException("blockSize must be between 1 and " + SEQUENCE_LIMIT + ": " + blockSize);
+        }
+    }
+
+    /**
+     * @return 新ID，生成器已停用且线程内没有可用的号段时返回RETIRED
+     */
+    public long nextId() {
+        Block block = blocks.get();
+        if ((block.next >= block.end || block.timestamp < System.currentTimeMillis() - EPOCH) && !reserve(block)) {
+            return RETIRED;
+        }
+        return (block.timestamp << (WORKER_ID_BITS + SEQUENCE_BITS)) | workerBits | block.next++;
+    }
+
+    /**
+     * 停用生成器：之后不再预留新的号段，各线程已预留的号段仍可用完
+     * 替换生成器时以返回值作为新生成器的minTimestamp，停用后旧生成器不会再进入该时间戳及之后的毫秒，新旧生成器不会重复发号
+     * @return 尚未被预留过任何序列号的最小相对时间戳
+     */
+    public long retire() {
+        return (state.getAndSet(RETIRED) >>> SEQUENCE_BITS) + 1;
+    }
+
+    public static int workerIdOf(long id) {
+        return (int) ((id >>> SEQUENCE_BITS) & MAX_WORKER_ID);
+    }
+
+    private boolean reserve(Block block) {
+        while (true) {
+            long now = System.currentTimeMillis() - EPOCH;
+            long current = state.get();
+            if (current == RETIRED) {
+                return false;
+            }
+            long timestamp = current >>> SEQUENCE_BITS;
+            long sequence = current & (SEQUENCE_LIMIT - 1);
+            if (now > timestamp) {
+                timestamp = now;
+                sequence = 0;
+            } else if (sequence + blockSize > SEQUENCE_LIMIT) {
+                timestamp++;
+                sequence = 0;
+            }
+            if (timestamp - now > MAX_AHEAD_MILLIS) {
+                // 发号速度持续超过上限或时钟大幅回拨，等待时钟追上
+                LockSupport.parkNanos(100_000);
+                continue;
+            }
+            long end = sequence + blockSize;
+            // 序列号用完时低12位为4096，会进位到时间戳，与下一毫秒从0开始等价
+            if (state.compareAndSet(current, (timestamp << SEQUENCE_BITS) + end)) {
+                block.timestamp = timestamp;
+                block.next = sequence;
+                block.end = end;
+                return true;
+            }
+        }
+    }
+
+    private static final class Block {
+        private long timestamp = -1;
+        private long next;
+        private long end;
+    }
+}
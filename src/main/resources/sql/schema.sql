@@ -4,4 +4,105 @@ CREATE TABLE IF NOT EXISTS bank_account (
     account_holder_name VARCHAR(255) NOT NULL,
     contact_number VARCHAR(255) NOT NULL,
     balance DECIMAL(19, 2) NOT NULL DEFAULT 0.00,
-    create_time BIGINT NOT NULL);
\ No newline at end of file
+    create_time BIGINT NOT NULL,
+    version BIGINT NOT NULL DEFAULT 0);
+
+CREATE TABLE IF NOT EXISTS hot_balance_journal (
+    entry_id VARCHAR(64) NOT NULL PRIMARY KEY,
+    transfer_id VARCHAR(64) NOT NULL,
+    account_number VARCHAR(255) NOT NULL,
+    delta BIGINT NOT NULL,
+    create_time BIGINT NOT NULL);
+
+CREATE INDEX IF NOT EXISTS idx_hot_balance_journal_account ON hot_balance_journal (account_number, create_time);
+
+CREATE TABLE IF NOT EXISTS hot_balance_checkpoint (
+    name VARCHAR(64) NOT NULL PRIMARY KEY,
+    last_entry_id VARCHAR(64) NOT NULL);
+
+CREATE TABLE IF NOT EXISTS bank_account_shard (
+    id BIGINT NOT NULL PRIMARY KEY,
+    account_number VARCHAR(255) NOT NULL,
+    shard_no INT NOT NULL,
+    balance DECIMAL(19, 2) NOT NULL DEFAULT 0.00,
+    version BIGINT NOT NULL DEFAULT 0,
+    CONSTRAINT uk_bank_account_shard UNIQUE (account_number, shard_no));
+
+CREATE TABLE IF NOT EXISTS transfer_ledger (
+    entry_id BIGINT NOT NULL PRIMARY KEY,
+    transfer_id VARCHAR(64) NOT NULL,
+    account_number VARCHAR(255) NOT NULL,
+    counterparty_account VARCHAR(255) NOT NULL,
+    direction VARCHAR(8) NOT NULL,
+    amount DECIMAL(19, 2) NOT NULL,
+    create_time BIGINT NOT NULL);
+
+CREATE INDEX IF NOT EXISTS idx_transfer_ledger_account_time ON transfer_ledger (account_number, create_time, entry_id);
+
+CREATE INDEX IF NOT EXISTS idx_transfer_ledger_transfer ON transfer_ledger (transfer_id);
+
+CREATE TABLE IF NOT EXISTS transfer_ledger_pending (
+    entry_id BIGINT NOT NULL PRIMARY KEY,
+    transfer_id VARCHAR(64) NOT NULL,
+    account_number VARCHAR(255) NOT NULL,
+    counterparty_account VARCHAR(255) NOT NULL,
+    direction VARCHAR(8) NOT NULL,
+    amount DECIMAL(19, 2) NOT NULL,
+    create_time BIGINT NOT NULL);
+
+CREATE TABLE IF NOT EXISTS account_event_outbox (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    event_type VARCHAR(32) NOT NULL,
+    account_number VARCHAR(255) NOT NULL,
+    payload VARCHAR(4000) NOT NULL,
+    create_time BIGINT NOT NULL);
+
+CREATE TABLE IF NOT EXISTS account_event_checkpoint (
+    name VARCHAR(64) NOT NULL PRIMARY KEY,
+    last_id BIGINT NOT NULL);
+
+CREATE TABLE IF NOT EXISTS replication_heartbeat (
+    id INT NOT NULL PRIMARY KEY,
+    beat_time BIGINT NOT NULL);
+
+CREATE TABLE IF NOT EXISTS pending_transfer (
+    transfer_id BIGINT NOT NULL PRIMARY KEY,
+    from_account VARCHAR(255) NOT NULL,
+    to_account VARCHAR(255) NOT NULL,
+    amount DECIMAL(19, 2) NOT NULL,
+    status VARCHAR(16) NOT NULL,
+    create_time BIGINT NOT NULL,
+    update_time BIGINT NOT NULL);
+
+CREATE INDEX IF NOT EXISTS idx_pending_transfer_status_time ON pending_transfer (status, create_time);
+
+CREATE TABLE IF NOT EXISTS transfer_credit (
+    transfer_id BIGINT NOT NULL PRIMARY KEY,
+    account_number VARCHAR(255) NOT NULL,
+    amount DECIMAL(19, 2) NOT NULL,
+    status VARCHAR(16) NOT NULL,
+    create_time BIGINT NOT NULL);
+
+CREATE TABLE IF NOT EXISTS hot_transfer (
+    transfer_id BIGINT NOT NULL PRIMARY KEY,
+    from_account VARCHAR(255) NOT NULL,
+    to_account VARCHAR(255) NOT NULL,
+    amount DECIMAL(19, 2) NOT NULL,
+    status VARCHAR(16) NOT NULL,
+    create_time BIGINT NOT NULL,
+    update_time BIGINT NOT NULL);
+
+CREATE INDEX IF NOT EXISTS idx_hot_transfer_status_time ON hot_transfer (status, create_time);
+
+CREATE TABLE IF NOT EXISTS async_transfer (
+    transfer_id BIGINT NOT NULL PRIMARY KEY,
+    from_account VARCHAR(255) NOT NULL,
+    to_account VARCHAR(255) NOT NULL,
+    amount DECIMAL(19, 2) NOT NULL,
+    status VARCHAR(16) NOT NULL,
+    error_code VARCHAR(16),
+    error_args VARCHAR(1024),
+    create_time BIGINT NOT NULL,
+    update_time BIGINT NOT NULL);
+
+CREATE INDEX IF NOT EXISTS idx_async_transfer_status_time ON async_transfer (status, update_time);
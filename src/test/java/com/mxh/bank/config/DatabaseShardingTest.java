@@ -0,0 +1,324 @@
+package com.mxh.bank.config;
+
+import com.mxh.bank.exception.BusinessException;
+import com.mxh.bank.model.po.PendingTransferPo;
+import com.mxh.bank.model.request.BatchGetAccountRequestParam;
+import com.mxh.bank.model.request.BatchTransferRequestParam;
+import com.mxh.bank.model.request.CreateAccountRequestParam;
+import com.mxh.bank.model.request.TransferRequestParam;
+import com.mxh.bank.model.response.AccountCursorPageResponse;
+import com.mxh.bank.model.response.AccountInfoResponse;
+import com.mxh.bank.model.response.BatchTransferResponse;
+import com.mxh.bank.model.response.TransferResultResponse;
+import com.mxh.bank.service.AccountExportService;
+import com.mxh.bank.service.AccountManagerService;
+import com.mxh.bank.service.CrossShardTransferService;
+import com.mxh.bank.utils.RedisUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * 三个H2内存库作为三个分库，0号库为测试默认库，其余两个库的表结构由init-schema初始化
+ * 余额通过JDBC直接读写各分库，不经过缓存
+ */
+@SpringBootTest(properties = {
+        "bank.lock.provider=local",
+        "bank.sharding.enabled=true",
+        "bank.sharding.shard-count=3",
+        "bank.sharding.init-schema=true",
+        "bank.sharding.pending-timeout-millis=1000",
+        "bank.sharding.recovery-interval-millis=3600000",
+        "bank.sharding.shards[0].jdbc-url=jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "bank.sharding.shards[0].driver-class-name=org.h2.Driver",
+        "bank.sharding.shards[0].username=root",
+        "bank.sharding.shards[0].password=",
+        "bank.sharding.shards[1].jdbc-url=jdbc:h2:mem:shard2;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "bank.sharding.shards[1].driver-class-name=org.h2.Driver",
+        "bank.sharding.shards[1].username=root",
+        "bank.sharding.shards[1].password="})
+@ActiveProfiles("test")
+public class DatabaseShardingTest {
+    private static final String PREFIX = "SHD_";
+    private static final int ACCOUNTS = 30;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("100.00");
+
+    @Autowired
+    private AccountManagerService accountManagerService;
+
+    @Autowired
+    private CrossShardTransferService crossShardTransferService;
+
+    @Autowired
+    private AccountExportService accountExportService;
+
+    @Autowired
+    private DatabaseShardRouter databaseShardRouter;
+
+    @Autowired
+    private DatabaseShardRoutingDataSource routingDataSource;
+
+    @MockBean
+    private RedissonClient redissonClient;
+
+    @MockBean
+    private RedisUtils redisUtils;
+
+    private List<JdbcTemplate> shards;
+
+    private List<String> accountNumbers;
+
+    @BeforeEach
+    void setUp() {
+        shards = IntStream.range(0, databaseShardRouter.getShardCount())
+                .mapToObj(shard -> new JdbcTemplate(routingDataSource.getResolvedDataSources().get(shard)))
+                .toList();
+        accountNumbers = IntStream.range(0, ACCOUNTS).mapToObj(i -> String.format(PREFIX + "%03d", i)).toList();
+        accountNumbers.forEach(accountNumber -> accountManagerService.createAccount(createRequest(accountNumber)));
+        for (JdbcTemplate shard : shards) {
+            shard.update("UPDATE bank_account SET balance = ? WHERE account_number LIKE ?", INITIAL_BALANCE, PREFIX + "%");
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (JdbcTemplate shard : shards) {
+            shard.update("DELETE FROM bank_account WHERE account_number LIKE ?", PREFIX + "%");
+            shard.update("DELETE FROM pending_transfer WHERE from_account LIKE ?", PREFIX + "%");
+            shard.update("DELETE FROM transfer_credit WHERE account_number LIKE ?", PREFIX + "%");
+        }
+    }
+
+    @Test
+    void testAccounts_StoredOnlyOnOwningShard() {
+        for (int shard = 0; shard < shards.size(); shard++) {
+            List<String> stored = shards.get(shard).queryForList(
+                    "SELECT account_number FROM bank_account WHERE account_number LIKE ?", String.class, PREFIX + "%");
+            Assertions.assertFalse(stored.isEmpty(), "no account on shard " + shard);
+            for (String accountNumber : stored) {
+                Assertions.assertEquals(shard, databaseShardRouter.shardOf(accountNumber));
+            }
+        }
+        Assertions.assertEquals(ACCOUNTS, countAccounts());
+
+        BatchGetAccountRequestParam request = new BatchGetAccountRequestParam();
+        request.setAccountNumbers(accountNumbers);
+        Assertions.assertEquals(ACCOUNTS, accountManagerService.getAccounts(request).getAccounts().size());
+        Assertions.assertEquals(PREFIX + "007", accountManagerService.getAccount(PREFIX + "007").getAccountNumber());
+    }
+
+    @Test
+    void testTransfer_SameShardAndCrossShard() {
+        String[] local = findPair(true);
+        String[] cross = findPair(false, local);
+
+        accountManagerService.transferFunds(buildTransfer(local[0], local[1], "10.00"));
+        Assertions.assertEquals(new BigDecimal("90.00"), balanceOf(local[0]));
+        Assertions.assertEquals(new BigDecimal("110.00"), balanceOf(local[1]));
+
+        accountManagerService.transferFunds(buildTransfer(cross[0], cross[1], "30.00"));
+        Assertions.assertEquals(new BigDecimal("70.00"), balanceOf(cross[0]));
+        Assertions.assertEquals(new BigDecimal("130.00"), balanceOf(cross[1]));
+        Assertions.assertEquals(List.of(PendingTransferPo.STATUS_COMPLETED), shardOf(cross[0]).queryForList(
+                "SELECT status FROM pending_transfer WHERE from_account = ?", String.class, cross[0]));
+        Assertions.assertEquals(List.of(PendingTransferPo.CREDIT_APPLIED), shardOf(cross[1]).queryForList(
+                "SELECT status FROM transfer_credit WHERE account_number = ?", String.class, cross[1]));
+
+        // 余额不足时不扣款，也不留下转账记录
+        BusinessException exception = Assertions.assertThrows(BusinessException.class,
+                () -> accountManagerService.transferFunds(buildTransfer(cross[0], cross[1], "1000.00")));
+        Assertions.assertEquals("BM-007", exception.getErrorCode());
+        Assertions.assertEquals(1, shardOf(cross[0]).queryForObject(
+                "SELECT COUNT(*) FROM pending_transfer WHERE from_account = ?", Integer.class, cross[0]));
+        Assertions.assertEquals(INITIAL_BALANCE.multiply(BigDecimal.valueOf(ACCOUNTS)), totalBalance());
+    }
+
+    @Test
+    void testRecover_CompletesOrCompensatesPendingTransfers() {
+        String[] cross = findPair(false);
+        String missing = IntStream.range(0, 1000).mapToObj(i -> PREFIX + "MISSING_" + i)
+                .filter(accountNumber -> !databaseShardRouter.isSameShard(cross[0], accountNumber))
+                .findFirst()
+                .orElseThrow();
+        // 模拟扣款已提交、入账前进程退出的两笔转账
+        long old = System.currentTimeMillis() - 60_000;
+        PendingTransferPo completable = insertPending(1L, cross[0], cross[1], "20.00", old);
+        PendingTransferPo compensable = insertPending(2L, cross[0], missing, "5.00", old);
+
+        crossShardTransferService.recover();
+        Assertions.assertEquals(new BigDecimal("80.00"), balanceOf(cross[0]));
+        Assertions.assertEquals(new BigDecimal("120.00"), balanceOf(cross[1]));
+        Assertions.assertEquals(PendingTransferPo.STATUS_COMPLETED, statusOf(cross[0], 1L));
+        Assertions.assertEquals(PendingTransferPo.STATUS_COMPENSATED, statusOf(cross[0], 2L));
+
+        // 重复执行不会重复入账或退款
+        Assertions.assertEquals(PendingTransferPo.STATUS_COMPLETED, crossShardTransferService.recover(completable));
+        Assertions.assertEquals(PendingTransferPo.STATUS_COMPENSATED, crossShardTransferService.recover(compensable));
+        Assertions.assertEquals(new BigDecimal("80.00"), balanceOf(cross[0]));
+        Assertions.assertEquals(new BigDecimal("120.00"), balanceOf(cross[1]));
+        Assertions.assertEquals(INITIAL_BALANCE.multiply(BigDecimal.valueOf(ACCOUNTS)), totalBalance());
+    }
+
+    @Test
+    void testTransferFundsBatch_GroupsByShard() {
+        String[] local = findPair(true);
+        String[] cross = findPair(false, local);
+        BatchTransferRequestParam request = new BatchTransferRequestParam();
+        request.setTransfers(List.of(
+                buildTransfer(cross[0], cross[1], "40.00"),
+                buildTransfer(local[0], local[1], "25.00"),
+                buildTransfer(cross[0], cross[1], "80.00"),
+                buildTransfer(local[1], PREFIX + "NOT_EXIST", "1.00")));
+
+        BatchTransferResponse response = accountManagerService.transferFundsBatch(request);
+
+        Assertions.assertEquals(2, response.getSuccessCount());
+        Assertions.assertEquals(List.of(0, 1, 2, 3), response.getResults().stream().map(TransferResultResponse::getIndex).toList());
+        Assertions.assertEquals(List.of("success", "success", "failed", "failed"),
+                response.getResults().stream().map(TransferResultResponse::getStatus).toList());
+        Assertions.assertEquals("BM-007", response.getResults().get(2).getErrorCode());
+        Assertions.assertEquals("BM-005", response.getResults().get(3).getErrorCode());
+        Assertions.assertEquals(new BigDecimal("75.00"), balanceOf(local[0]));
+        Assertions.assertEquals(INITIAL_BALANCE.multiply(BigDecimal.valueOf(ACCOUNTS)), totalBalance());
+    }
+
+    @Test
+    void testListAndExport_MergeAllShards() throws Exception {
+        Sort sort = Sort.by(Sort.Direction.ASC, "accountNumber");
+        Page<AccountInfoResponse> all = accountManagerService.listAllAccounts(PageRequest.of(0, 10_000, sort));
+        List<String> expected = all.getContent().stream().map(AccountInfoResponse::getAccountNumber).toList();
+        Assertions.assertEquals(expected.stream().sorted().toList(), expected);
+        Assertions.assertTrue(expected.containsAll(accountNumbers));
+
+        // 逐页读取的结果与一次读取一致
+        List<String> paged = new ArrayList<>();
+        for (int page = 0; page * 7 < all.getTotalElements(); page++) {
+            Page<AccountInfoResponse> result = accountManagerService.listAllAccounts(PageRequest.of(page, 7, sort));
+            Assertions.assertEquals(all.getTotalElements(), result.getTotalElements());
+            result.getContent().forEach(account -> paged.add(account.getAccountNumber()));
+        }
+        Assertions.assertEquals(expected, paged);
+
+        // 页码过大时拒绝，而不是溢出为负的读取行数
+        BusinessException exception = Assertions.assertThrows(BusinessException.class,
+                () -> accountManagerService.listAllAccounts(PageRequest.of(Integer.MAX_VALUE / 7, 7, sort)));
+        Assertions.assertEquals("BM-013", exception.getErrorCode());
+
+        // 游标分页按ID降序遍历全部分库
+        List<AccountInfoResponse> byId = accountManagerService.listAllAccounts(
+                PageRequest.of(0, 10_000, Sort.by(Sort.Direction.DESC, "id"))).getContent();
+        List<String> cursorPaged = new ArrayList<>();
+        String cursor = null;
+        do {
+            AccountCursorPageResponse page = accountManagerService.listAccountsByCursor(cursor, 7, Sort.Direction.DESC);
+            page.getContent().forEach(account -> cursorPaged.add(account.getAccountNumber()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        Assertions.assertEquals(byId.stream().map(AccountInfoResponse::getAccountNumber).toList(), cursorPaged);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        accountExportService.export(AccountExportService.ExportFormat.CSV, null, null, outputStream);
+        Set<String> exported = Arrays.stream(outputStream.toString(StandardCharsets.UTF_8).split("\n"))
+                .map(line -> line.split(",")[0])
+                .filter(accountNumber -> accountNumber.startsWith(PREFIX))
+                .collect(Collectors.toSet());
+        Assertions.assertEquals(Set.copyOf(accountNumbers), exported);
+    }
+
+    /**
+     * @param sameShard 是否要求两个账户位于同一分库
+     * @param excluded 不参与选择的账户，使各组转账的余额互不影响
+     */
+    private String[] findPair(boolean sameShard, String... excluded) {
+        List<String> candidates = accountNumbers.stream().filter(accountNumber -> !Arrays.asList(excluded).contains(accountNumber)).toList();
+        for (String from : candidates) {
+            for (String to : candidates) {
+                if (!from.equals(to) && databaseShardRouter.isSameShard(from, to) == sameShard) {
+                    return new String[]{from, to};
+                }
+            }
+        }
+        throw new IllegalStateException("no account pair found, sameShard = " + sameShard);
+    }
+
+    private PendingTransferPo insertPending(long transferId, String from, String to, String amount, long createTime) {
+        PendingTransferPo transfer = PendingTransferPo.builder()
+                .transferId(transferId)
+                .fromAccount(from)
+                .toAccount(to)
+                .amount(new BigDecimal(amount))
+                .status(PendingTransferPo.STATUS_PENDING)
+                .createTime(createTime)
+                .updateTime(createTime)
+                .build();
+        shardOf(from).update("UPDATE bank_account SET balance = balance - ? WHERE account_number = ?", transfer.getAmount(), from);
+        shardOf(from).update("INSERT INTO pending_transfer (transfer_id, from_account, to_account, amount, status, create_time, update_time) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?)", transferId, from, to, transfer.getAmount(), transfer.getStatus(),
+                createTime, createTime);
+        return transfer;
+    }
+
+    private String statusOf(String from, long transferId) {
+        return shardOf(from).queryForObject("SELECT status FROM pending_transfer WHERE transfer_id = ?", String.class, transferId);
+    }
+
+    private JdbcTemplate shardOf(String accountNumber) {
+        return shards.get(databaseShardRouter.shardOf(accountNumber));
+    }
+
+    private BigDecimal balanceOf(String accountNumber) {
+        return shardOf(accountNumber).queryForObject(
+                "SELECT balance FROM bank_account WHERE account_number = ?", BigDecimal.class, accountNumber);
+    }
+
+    private int countAccounts() {
+        return shards.stream()
+                .mapToInt(shard -> shard.queryForObject(
+                        "SELECT COUNT(*) FROM bank_account WHERE account_number LIKE ?", Integer.class, PREFIX + "%"))
+                .sum();
+    }
+
+    private BigDecimal totalBalance() {
+        return shards.stream()
+                .map(shard -> shard.queryForObject(
+                        "SELECT COALESCE(SUM(balance), 0) FROM bank_account WHERE account_number LIKE ?", BigDecimal.class, PREFIX + "%"))
+                .reduce(BigDecimal.ZERO, BigDecimal::add)
+                .setScale(2);
+    }
+
+    private TransferRequestParam buildTransfer(String from, String to, String amount) {
+        TransferRequestParam param = new TransferRequestParam();
+        param.setFromAccount(from);
+        param.setToAccount(to);
+        param.setAmount(new BigDecimal(amount));
+        return param;
+    }
+
+    private CreateAccountRequestParam createRequest(String accountNumber) {
+        CreateAccountRequestParam param = new CreateAccountRequestParam();
+        param.setAccountNumber(accountNumber);
+        param.setAccountHolderName(accountNumber);
+        param.setContactNumber("13900000000");
+        return param;
+    }
+}
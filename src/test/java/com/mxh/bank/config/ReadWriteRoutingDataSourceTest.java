@@ -0,0 +1,130 @@
+package com.mxh.bank.config;
+
+import com.mxh.bank.model.request.CreateAccountRequestParam;
+import com.mxh.bank.model.request.UpdateAccountRequestParam;
+import com.mxh.bank.model.response.AccountInfoResponse;
+import com.mxh.bank.service.AccountManagerService;
+import com.mxh.bank.utils.RedisUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 两个H2内存库分别作为主库与从库，测试代码直接写入从库模拟复制
+ */
+@SpringBootTest(properties = {
+        "bank.lock.provider=local",
+        "bank.datasource.replica.enabled=true",
+        "bank.datasource.replica.jdbc-url=" + ReadWriteRoutingDataSourceTest.REPLICA_URL,
+        "bank.datasource.replica.driver-class-name=org.h2.Driver",
+        "bank.datasource.replica.username=root",
+        "bank.datasource.replica.password=",
+        "bank.datasource.replica.max-lag-millis=1000",
+        "bank.datasource.replica.heartbeat-interval-millis=3600000"})
+@ActiveProfiles("test")
+public class ReadWriteRoutingDataSourceTest {
+    static final String REPLICA_URL = "jdbc:h2:mem:replicadb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE";
+
+    @Autowired
+    private AccountManagerService accountManagerService;
+
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @MockBean
+    private RedissonClient redissonClient;
+
+    @MockBean
+    private RedisUtils redisUtils;
+
+    private JdbcTemplate replication;
+
+    @BeforeEach
+    void setUp() {
+        DataSource replicationDataSource = new DriverManagerDataSource(REPLICA_URL, "root", "");
+        new ResourceDatabasePopulator(new ClassPathResource("sql/schema.sql")).execute(replicationDataSource);
+        replication = new JdbcTemplate(replicationDataSource);
+    }
+
+    @AfterEach
+    void tearDown() {
+        replication.update("DELETE FROM bank_account");
+        replication.update("DELETE FROM replication_heartbeat");
+    }
+
+    @Test
+    void testReadOnlyTransactions_RoutedToReplicaWithinLagBound() {
+        accountManagerService.createAccount(createRequest("RW_PRIMARY"));
+        // 从库只有一条主库没有的账户，用于区分只读事务读的是哪个库
+        replication.update("INSERT INTO bank_account (id, account_number, account_holder_name, contact_number, balance, create_time, version) "
+                + "VALUES (1, 'RW_REPLICA', 'RW_REPLICA', '13900000000', 0, ?, 0)", System.currentTimeMillis());
+
+        // 从库尚无心跳，回退到主库
+        replicaLagMonitor.refresh();
+        Assertions.assertFalse(replicaLagMonitor.isReplicaAvailable());
+        Assertions.assertEquals(Set.of("RW_PRIMARY"), recentAccountNumbers());
+
+        // 心跳同步到从库后，只读事务读从库
+        long primaryBeat = new JdbcTemplate(primaryDataSource)
+                .queryForObject("SELECT beat_time FROM replication_heartbeat WHERE id = 1", Long.class);
+        replication.update("MERGE INTO replication_heartbeat (id, beat_time) KEY (id) VALUES (1, ?)", primaryBeat);
+        replicaLagMonitor.checkLag();
+        Assertions.assertTrue(replicaLagMonitor.isReplicaAvailable());
+        Assertions.assertEquals(Set.of("RW_REPLICA"), recentAccountNumbers());
+
+        // 写操作仍在主库执行
+        UpdateAccountRequestParam update = new UpdateAccountRequestParam();
+        update.setAccountHolderName("RW_PRIMARY_NEW");
+        update.setContactNumber("13800000000");
+        Assertions.assertEquals("RW_PRIMARY_NEW", accountManagerService.updateAccount("RW_PRIMARY", update).getAccountHolderName());
+        Assertions.assertEquals(0, replication.queryForObject(
+                "SELECT COUNT(*) FROM bank_account WHERE account_number = 'RW_PRIMARY'", Integer.class));
+
+        // 从库延迟超过上限后回退到主库
+        replication.update("UPDATE replication_heartbeat SET beat_time = ? WHERE id = 1", primaryBeat - 5000);
+        replicaLagMonitor.checkLag();
+        Assertions.assertFalse(replicaLagMonitor.isReplicaAvailable());
+        Assertions.assertEquals(Set.of("RW_PRIMARY"), recentAccountNumbers());
+
+        accountManagerService.deleteAccount("RW_PRIMARY");
+    }
+
+    private Set<String> recentAccountNumbers() {
+        List<AccountInfoResponse> accounts = accountManagerService.listAllAccounts(
+                PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "id"))).getContent();
+        return accounts.stream()
+                .map(AccountInfoResponse::getAccountNumber)
+                .filter(accountNumber -> accountNumber.startsWith("RW_"))
+                .collect(Collectors.toSet());
+    }
+
+    private CreateAccountRequestParam createRequest(String accountNumber) {
+        CreateAccountRequestParam param = new CreateAccountRequestParam();
+        param.setAccountNumber(accountNumber);
+        param.setAccountHolderName(accountNumber);
+        param.setContactNumber("13900000000");
+        return param;
+    }
+}
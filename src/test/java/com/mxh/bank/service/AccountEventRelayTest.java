@@ -0,0 +1,226 @@
+package com.mxh.bank.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mxh.bank.exception.BusinessException;
+import com.mxh.bank.model.po.AccountEventPo;
+import com.mxh.bank.model.request.CreateAccountRequestParam;
+import com.mxh.bank.model.request.TransferRequestParam;
+import com.mxh.bank.model.request.UpdateAccountRequestParam;
+import com.mxh.bank.repository.AccountEventOutboxRepository;
+import com.mxh.bank.service.impl.FileAccountEventSink;
+import com.mxh.bank.utils.RedisUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.event.EventListener;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@SpringBootTest(properties = "bank.lock.provider=local")
+@ActiveProfiles("test")
+public class AccountEventRelayTest {
+
+    @Autowired
+    private AccountManagerService accountManagerService;
+
+    @Autowired
+    private AccountEventRelay accountEventRelay;
+
+    @Autowired
+    private EventCollector eventCollector;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private AccountEventOutboxRepository accountEventOutboxRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @MockBean
+    private RedissonClient redissonClient;
+
+    @MockBean
+    private RedisUtils redisUtils;
+
+    @Test
+    void testMutations_RelayedInCommitOrderAndRolledBackWithTransaction() throws Exception {
+        accountManagerService.createAccount(createRequest("OUTBOX_A"));
+        accountManagerService.createAccount(createRequest("OUTBOX_B"));
+        UpdateAccountRequestParam update = new UpdateAccountRequestParam();
+        update.setAccountHolderName("OUTBOX_A_NEW");
+        update.setContactNumber("13800000000");
+        accountManagerService.updateAccount("OUTBOX_A", update);
+        // 余额不足的转账回滚，不产生事件
+        Assertions.assertThrows(BusinessException.class, () -> accountManagerService.transferFunds(transfer("OUTBOX_A", "OUTBOX_B", "1.00")));
+        accountManagerService.deleteAccount("OUTBOX_A");
+        accountManagerService.deleteAccount("OUTBOX_B");
+
+        List<AccountEventPo> events = awaitEvents(5);
+        Assertions.assertEquals(List.of(AccountEventPo.ACCOUNT_CREATED, AccountEventPo.ACCOUNT_CREATED, AccountEventPo.ACCOUNT_UPDATED,
+                        AccountEventPo.ACCOUNT_DELETED, AccountEventPo.ACCOUNT_DELETED),
+                events.stream().map(AccountEventPo::getEventType).toList());
+        for (int i = 1; i < events.size(); i++) {
+            Assertions.assertTrue(events.get(i).getId() > events.get(i - 1).getId());
+        }
+        JsonNode updated = objectMapper.readTree(events.get(2).getPayload());
+        Assertions.assertEquals("OUTBOX_A_NEW", updated.get("account_holder_name").asText());
+        Assertions.assertEquals("OUTBOX_B", events.get(4).getAccountNumber());
+    }
+
+    @Test
+    void testRelay_PublishesEventCommittedAfterGapWasSkipped() throws Exception {
+        Object relay = AopTestUtils.getTargetObject(accountEventRelay);
+        Object gapTimeoutMillis = ReflectionTestUtils.getField(relay, "gapTimeoutMillis");
+        ReflectionTestUtils.setField(relay, "gapTimeoutMillis", 0L);
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        try {
+            // 较小的ID先分配、后提交
+            CompletableFuture<Void> slow = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+                accountEventOutboxRepository.batchInsert(List.of(AccountEventPo.builder()
+                        .eventType(AccountEventPo.ACCOUNT_CREATED)
+                        .accountNumber("GAP_LATE")
+                        .payload("{\"account_number\":\"GAP_LATE\"}")
+                        .createTime(System.currentTimeMillis())
+                        .build()));
+                inserted.countDown();
+                try {
+                    Assertions.assertTrue(commit.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            Assertions.assertTrue(inserted.await(10, TimeUnit.SECONDS));
+            accountManagerService.createAccount(createRequest("GAP_EARLY"));
+            AccountEventPo early = awaitEvent("GAP_EARLY");
+            Assertions.assertNotNull(early);
+
+            commit.countDown();
+            slow.get(10, TimeUnit.SECONDS);
+            AccountEventPo late = awaitEvent("GAP_LATE");
+            Assertions.assertNotNull(late);
+            Assertions.assertTrue(late.getId() < early.getId());
+        } finally {
+            commit.countDown();
+            ReflectionTestUtils.setField(relay, "gapTimeoutMillis", gapTimeoutMillis);
+            accountManagerService.deleteAccount("GAP_EARLY");
+        }
+    }
+
+    @Test
+    void testFileSink_AppendsNdjsonLines(@TempDir Path directory) throws IOException {
+        FileAccountEventSink sink = new FileAccountEventSink();
+        Path file = directory.resolve("events/account-events.ndjson");
+        ReflectionTestUtils.setField(sink, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(sink, "path", file.toString());
+        try {
+            sink.publish(List.of(event(1L, "{\"account_number\":\"FILE_A\"}"), event(2L, "{\"account_number\":\"FILE_B\"}")));
+            sink.publish(List.of(event(3L, "{\"account_number\":\"FILE_C\"}")));
+        } finally {
+            sink.close();
+        }
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        Assertions.assertEquals(3, lines.size());
+        JsonNode last = objectMapper.readTree(lines.get(2));
+        Assertions.assertEquals(3L, last.get("event_id").asLong());
+        Assertions.assertEquals(AccountEventPo.ACCOUNT_CREATED, last.get("event_type").asText());
+        Assertions.assertEquals("FILE_C", last.get("payload").get("account_number").asText());
+    }
+
+    private List<AccountEventPo> awaitEvents(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (outboxEvents().size() < expected && System.currentTimeMillis() < deadline) {
+            accountEventRelay.relay();
+            Thread.sleep(20);
+        }
+        return outboxEvents();
+    }
+
+    private AccountEventPo awaitEvent(String accountNumber) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            for (AccountEventPo event : eventCollector.events) {
+                if (event.getAccountNumber().equals(accountNumber)) {
+                    return event;
+                }
+            }
+            accountEventRelay.relay();
+            Thread.sleep(20);
+        }
+        return null;
+    }
+
+    private List<AccountEventPo> outboxEvents() {
+        return eventCollector.events.stream()
+                .filter(event -> event.getAccountNumber().startsWith("OUTBOX_"))
+                .toList();
+    }
+
+    private AccountEventPo event(long id, String payload) {
+        return AccountEventPo.builder()
+                .id(id)
+                .eventType(AccountEventPo.ACCOUNT_CREATED)
+                .accountNumber("FILE")
+                .payload(payload)
+                .createTime(System.currentTimeMillis())
+                .build();
+    }
+
+    private CreateAccountRequestParam createRequest(String accountNumber) {
+        CreateAccountRequestParam param = new CreateAccountRequestParam();
+        param.setAccountNumber(accountNumber);
+        param.setAccountHolderName(accountNumber);
+        param.setContactNumber("13900000000");
+        return param;
+    }
+
+    private TransferRequestParam transfer(String from, String to, String amount) {
+        TransferRequestParam param = new TransferRequestParam();
+        param.setFromAccount(from);
+        param.setToAccount(to);
+        param.setAmount(new BigDecimal(amount));
+        return param;
+    }
+
+    static class EventCollector {
+        private final Queue<AccountEventPo> events = new ConcurrentLinkedQueue<>();
+
+        @EventListener
+        public void onEvent(AccountEventPo event) {
+            events.add(event);
+        }
+    }
+
+    @TestConfiguration
+    static class EventCollectorConfiguration {
+
+        @Bean
+        EventCollector eventCollector() {
+            return new EventCollector();
+        }
+    }
+}
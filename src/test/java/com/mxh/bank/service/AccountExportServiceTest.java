@@ -0,0 +1,83 @@
+package com.mxh.bank.service;
+
+import com.mxh.bank.exception.BusinessException;
+import com.mxh.bank.model.po.BankAccountPo;
+import com.mxh.bank.repository.AccountRepository;
+import com.mxh.bank.utils.RedisUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class AccountExportServiceTest {
+
+    @Autowired
+    private AccountExportService accountExportService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @MockBean
+    private RedissonClient redissonClient;
+
+    @MockBean
+    private RedisUtils redisUtils;
+
+    @Test
+    @Transactional
+    void testExport_NdjsonWithCreateTimeRange() throws Exception {
+        createAccount("EXPORT001", "Export User", 1000L);
+        createAccount("EXPORT002", "Export User", 2000L);
+        createAccount("EXPORT003", "Export User", 3000L);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        long count = accountExportService.export(AccountExportService.ExportFormat.NDJSON, 2000L, 3000L, outputStream);
+
+        String content = outputStream.toString(StandardCharsets.UTF_8);
+        Assertions.assertEquals(1, count);
+        Assertions.assertEquals("{\"account_number\":\"EXPORT002\",\"account_holder_name\":\"Export User\","
+                + "\"contact_number\":\"EXPORT002\",\"balance\":100.00,\"create_time\":2000}\n", content);
+    }
+
+    @Test
+    @Transactional
+    void testExport_CsvEscapesFields() throws Exception {
+        createAccount("EXPORT001", "Doe, \"John\"", 1000L);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        accountExportService.export(AccountExportService.ExportFormat.CSV, null, null, outputStream);
+
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+        Assertions.assertEquals("account_number,account_holder_name,contact_number,balance,create_time", lines[0]);
+        Assertions.assertEquals("EXPORT001,\"Doe, \"\"John\"\"\",EXPORT001,100.00,1000", lines[1]);
+    }
+
+    @Test
+    void testExport_InvalidParameters() {
+        BusinessException exception = Assertions.assertThrows(BusinessException.class,
+                () -> AccountExportService.ExportFormat.of("xml"));
+        Assertions.assertEquals("BM-013", exception.getErrorCode());
+        exception = Assertions.assertThrows(BusinessException.class, () -> accountExportService.validate(3000L, 2000L));
+        Assertions.assertEquals("BM-013", exception.getErrorCode());
+    }
+
+    private void createAccount(String accountNumber, String holderName, long createTime) {
+        accountRepository.saveAndFlush(BankAccountPo.builder()
+                .accountNumber(accountNumber)
+                .accountHolderName(holderName)
+                .contactNumber(accountNumber)
+                .balance(new BigDecimal("100.00"))
+                .createTime(createTime)
+                .build());
+    }
+}
@@ -0,0 +1,163 @@
+package com.mxh.bank.service;
+
+import com.mxh.bank.exception.BusinessException;
+import com.mxh.bank.model.po.AsyncTransferPo;
+import com.mxh.bank.model.po.BankAccountPo;
+import com.mxh.bank.model.request.TransferRequestParam;
+import com.mxh.bank.model.response.TransferStatusResponse;
+import com.mxh.bank.repository.AccountRepository;
+import com.mxh.bank.repository.AsyncTransferRepository;
+import com.mxh.bank.utils.IdUtils;
+import com.mxh.bank.utils.RedisUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+@SpringBootTest(properties = {
+        "bank.transfer.async.enabled=true",
+        "bank.transfer.async.partitions=4",
+        "bank.lock.provider=local"})
+@ActiveProfiles("test")
+public class AsyncTransferServiceTest {
+
+    @Autowired
+    private AsyncTransferService asyncTransferService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private AsyncTransferRepository asyncTransferRepository;
+
+    @MockBean
+    private RedissonClient redissonClient;
+
+    @MockBean
+    private RedisUtils redisUtils;
+
+    @Test
+    void testSubmit_AppliedByPartitionWritersAndMoneyConserved() throws InterruptedException {
+        List<String> accounts = Stream.of("ASYNC_A", "ASYNC_B", "ASYNC_C", "ASYNC_D").toList();
+        accounts.forEach(accountNumber -> createAccount(accountNumber, "100.00"));
+
+        List<String> transferIds = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String from = accounts.get(i % accounts.size());
+            String to = accounts.get((i * 7 + 1) % accounts.size());
+            if (!from.equals(to)) {
+                transferIds.add(asyncTransferService.submit(transfer(from, to, "7.00")).getTransferId());
+            }
+        }
+        String overdrawId = asyncTransferService.submit(transfer("ASYNC_A", "ASYNC_B", "100000.00")).getTransferId();
+        String missingId = asyncTransferService.submit(transfer("ASYNC_A", "ASYNC_MISSING", "1.00")).getTransferId();
+
+        for (String transferId : transferIds) {
+            Assertions.assertNotEquals(AsyncTransferService.STATUS_PENDING, awaitFinish(transferId).getStatus());
+        }
+        TransferStatusResponse overdraw = awaitFinish(overdrawId);
+        Assertions.assertEquals(AsyncTransferService.STATUS_FAILED, overdraw.getStatus());
+        Assertions.assertEquals("BM-007", overdraw.getErrorCode());
+        TransferStatusResponse missing = awaitFinish(missingId);
+        Assertions.assertEquals(AsyncTransferService.STATUS_FAILED, missing.getStatus());
+        Assertions.assertEquals("BM-005", missing.getErrorCode());
+
+        BigDecimal total = BigDecimal.ZERO;
+        for (String accountNumber : accounts) {
+            BigDecimal balance = accountRepository.findByAccountNumber(accountNumber).getBalance();
+            Assertions.assertTrue(balance.signum() >= 0);
+            total = total.add(balance);
+        }
+        Assertions.assertEquals(0, new BigDecimal("400.00").compareTo(total));
+        accountRepository.deleteAll(accountRepository.findByAccountNumberIn(accounts));
+    }
+
+    @Test
+    void testSubmitAndStatus_InvalidRequests() {
+        BusinessException exception = Assertions.assertThrows(BusinessException.class,
+                () -> asyncTransferService.submit(transfer("ASYNC_A", "ASYNC_A", "1.00")));
+        Assertions.assertEquals("BM-006", exception.getErrorCode());
+        exception = Assertions.assertThrows(BusinessException.class, () -> asyncTransferService.getStatus("404"));
+        Assertions.assertEquals("BM-016", exception.getErrorCode());
+        exception = Assertions.assertThrows(BusinessException.class, () -> asyncTransferService.getStatus("not-a-number"));
+        Assertions.assertEquals("BM-016", exception.getErrorCode());
+    }
+
+    @Test
+    void testRecover_RequeuesStalePendingAndMarksStaleProcessingUnknown() throws InterruptedException {
+        createAccount("ASYNC_R1", "100.00");
+        createAccount("ASYNC_R2", "0.00");
+        // 模拟受理后未处理即退出的节点留下的记录
+        long stale = System.currentTimeMillis() - 3_600_000;
+        AsyncTransferPo pending = staleTransfer("ASYNC_R1", "ASYNC_R2", "30.00", AsyncTransferPo.STATUS_PENDING, stale);
+        AsyncTransferPo processing = staleTransfer("ASYNC_R1", "ASYNC_R2", "5.00", AsyncTransferPo.STATUS_PROCESSING, stale);
+        String pendingId = String.valueOf(pending.getTransferId());
+        String processingId = String.valueOf(processing.getTransferId());
+        Assertions.assertEquals(AsyncTransferService.STATUS_PENDING, asyncTransferService.getStatus(processingId).getStatus());
+
+        asyncTransferService.recover();
+
+        Assertions.assertEquals(AsyncTransferService.STATUS_SUCCESS, awaitFinish(pendingId).getStatus());
+        TransferStatusResponse unknown = asyncTransferService.getStatus(processingId);
+        Assertions.assertEquals(AsyncTransferService.STATUS_UNKNOWN, unknown.getStatus());
+        Assertions.assertEquals("BM-018", unknown.getErrorCode());
+        Assertions.assertEquals(0, new BigDecimal("70.00").compareTo(accountRepository.findByAccountNumber("ASYNC_R1").getBalance()));
+        Assertions.assertEquals(0, new BigDecimal("30.00").compareTo(accountRepository.findByAccountNumber("ASYNC_R2").getBalance()));
+
+        // 已推进的转账再次恢复时不会重复记账
+        asyncTransferService.recover();
+        Thread.sleep(200);
+        Assertions.assertEquals(0, new BigDecimal("70.00").compareTo(accountRepository.findByAccountNumber("ASYNC_R1").getBalance()));
+        accountRepository.deleteAll(accountRepository.findByAccountNumberIn(List.of("ASYNC_R1", "ASYNC_R2")));
+    }
+
+    private AsyncTransferPo staleTransfer(String from, String to, String amount, String status, long time) {
+        AsyncTransferPo transfer = AsyncTransferPo.builder()
+                .transferId(IdUtils.getNextId())
+                .fromAccount(from)
+                .toAccount(to)
+                .amount(new BigDecimal(amount))
+                .status(status)
+                .createTime(time)
+                .updateTime(time)
+                .build();
+        asyncTransferRepository.insert(transfer);
+        return transfer;
+    }
+
+    private TransferStatusResponse awaitFinish(String transferId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        TransferStatusResponse status = asyncTransferService.getStatus(transferId);
+        while (AsyncTransferService.STATUS_PENDING.equals(status.getStatus()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            status = asyncTransferService.getStatus(transferId);
+        }
+        return status;
+    }
+
+    private TransferRequestParam transfer(String from, String to, String amount) {
+        TransferRequestParam param = new TransferRequestParam();
+        param.setFromAccount(from);
+        param.setToAccount(to);
+        param.setAmount(new BigDecimal(amount));
+        return param;
+    }
+
+    private void createAccount(String accountNumber, String balance) {
+        accountRepository.save(BankAccountPo.builder()
+                .accountNumber(accountNumber)
+                .accountHolderName(accountNumber)
+                .contactNumber(accountNumber)
+                .balance(new BigDecimal(balance))
+                .createTime(System.currentTimeMillis())
+                .build());
+    }
+}
@@ -0,0 +1,147 @@
+package com.mxh.bank.service;
+
+import com.mxh.bank.exception.BusinessException;
+import com.mxh.bank.model.po.BankAccountPo;
+import com.mxh.bank.model.po.HotTransferPo;
+import com.mxh.bank.model.request.TransferRequestParam;
+import com.mxh.bank.repository.AccountRepository;
+import com.mxh.bank.repository.HotBalanceJournalRepository;
+import com.mxh.bank.repository.HotTransferRepository;
+import com.mxh.bank.utils.IdUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.math.BigDecimal;
+
+/**
+ * 使用本地Docker启动的Redis验证热点账户脚本记账与异步回写，无Docker环境时跳过
+ */
+@SpringBootTest(properties = {
+        "bank.hot-account.enabled=true",
+        "bank.hot-account.accounts=HOT_A,HOT_B,HOT_R",
+        "bank.hot-account.flush-interval-millis=3600000"})
+@ActiveProfiles("test")
+@Testcontainers(disabledWithoutDocker = true)
+public class HotBalanceServiceTest {
+
+    @Container
+    static final GenericContainer<?> REDIS = new GenericContainer<>(DockerImageName.parse("redis:7.2-alpine"))
+            .withExposedPorts(6379);
+
+    @DynamicPropertySource
+    static void redisProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.redis.host", REDIS::getHost);
+        registry.add("spring.data.redis.port", () -> REDIS.getMappedPort(6379));
+    }
+
+    @Autowired
+    private AccountManagerService accountManagerService;
+
+    @Autowired
+    private HotBalanceReconciler hotBalanceReconciler;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private HotBalanceJournalRepository hotBalanceJournalRepository;
+
+    @Autowired
+    private HotBalanceService hotBalanceService;
+
+    @Autowired
+    private HotTransferRepository hotTransferRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testHotTransfer_AppliedInRedisThenFlushedToDatabase() {
+        createAccount("HOT_A", "1000.00");
+        createAccount("HOT_B", "0.00");
+        createAccount("COLD_C", "500.00");
+
+        accountManagerService.transferFunds(transfer("HOT_A", "HOT_B", "300.00"));
+        accountManagerService.transferFunds(transfer("COLD_C", "HOT_A", "100.00"));
+        accountManagerService.transferFunds(transfer("HOT_B", "COLD_C", "50.00"));
+        BusinessException exception = Assertions.assertThrows(BusinessException.class,
+                () -> accountManagerService.transferFunds(transfer("HOT_B", "HOT_A", "1000.00")));
+        Assertions.assertEquals("BM-007", exception.getErrorCode());
+
+        // 回写前数据库仍是旧余额，查询以Redis为准
+        Assertions.assertEquals(new BigDecimal("1000.00"), accountRepository.findByAccountNumber("HOT_A").getBalance());
+        Assertions.assertEquals(new BigDecimal("800.00"), accountManagerService.getAccount("HOT_A").getBalance());
+        Assertions.assertEquals(new BigDecimal("250.00"), accountManagerService.getAccount("HOT_B").getBalance());
+        Assertions.assertEquals(new BigDecimal("450.00"), accountRepository.findByAccountNumber("COLD_C").getBalance());
+
+        Assertions.assertEquals(4, hotBalanceReconciler.flush());
+        Assertions.assertEquals(0, hotBalanceReconciler.flush());
+
+        Assertions.assertEquals(new BigDecimal("800.00"), accountRepository.findByAccountNumber("HOT_A").getBalance());
+        Assertions.assertEquals(new BigDecimal("250.00"), accountRepository.findByAccountNumber("HOT_B").getBalance());
+        Assertions.assertEquals(2, hotBalanceJournalRepository.findByAccountNumber("HOT_A").size());
+    }
+
+    @Test
+    void testRecover_PendingTransferAppliedOnceAndMissingAccountCompensated() {
+        createAccount("HOT_R", "0.00");
+        createAccount("COLD_R", "100.00");
+
+        // 模拟普通账户扣款并提交PENDING记录后、Redis记账前进程退出
+        long now = System.currentTimeMillis();
+        HotTransferPo transfer = HotTransferPo.builder()
+                .transferId(IdUtils.getNextId())
+                .fromAccount("COLD_R")
+                .toAccount("HOT_R")
+                .amount(new BigDecimal("40.00"))
+                .status(HotTransferPo.STATUS_PENDING)
+                .createTime(now)
+                .updateTime(now)
+                .build();
+        jdbcTemplate.update("UPDATE bank_account SET balance = balance - 40 WHERE account_number = ?", "COLD_R");
+        hotTransferRepository.insert(transfer);
+
+        Assertions.assertEquals(HotTransferPo.STATUS_COMPLETED, hotBalanceService.recover(transfer));
+        // 重复推进不会再次记账
+        Assertions.assertEquals(HotTransferPo.STATUS_COMPLETED, hotBalanceService.recover(transfer));
+        Assertions.assertEquals(new BigDecimal("40.00"), hotBalanceService.getBalance("HOT_R"));
+        Assertions.assertEquals(new BigDecimal("60.00"), accountRepository.findByAccountNumber("COLD_R").getBalance());
+
+        // 转入账户不存在时冲正Redis扣款
+        BusinessException exception = Assertions.assertThrows(BusinessException.class,
+                () -> accountManagerService.transferFunds(transfer("HOT_R", "COLD_MISSING", "10.00")));
+        Assertions.assertEquals("BM-005", exception.getErrorCode());
+        Assertions.assertEquals(new BigDecimal("40.00"), hotBalanceService.getBalance("HOT_R"));
+
+        hotBalanceReconciler.flush();
+        Assertions.assertEquals(new BigDecimal("40.00"), accountRepository.findByAccountNumber("HOT_R").getBalance());
+    }
+
+    private void createAccount(String accountNumber, String balance) {
+        accountRepository.save(BankAccountPo.builder()
+                .accountNumber(accountNumber)
+                .accountHolderName(accountNumber)
+                .contactNumber(accountNumber)
+                .balance(new BigDecimal(balance))
+                .createTime(System.currentTimeMillis())
+                .build());
+    }
+
+    private TransferRequestParam transfer(String fromAccount, String toAccount, String amount) {
+        TransferRequestParam request = new TransferRequestParam();
+        request.setFromAccount(fromAccount);
+        request.setToAccount(toAccount);
+        request.setAmount(new BigDecimal(amount));
+        return request;
+    }
+}
@@ -0,0 +1,192 @@
+package com.mxh.bank.service;
+
+import com.mxh.bank.exception.BusinessException;
+import com.mxh.bank.model.po.BankAccountPo;
+import com.mxh.bank.model.po.TransferLedgerPo;
+import com.mxh.bank.model.request.TransferRequestParam;
+import com.mxh.bank.model.response.LedgerEntryResponse;
+import com.mxh.bank.model.response.LedgerPageResponse;
+import com.mxh.bank.repository.AccountRepository;
+import com.mxh.bank.repository.TransferLedgerRepository;
+import com.mxh.bank.utils.RedisUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+@SpringBootTest(properties = {
+        "bank.lock.provider=local",
+        "bank.ledger.batch-size=8"})
+@ActiveProfiles("test")
+public class TransferLedgerServiceTest {
+
+    @Autowired
+    private TransferLedgerService transferLedgerService;
+
+    @Autowired
+    private TransferLedgerRepository transferLedgerRepository;
+
+    @Autowired
+    private AccountManagerService accountManagerService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @MockBean
+    private RedissonClient redissonClient;
+
+    @MockBean
+    private RedisUtils redisUtils;
+
+    @Test
+    void testTransferFunds_WritesDebitAndCreditEntries() throws InterruptedException {
+        createAccount("LEDGER_A", "100.00");
+        createAccount("LEDGER_B", "0.00");
+
+        accountManagerService.transferFunds(transfer("LEDGER_A", "LEDGER_B", "30.00"));
+        Assertions.assertThrows(BusinessException.class,
+                () -> accountManagerService.transferFunds(transfer("LEDGER_A", "LEDGER_B", "1000.00")));
+
+        List<LedgerEntryResponse> debits = awaitEntries("LEDGER_A", 1);
+        Assertions.assertEquals(1, debits.size());
+        LedgerEntryResponse debit = debits.get(0);
+        Assertions.assertEquals(TransferLedgerPo.DIRECTION_DEBIT, debit.getDirection());
+        Assertions.assertEquals("LEDGER_B", debit.getCounterpartyAccount());
+        Assertions.assertEquals(0, new BigDecimal("30.00").compareTo(debit.getAmount()));
+
+        List<TransferLedgerPo> entries = transferLedgerRepository.findByTransferId(debit.getTransferId());
+        Assertions.assertEquals(2, entries.size());
+        TransferLedgerPo credit = entries.stream()
+                .filter(entry -> TransferLedgerPo.DIRECTION_CREDIT.equals(entry.getDirection()))
+                .findFirst()
+                .orElseThrow();
+        Assertions.assertEquals("LEDGER_B", credit.getAccountNumber());
+        Assertions.assertEquals("LEDGER_A", credit.getCounterpartyAccount());
+        Assertions.assertEquals(debit.getCreateTime(), credit.getCreateTime());
+
+        accountRepository.deleteAll(accountRepository.findByAccountNumberIn(List.of("LEDGER_A", "LEDGER_B")));
+        jdbcTemplate.update("DELETE FROM transfer_ledger WHERE transfer_id = ?", debit.getTransferId());
+    }
+
+    @Test
+    void testDrain_SkipsEntriesAlreadyMoved() throws InterruptedException {
+        List<TransferLedgerPo> entries = transferLedgerService.entries("DRAIN_T1", "LEDGER_DRAIN_A", "LEDGER_DRAIN_B", BigDecimal.TEN);
+        // 模拟上次移入已写入 transfer_ledger、尚未删除待移入流水时中断
+        transferLedgerRepository.batchInsert(entries.subList(0, 1));
+        transactionTemplate.executeWithoutResult(status -> transferLedgerService.record(entries));
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (countPending("DRAIN_T1") > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        Assertions.assertEquals(0, countPending("DRAIN_T1"));
+        List<TransferLedgerPo> moved = transferLedgerRepository.findByTransferId("DRAIN_T1");
+        Assertions.assertEquals(entries.stream().map(TransferLedgerPo::getEntryId).toList(),
+                moved.stream().map(TransferLedgerPo::getEntryId).toList());
+
+        jdbcTemplate.update("DELETE FROM transfer_ledger WHERE transfer_id = ?", "DRAIN_T1");
+    }
+
+    @Test
+    void testRecord_RequiresTransaction() {
+        Assertions.assertThrows(IllegalTransactionStateException.class,
+                () -> transferLedgerService.record("RECORD_T1", "LEDGER_A", "LEDGER_B", BigDecimal.ONE));
+    }
+
+    @Test
+    void testGetHistory_TimeRangeAndCursorPaging() {
+        long base = 1_700_000_000_000L;
+        List<TransferLedgerPo> entries = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            // 每个时间点两条流水，验证同一时间的流水在翻页时不重复也不遗漏
+            for (int j = 0; j < 2; j++) {
+                entries.add(TransferLedgerPo.builder()
+                        .entryId(base + i * 2L + j)
+                        .transferId("HISTORY_T" + i + "_" + j)
+                        .accountNumber("LEDGER_HISTORY")
+                        .counterpartyAccount("LEDGER_OTHER")
+                        .direction(TransferLedgerPo.DIRECTION_DEBIT)
+                        .amount(BigDecimal.ONE)
+                        .createTime(base + i)
+                        .build());
+            }
+        }
+        transferLedgerRepository.batchInsert(entries);
+
+        // [base + 2, base + 8) 共6个时间点12条流水，每页5条
+        List<Long> entryIds = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            LedgerPageResponse page = transferLedgerService.getHistory("LEDGER_HISTORY", base + 2, base + 8, cursor, 5);
+            page.getContent().forEach(entry -> entryIds.add(Long.valueOf(entry.getEntryId())));
+            cursor = page.getNextCursor();
+            Assertions.assertEquals(page.isHasMore(), cursor != null);
+            pages++;
+        } while (cursor != null);
+
+        Assertions.assertEquals(3, pages);
+        List<Long> expected = new ArrayList<>();
+        for (long id = base + 15; id >= base + 4; id--) {
+            expected.add(id);
+        }
+        Assertions.assertEquals(expected, entryIds);
+
+        BusinessException exception = Assertions.assertThrows(BusinessException.class,
+                () -> transferLedgerService.getHistory("LEDGER_HISTORY", base + 8, base + 2, null, 5));
+        Assertions.assertEquals("BM-013", exception.getErrorCode());
+        exception = Assertions.assertThrows(BusinessException.class,
+                () -> transferLedgerService.getHistory("LEDGER_HISTORY", null, null, "invalid", 5));
+        Assertions.assertEquals("BM-013", exception.getErrorCode());
+
+        jdbcTemplate.update("DELETE FROM transfer_ledger WHERE account_number = ?", "LEDGER_HISTORY");
+    }
+
+    private int countPending(String transferId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transfer_ledger_pending WHERE transfer_id = ?", Integer.class, transferId);
+    }
+
+    private List<LedgerEntryResponse> awaitEntries(String accountNumber, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        List<LedgerEntryResponse> entries = transferLedgerService.getHistory(accountNumber, null, null, null, 100).getContent();
+        while (entries.size() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            entries = transferLedgerService.getHistory(accountNumber, null, null, null, 100).getContent();
+        }
+        return entries;
+    }
+
+    private TransferRequestParam transfer(String from, String to, String amount) {
+        TransferRequestParam param = new TransferRequestParam();
+        param.setFromAccount(from);
+        param.setToAccount(to);
+        param.setAmount(new BigDecimal(amount));
+        return param;
+    }
+
+    private void createAccount(String accountNumber, String balance) {
+        accountRepository.save(BankAccountPo.builder()
+                .accountNumber(accountNumber)
+                .accountHolderName(accountNumber)
+                .contactNumber(accountNumber)
+                .balance(new BigDecimal(balance))
+                .createTime(System.currentTimeMillis())
+                .build());
+    }
+}
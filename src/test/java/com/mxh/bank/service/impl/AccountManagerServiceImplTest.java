@@ -3,34 +3,53 @@ package com.mxh.bank.service.impl;
 
 import com.mxh.bank.exception.BusinessException;
 import com.mxh.bank.model.po.BankAccountPo;
+import com.mxh.bank.model.request.BatchCreateAccountRequestParam;
+import com.mxh.bank.model.request.BatchGetAccountRequestParam;
+import com.mxh.bank.model.request.BatchTransferRequestParam;
 import com.mxh.bank.model.request.CreateAccountRequestParam;
 import com.mxh.bank.model.request.TransferRequestParam;
 import com.mxh.bank.model.request.UpdateAccountRequestParam;
+import com.mxh.bank.model.response.AccountCursorPageResponse;
 import com.mxh.bank.model.response.AccountInfoResponse;
+import com.mxh.bank.model.response.BatchCreateAccountResponse;
+import com.mxh.bank.model.response.BatchGetAccountResponse;
+import com.mxh.bank.model.response.BatchTransferResponse;
 import com.mxh.bank.model.response.OperationResponse;
 import com.mxh.bank.repository.AccountRepository;
+import com.mxh.bank.service.AccountCacheService;
 import com.mxh.bank.service.AccountManagerService;
+import com.mxh.bank.service.AccountShardService;
+import com.mxh.bank.service.BankMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import com.mxh.bank.utils.IdUtils;
 import com.mxh.bank.utils.RedisUtils;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.redisson.api.RLock;
+import org.redisson.api.RScript;
 import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.Codec;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.transaction.TransactionManager;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
@@ -54,6 +73,18 @@ public class AccountManagerServiceImplTest {
     @Autowired
     private TransactionManager transactionManager;
 
+    @Autowired
+    private AccountCacheService accountCacheService;
+
+    @Autowired
+    private OptimisticTransferStrategy optimisticTransferStrategy;
+
+    @Autowired
+    private AccountShardService accountShardService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     // 模拟分布式锁
     @BeforeEach
     void setUp() throws InterruptedException {
@@ -62,6 +93,11 @@ public class AccountManagerServiceImplTest {
         when(mockLock.tryLock(anyLong(), anyLong(), any(TimeUnit.class))).thenReturn(true);
         doNothing().when(mockLock).unlock();
         when(mockLock.isHeldByCurrentThread()).thenReturn(true);
+        // 多账户锁脚本返回nil表示加锁成功
+        RScript mockScript = mock(RScript.class);
+        when(redissonClient.getScript(any(Codec.class))).thenReturn(mockScript);
+        // 测试方法回滚后L1中可能残留旧数据
+        accountCacheService.clearLocal();
     }
 
     @Test
@@ -96,6 +132,34 @@ public class AccountManagerServiceImplTest {
         Assertions.assertEquals("BM-002", exception.getErrorCode());
     }
 
+    @Test
+    @Transactional
+    void testCreateAccountsBatch_SkipsExistingAndDuplicates() {
+        createTestAccount("BULK002");
+        List<CreateAccountRequestParam> accounts = new ArrayList<>();
+        for (String accountNumber : List.of("BULK001", "BULK002", "BULK003", "BULK001")) {
+            CreateAccountRequestParam request = new CreateAccountRequestParam();
+            request.setAccountNumber(accountNumber);
+            request.setAccountHolderName("Bulk User");
+            request.setContactNumber("1234567890");
+            accounts.add(request);
+        }
+        BatchCreateAccountRequestParam request = new BatchCreateAccountRequestParam();
+        request.setAccounts(accounts);
+        request.setWarmCache(true);
+
+        BatchCreateAccountResponse response = accountManagerService.createAccountsBatch(request);
+
+        Assertions.assertEquals(4, response.getTotal());
+        Assertions.assertEquals(2, response.getCreatedCount());
+        Assertions.assertEquals(List.of(1, 3), response.getFailures().stream().map(failure -> failure.getIndex()).toList());
+        Assertions.assertTrue(response.getFailures().stream().allMatch(failure -> "BM-002".equals(failure.getErrorCode())));
+        BankAccountPo created = accountRepository.findByAccountNumber("BULK003");
+        Assertions.assertNotNull(created.getId());
+        Assertions.assertEquals(0, BigDecimal.ZERO.compareTo(created.getBalance()));
+        verify(redisUtils).pipelineSet(anyMap(), any());
+    }
+
     @Test
     @Transactional
     void testGetAccount_Success() {
@@ -165,6 +229,29 @@ public class AccountManagerServiceImplTest {
         Assertions.assertEquals(2, accounts.getTotalElements());
     }
 
+    @Test
+    @Transactional
+    void testListAccountsByCursor() {
+        for (int i = 1; i <= 5; i++) {
+            createTestAccount("CURSOR00" + i);
+        }
+
+        List<String> accountNumbers = new ArrayList<>();
+        String cursor = null;
+        AccountCursorPageResponse page;
+        do {
+            page = accountManagerService.listAccountsByCursor(cursor, 2, Sort.Direction.ASC);
+            Assertions.assertTrue(page.getSize() <= 2);
+            page.getContent().forEach(account -> accountNumbers.add(account.getAccountNumber()));
+            cursor = page.getNextCursor();
+        } while (page.isHasMore());
+
+        Assertions.assertEquals(List.of("CURSOR001", "CURSOR002", "CURSOR003", "CURSOR004", "CURSOR005"), accountNumbers);
+        BusinessException exception = Assertions.assertThrows(BusinessException.class,
+                () -> accountManagerService.listAccountsByCursor("not-a-cursor", 2, Sort.Direction.ASC));
+        Assertions.assertEquals("BM-013", exception.getErrorCode());
+    }
+
     @Test
     @Transactional
     void testTransferFunds_Success() {
@@ -190,6 +277,25 @@ public class AccountManagerServiceImplTest {
         Assertions.assertEquals(new BigDecimal("800.00"), toAccountAfter.getBalance());
     }
 
+    @Test
+    @Transactional
+    void testTransferFunds_RecordsOperationAndPhaseMetrics() {
+        createTestAccountWithBalance("METRIC001", new BigDecimal("100.00"));
+        createTestAccountWithBalance("METRIC002", new BigDecimal("0.00"));
+        double successBefore = operationCount("success");
+        double failedBefore = operationCount("BM-007");
+
+        accountManagerService.transferFunds(buildTransfer("METRIC001", "METRIC002", "60.00"));
+        Assertions.assertThrows(BusinessException.class,
+                () -> accountManagerService.transferFunds(buildTransfer("METRIC001", "METRIC002", "60.00")));
+
+        Assertions.assertEquals(successBefore + 1, operationCount("success"));
+        Assertions.assertEquals(failedBefore + 1, operationCount("BM-007"));
+        Assertions.assertNotNull(meterRegistry.find(BankMetrics.PHASE_TIMER)
+                .tags("operation", "transferFunds", "phase", "lock").timer());
+        Assertions.assertNotNull(meterRegistry.find("bank.lock.wait").tags("outcome", "acquired").timer());
+    }
+
     @Test
     @Transactional
     void testTransferFunds_InsufficientBalance() {
@@ -263,6 +369,183 @@ public class AccountManagerServiceImplTest {
         Assertions.assertEquals(new BigDecimal("900.00"), toAccountAfter.getBalance());
     }
 
+    @Test
+    @Transactional
+    void testTransferFundsBatch_PartialFailure() {
+        createTestAccountWithBalance("BATCH001", new BigDecimal("1000.00"));
+        createTestAccountWithBalance("BATCH002", new BigDecimal("100.00"));
+        createTestAccountWithBalance("BATCH003", new BigDecimal("0.00"));
+
+        BatchTransferRequestParam request = new BatchTransferRequestParam();
+        request.setTransfers(List.of(
+                buildTransfer("BATCH001", "BATCH002", "300.00"),
+                buildTransfer("BATCH003", "BATCH001", "50.00"),
+                buildTransfer("BATCH002", "BATCH003", "400.00"),
+                buildTransfer("BATCH002", "NOT_EXIST", "1.00")));
+
+        BatchTransferResponse response = accountManagerService.transferFundsBatch(request);
+
+        Assertions.assertEquals(4, response.getTotal());
+        Assertions.assertEquals(2, response.getSuccessCount());
+        Assertions.assertEquals("BM-007", response.getResults().get(1).getErrorCode());
+        Assertions.assertEquals("BM-005", response.getResults().get(3).getErrorCode());
+        Assertions.assertEquals(new BigDecimal("700.00"), accountManagerService.getAccount("BATCH001").getBalance());
+        Assertions.assertEquals(new BigDecimal("0.00"), accountManagerService.getAccount("BATCH002").getBalance());
+        Assertions.assertEquals(new BigDecimal("400.00"), accountManagerService.getAccount("BATCH003").getBalance());
+    }
+
+    @Test
+    @Transactional
+    void testGetAccount_LocalCacheHit() {
+        String accountNumber = "CACHE001";
+        createTestAccount(accountNumber);
+        long hitsBefore = accountCacheService.getStats().get(0).getHits();
+
+        accountManagerService.getAccount(accountNumber);
+
+        Assertions.assertEquals(hitsBefore + 1, accountCacheService.getStats().get(0).getHits());
+        verify(redisUtils, never()).get(eq("account:cache:" + accountNumber));
+    }
+
+    @Test
+    @Transactional
+    void testGetAccount_NotFoundIsCached() {
+        Assertions.assertThrows(BusinessException.class, () -> accountManagerService.getAccount("NOT_EXIST_CACHED"));
+        long loadsBefore = accountCacheService.getStats().get(1).getLoads();
+
+        Assertions.assertThrows(BusinessException.class, () -> accountManagerService.getAccount("NOT_EXIST_CACHED"));
+
+        Assertions.assertEquals(loadsBefore, accountCacheService.getStats().get(1).getLoads());
+        verify(redisUtils).set(eq("account:cache:NOT_EXIST_CACHED"), eq("__NULL__"), anyLong(), any(TimeUnit.class));
+    }
+
+    @Test
+    @Transactional
+    void testGetAccounts_MultiGetThenBatchLoadInRequestOrder() {
+        createTestAccountWithBalance("LOOKUP001", new BigDecimal("10.00"));
+        createTestAccountWithBalance("LOOKUP002", new BigDecimal("20.00"));
+        when(redisUtils.multiGet(anyList())).thenAnswer(invocation ->
+                Collections.nCopies(invocation.<List<String>>getArgument(0).size(), null));
+        BatchGetAccountRequestParam request = new BatchGetAccountRequestParam();
+        request.setAccountNumbers(List.of("LOOKUP002", "LOOKUP_MISSING", "LOOKUP001", "LOOKUP002"));
+
+        BatchGetAccountResponse response = accountManagerService.getAccounts(request);
+
+        Assertions.assertEquals(List.of("LOOKUP002", "LOOKUP001"),
+                response.getAccounts().stream().map(AccountInfoResponse::getAccountNumber).toList());
+        Assertions.assertEquals(new BigDecimal("20.00"), response.getAccounts().get(0).getBalance());
+        Assertions.assertEquals(List.of("LOOKUP_MISSING"), response.getNotFound());
+        verify(redisUtils).multiGet(List.of("account:cache:LOOKUP002", "account:cache:LOOKUP_MISSING", "account:cache:LOOKUP001"));
+        verify(redisUtils).pipelineSet(argThat(values -> values.size() == 3 && "__NULL__".equals(values.get("account:cache:LOOKUP_MISSING"))), any());
+
+        // 回填后全部命中L1，不再访问Redis
+        accountManagerService.getAccounts(request);
+        verify(redisUtils, times(1)).multiGet(anyList());
+    }
+
+    @Test
+    void testGetAccount_ConcurrentMissesCoalesced() throws Exception {
+        String accountNumber = "COALESCE001";
+        createTestAccountWithBalance(accountNumber, new BigDecimal("10.00"));
+        try {
+            List<CompletableFuture<AccountInfoResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                futures.add(CompletableFuture.supplyAsync(() -> accountManagerService.getAccount(accountNumber)));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+            for (CompletableFuture<AccountInfoResponse> future : futures) {
+                Assertions.assertEquals(new BigDecimal("10.00"), future.get().getBalance());
+            }
+            // 首次回源后L1命中，50次并发读取最多只会触发极少量数据库查询
+            Assertions.assertTrue(accountCacheService.getStats().get(1).getLoads() < 50);
+        } finally {
+            accountRepository.delete(accountRepository.findByAccountNumber(accountNumber));
+        }
+    }
+
+    @Test
+    void testOptimisticTransfer_ConcurrentConflictsRetried() {
+        String fromAccount = "OPT_FROM";
+        String toAccount = "OPT_TO";
+        createTestAccountWithBalance(fromAccount, new BigDecimal("1000.00"));
+        createTestAccountWithBalance(toAccount, new BigDecimal("500.00"));
+
+        AtomicInteger forward = new AtomicInteger();
+        AtomicInteger backward = new AtomicInteger();
+        List<CompletableFuture<Void>> completableFutureList = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            completableFutureList.add(CompletableFuture.runAsync(() -> {
+                optimisticTransferStrategy.transfer(IdUtils.getNextId(), fromAccount, toAccount, new BigDecimal("10.00"));
+                forward.incrementAndGet();
+            }));
+            completableFutureList.add(CompletableFuture.runAsync(() -> {
+                optimisticTransferStrategy.transfer(IdUtils.getNextId(), toAccount, fromAccount, new BigDecimal("5.00"));
+                backward.incrementAndGet();
+            }));
+        }
+        // 重试耗尽的调用会以BM-003失败，只校验成功部分的金额守恒
+        completableFutureList.forEach(future -> future.handle((result, ex) -> null).join());
+
+        BigDecimal expectedFrom = new BigDecimal("1000.00")
+                .subtract(new BigDecimal("10.00").multiply(BigDecimal.valueOf(forward.get())))
+                .add(new BigDecimal("5.00").multiply(BigDecimal.valueOf(backward.get())));
+        BankAccountPo fromAfter = accountRepository.findByAccountNumber(fromAccount);
+        BankAccountPo toAfter = accountRepository.findByAccountNumber(toAccount);
+        Assertions.assertEquals(0, expectedFrom.compareTo(fromAfter.getBalance()));
+        Assertions.assertEquals(0, new BigDecimal("1500.00").compareTo(fromAfter.getBalance().add(toAfter.getBalance())));
+        Assertions.assertEquals(forward.get() + backward.get(), fromAfter.getVersion().intValue());
+        accountRepository.deleteAll(List.of(fromAfter, toAfter));
+    }
+
+    @Test
+    @Transactional
+    void testShardedAccount_TransferAcrossShards() {
+        String shardedAccount = "SHARD001";
+        String otherAccount = "SHARD002";
+        ReflectionTestUtils.setField(accountShardService, "enabled", true);
+        ReflectionTestUtils.setField(accountShardService, "shardedAccounts", Set.of(shardedAccount));
+        ReflectionTestUtils.setField(accountShardService, "shards", 4);
+        try {
+            createTestAccountWithBalance(shardedAccount, new BigDecimal("1000.00"));
+            createTestAccountWithBalance(otherAccount, new BigDecimal("0.00"));
+            accountShardService.createShards(shardedAccount);
+
+            // 分片余额均为0，首笔扣款从主账户扣除
+            accountManagerService.transferFunds(buildTransfer(shardedAccount, otherAccount, "1000.00"));
+            // 入账随机分散到各分片
+            for (int i = 0; i < 10; i++) {
+                accountManagerService.transferFunds(buildTransfer(otherAccount, shardedAccount, "100.00"));
+            }
+            // 单个分片余额通常不足，需要合并分片扣款
+            accountManagerService.transferFunds(buildTransfer(shardedAccount, otherAccount, "950.00"));
+
+            Assertions.assertEquals(0, new BigDecimal("50.00").compareTo(accountManagerService.getAccount(shardedAccount).getBalance()));
+            Assertions.assertEquals(0, new BigDecimal("950.00").compareTo(accountManagerService.getAccount(otherAccount).getBalance()));
+            BusinessException exception = Assertions.assertThrows(BusinessException.class,
+                    () -> accountManagerService.transferFunds(buildTransfer(shardedAccount, otherAccount, "50.01")));
+            Assertions.assertEquals("BM-007", exception.getErrorCode());
+        } finally {
+            ReflectionTestUtils.setField(accountShardService, "enabled", false);
+            ReflectionTestUtils.setField(accountShardService, "shardedAccounts", Set.of());
+        }
+    }
+
+    private double operationCount(String outcome) {
+        var timer = meterRegistry.find(BankMetrics.OPERATION_TIMER)
+                .tags("operation", "transferFunds", "outcome", outcome)
+                .timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    private TransferRequestParam buildTransfer(String fromAccount, String toAccount, String amount) {
+        TransferRequestParam request = new TransferRequestParam();
+        request.setFromAccount(fromAccount);
+        request.setToAccount(toAccount);
+        request.setAmount(new BigDecimal(amount));
+        return request;
+    }
+
     private void createTestAccount(String accountNumber) {
         CreateAccountRequestParam request = new CreateAccountRequestParam();
         request.setAccountNumber(accountNumber);
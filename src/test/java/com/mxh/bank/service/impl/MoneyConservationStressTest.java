@@ -0,0 +1,262 @@
+package com.mxh.bank.service.impl;
+
+import com.mxh.bank.exception.BusinessException;
+import com.mxh.bank.model.po.BankAccountPo;
+import com.mxh.bank.model.request.TransferRequestParam;
+import com.mxh.bank.model.request.UpdateAccountRequestParam;
+import com.mxh.bank.repository.AccountRepository;
+import com.mxh.bank.service.AccountManagerService;
+import com.mxh.bank.service.OptimisticRetryService;
+import com.mxh.bank.utils.AmountUtils;
+import com.mxh.bank.utils.RedisUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * 资金守恒压力测试：多线程随机执行转账、查询、更新与删除，结束后校验
+ * 存活账户余额之和加上被删除账户删除时的余额等于初始总额，且任何时刻读到的余额都不为负
+ * 缓存使用进程内的Redis替身（按JSON序列化保存），覆盖加锁与缓存失效的完整路径
+ * 规模可通过 -Dstress.threads、-Dstress.operations-per-thread、-Dstress.accounts 调整，默认不随构建执行，使用 -Pstress 运行
+ */
+@Slf4j
+@Tag("stress")
+@SpringBootTest(properties = "bank.lock.provider=local")
+@ActiveProfiles("test")
+public class MoneyConservationStressTest {
+    private static final int THREADS = Integer.getInteger("stress.threads", 16);
+    private static final int OPERATIONS_PER_THREAD = Integer.getInteger("stress.operations-per-thread", 300);
+    private static final int ACCOUNTS = Integer.getInteger("stress.accounts", 200);
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000.00");
+
+    @Autowired
+    private AccountManagerService accountManagerService;
+
+    @SpyBean
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private RedissonClient redissonClient;
+
+    @AfterEach
+    void tearDown() {
+        switchTransferMode(PessimisticTransferStrategy.MODE);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {PessimisticTransferStrategy.MODE, ConditionalUpdateTransferStrategy.MODE, OptimisticRetryService.MODE})
+    void testRandomizedOperations_ConserveMoney(String mode) {
+        switchTransferMode(mode);
+        String prefix = "STRESS_" + mode.toUpperCase() + "_";
+        List<String> accounts = new ArrayList<>(ACCOUNTS);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts.add(prefix + i);
+        }
+        accountRepository.saveAll(accounts.stream().map(this::newAccount).toList());
+
+        // 删除时在同一事务内加锁读取余额，提交后才计入，删除回滚时不计
+        LongAdder deletedCents = new LongAdder();
+        doAnswer(invocation -> {
+            String accountNumber = invocation.getArgument(0);
+            accountRepository.findWithLockByAccountNumber(accountNumber).ifPresent(account -> {
+                long cents = AmountUtils.toCents(account.getBalance());
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        deletedCents.add(cents);
+                    }
+                });
+            });
+            return invocation.callRealMethod();
+        }).when(accountRepository).deleteByAccountNumber(anyString());
+
+        Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+        List<Throwable> unexpected = new CopyOnWriteArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        long start = System.nanoTime();
+        try {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(CompletableFuture.runAsync(() -> {
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        String outcome = runRandomOperation(accounts, unexpected);
+                        outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+                    }
+                }, executor));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } finally {
+            executor.shutdown();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        Map<String, Long> summary = new TreeMap<>();
+        outcomes.forEach((outcome, count) -> summary.put(outcome, count.sum()));
+        log.info("stress mode = {}, threads = {}, operations = {}, ops/s = {}, outcomes = {}",
+                mode, THREADS, THREADS * OPERATIONS_PER_THREAD,
+                String.format("%.1f", THREADS * OPERATIONS_PER_THREAD * 1_000_000_000.0 / elapsedNanos), summary);
+
+        Assertions.assertTrue(unexpected.isEmpty(), () -> "unexpected errors: " + unexpected);
+        Integer negative = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM bank_account WHERE account_number LIKE ? AND balance < 0", Integer.class, prefix + "%");
+        Assertions.assertEquals(0, negative);
+        BigDecimal liveTotal = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(balance), 0) FROM bank_account WHERE account_number LIKE ?", BigDecimal.class, prefix + "%");
+        BigDecimal expected = INITIAL_BALANCE.multiply(BigDecimal.valueOf(ACCOUNTS));
+        Assertions.assertEquals(0, expected.compareTo(liveTotal.add(AmountUtils.fromCents(deletedCents.sum()))),
+                () -> "live = " + liveTotal + ", deleted = " + AmountUtils.fromCents(deletedCents.sum()) + ", expected = " + expected);
+
+        jdbcTemplate.update("DELETE FROM bank_account WHERE account_number LIKE ?", prefix + "%");
+    }
+
+    /**
+     * 转账70%、查询15%、更新14%、删除1%
+     * @return 成功为success，业务失败为错误码，并发冲突为异常类型名
+     */
+    private String runRandomOperation(List<String> accounts, List<Throwable> unexpected) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String accountNumber = accounts.get(random.nextInt(accounts.size()));
+        int dice = random.nextInt(100);
+        try {
+            if (dice < 70) {
+                String toAccount = accounts.get(random.nextInt(accounts.size()));
+                if (toAccount.equals(accountNumber)) {
+                    return "skipped";
+                }
+                TransferRequestParam param = new TransferRequestParam();
+                param.setFromAccount(accountNumber);
+                param.setToAccount(toAccount);
+                param.setAmount(AmountUtils.fromCents(1 + random.nextLong(5000)));
+                accountManagerService.transferFunds(param);
+            } else if (dice < 85) {
+                BigDecimal balance = accountManagerService.getAccount(accountNumber).getBalance();
+                if (balance.signum() < 0) {
+                    unexpected.add(new AssertionError("negative balance read, account = " + accountNumber + ", balance = " + balance));
+                }
+            } else if (dice < 99) {
+                UpdateAccountRequestParam param = new UpdateAccountRequestParam();
+                param.setAccountHolderName(accountNumber);
+                param.setContactNumber(String.valueOf(random.nextLong(10_000_000_000L)));
+                accountManagerService.updateAccount(accountNumber, param);
+            } else {
+                accountManagerService.deleteAccount(accountNumber);
+            }
+            return "success";
+        } catch (BusinessException e) {
+            return e.getErrorCode();
+        } catch (ConcurrencyFailureException e) {
+            // 乐观锁冲突、数据库锁等待超时等，操作整体回滚，不影响守恒
+            return e.getClass().getSimpleName();
+        } catch (RuntimeException e) {
+            unexpected.add(e);
+            return "unexpected";
+        }
+    }
+
+    private void switchTransferMode(String mode) {
+        AccountManagerServiceImpl target = AopTestUtils.getTargetObject(accountManagerService);
+        ReflectionTestUtils.setField(target, "transferMode", mode);
+        target.init();
+    }
+
+    private BankAccountPo newAccount(String accountNumber) {
+        return BankAccountPo.builder()
+                .accountNumber(accountNumber)
+                .accountHolderName(accountNumber)
+                .contactNumber(accountNumber)
+                .balance(INITIAL_BALANCE)
+                .createTime(System.currentTimeMillis())
+                .build();
+    }
+
+    /**
+     * 进程内的Redis替身，值按JSON序列化保存，保留与真实Redis一致的对象复制语义，不模拟过期
+     */
+    @TestConfiguration
+    static class InMemoryRedisConfiguration {
+
+        @Bean
+        @Primary
+        RedisUtils inMemoryRedisUtils() {
+            return new RedisUtils() {
+                private final GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer();
+                private final Map<String, byte[]> store = new ConcurrentHashMap<>();
+
+                @Override
+                public void set(String key, Object value) {
+                    store.put(key, serializer.serialize(value));
+                }
+
+                @Override
+                public void set(String key, Object value, long time, TimeUnit unit) {
+                    store.put(key, serializer.serialize(value));
+                }
+
+                @Override
+                public Object get(String key) {
+                    byte[] bytes = store.get(key);
+                    return bytes == null ? null : serializer.deserialize(bytes);
+                }
+
+                @Override
+                public void pipelineSet(Map<String, Object> values, ToLongFunction<Object> ttlSeconds) {
+                    values.forEach(this::set);
+                }
+
+                @Override
+                public List<Object> multiGet(List<String> keys) {
+                    return keys.stream().map(this::get).toList();
+                }
+
+                @Override
+                public Boolean delete(String key) {
+                    return store.remove(key) != null;
+                }
+
+                @Override
+                public void publish(String channel, Object message) {
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.mxh.bank.service.impl;
+
+import com.mxh.bank.service.LockProvider;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class StripedLockProviderTest {
+
+    private StripedLockProvider lockProvider;
+
+    @BeforeEach
+    void setUp() {
+        lockProvider = new StripedLockProvider();
+        ReflectionTestUtils.setField(lockProvider, "stripes", 64);
+        lockProvider.init();
+    }
+
+    @Test
+    void testTryLockAll_BlocksOtherThreadsUntilUnlocked() throws Exception {
+        LockProvider.LockHandle handle = lockProvider.tryLockAll(List.of("account:lock:B", "account:lock:A"), 1, 10, TimeUnit.SECONDS);
+        Assertions.assertNotNull(handle);
+
+        LockProvider.LockHandle blocked = CompletableFuture.supplyAsync(() -> tryLock("account:lock:A", 50)).get();
+        Assertions.assertNull(blocked);
+
+        handle.unlock();
+        LockProvider.LockHandle acquired = CompletableFuture.supplyAsync(() -> {
+            LockProvider.LockHandle lock = tryLock("account:lock:A", 50);
+            if (lock != null) {
+                lock.unlock();
+            }
+            return lock;
+        }).get();
+        Assertions.assertNotNull(acquired);
+    }
+
+    @Test
+    void testTryLockAll_OppositeOrderDoesNotDeadlock() {
+        List<CompletableFuture<Void>> futures = List.of(
+                CompletableFuture.runAsync(() -> lockRepeatedly(List.of("account:lock:A", "account:lock:B"))),
+                CompletableFuture.runAsync(() -> lockRepeatedly(List.of("account:lock:B", "account:lock:A"))));
+
+        Assertions.assertDoesNotThrow(() -> CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS));
+        Assertions.assertEquals(0, lockProvider.getStats().get(0).getTimeouts());
+    }
+
+    private void lockRepeatedly(List<String> keys) {
+        for (int i = 0; i < 1000; i++) {
+            try {
+                LockProvider.LockHandle handle = lockProvider.tryLockAll(keys, 5, 10, TimeUnit.SECONDS);
+                handle.unlock();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private LockProvider.LockHandle tryLock(String key, long waitMillis) {
+        try {
+            return lockProvider.tryLock(key, waitMillis, 10_000, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.mxh.bank.service.impl;
+
+import com.mxh.bank.exception.BusinessException;
+import com.mxh.bank.model.po.BankAccountPo;
+import com.mxh.bank.repository.AccountRepository;
+import com.mxh.bank.service.TransferStrategy;
+import com.mxh.bank.utils.IdUtils;
+import com.mxh.bank.utils.RedisUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 热点账户争用下悲观锁与条件UPDATE两种转账策略的吞吐对比
+ * 默认构建不执行，通过 mvn test -Pbenchmark 运行
+ */
+@Tag("benchmark")
+@Slf4j
+@SpringBootTest
+@ActiveProfiles("test")
+public class TransferStrategyBenchmarkTest {
+    private static final int THREADS = 16;
+    private static final int TRANSFERS_PER_THREAD = 500;
+    private static final int COLD_ACCOUNTS = 32;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000.00");
+
+    @Autowired
+    private List<TransferStrategy> transferStrategies;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @MockBean
+    private RedissonClient redissonClient;
+
+    @MockBean
+    private RedisUtils redisUtils;
+
+    @Test
+    void benchmarkHotAccountContention() {
+        for (TransferStrategy strategy : transferStrategies) {
+            // 预热一轮，避免JIT与连接池初始化影响结果
+            runRound(strategy, "WARM");
+            double tps = runRound(strategy, "BENCH");
+            log.info("transfer mode = {}, threads = {}, transfers = {}, tps = {}",
+                    strategy.mode(), THREADS, THREADS * TRANSFERS_PER_THREAD, String.format("%.1f", tps));
+        }
+    }
+
+    private double runRound(TransferStrategy strategy, String prefix) {
+        String hotAccount = prefix + "-" + strategy.mode() + "-HOT";
+        List<String> accounts = new ArrayList<>();
+        accounts.add(hotAccount);
+        for (int i = 0; i < COLD_ACCOUNTS; i++) {
+            accounts.add(prefix + "-" + strategy.mode() + "-" + i);
+        }
+        accounts.forEach(this::createAccount);
+
+        AtomicInteger failed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        long start = System.nanoTime();
+        try {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(CompletableFuture.runAsync(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                        // 每笔转账都有一端落在热点账户上
+                        String cold = accounts.get(1 + random.nextInt(COLD_ACCOUNTS));
+                        try {
+                            if (random.nextBoolean()) {
+                                strategy.transfer(IdUtils.getNextId(), cold, hotAccount, BigDecimal.ONE);
+                            } else {
+                                strategy.transfer(IdUtils.getNextId(), hotAccount, cold, BigDecimal.ONE);
+                            }
+                        } catch (BusinessException e) {
+                            throw e;
+                        } catch (RuntimeException e) {
+                            // 数据库锁等待超时等异常只计数，不中断压测
+                            failed.incrementAndGet();
+                        }
+                    }
+                }, executor));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } finally {
+            executor.shutdown();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        BigDecimal total = accounts.stream()
+                .map(accountNumber -> accountRepository.findByAccountNumber(accountNumber).getBalance())
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        Assertions.assertEquals(0, INITIAL_BALANCE.multiply(BigDecimal.valueOf(accounts.size())).compareTo(total));
+        if (failed.get() > 0) {
+            log.warn("transfer mode = {}, round = {}, failed = {}", strategy.mode(), prefix, failed.get());
+        }
+        return THREADS * TRANSFERS_PER_THREAD * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    private void createAccount(String accountNumber) {
+        accountRepository.save(BankAccountPo.builder()
+                .accountNumber(accountNumber)
+                .accountHolderName(accountNumber)
+                .contactNumber(accountNumber)
+                .balance(INITIAL_BALANCE)
+                .createTime(System.currentTimeMillis())
+                .build());
+    }
+}
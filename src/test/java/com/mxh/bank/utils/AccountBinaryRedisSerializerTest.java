@@ -0,0 +1,57 @@
+package com.mxh.bank.utils;
+
+import com.mxh.bank.model.po.BankAccountPo;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.math.BigDecimal;
+
+public class AccountBinaryRedisSerializerTest {
+
+    private final AccountBinaryRedisSerializer serializer = new AccountBinaryRedisSerializer();
+
+    private final GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer();
+
+    @Test
+    void testRoundTrip_SmallerThanJson() {
+        BankAccountPo account = BankAccountPo.builder()
+                .id(1234567890123456789L)
+                .accountNumber("6222020200112233")
+                .accountHolderName("张三")
+                .contactNumber("13800000000")
+                .balance(new BigDecimal("-123456.78"))
+                .createTime(1700000000000L)
+                .version(3L)
+                .build();
+
+        byte[] bytes = serializer.serialize(account);
+        Assertions.assertEquals(AccountBinaryRedisSerializer.MAGIC, bytes[0]);
+        Assertions.assertTrue(bytes.length * 2 < jsonSerializer.serialize(account).length);
+        Assertions.assertEquals(account, serializer.deserialize(bytes));
+
+        BankAccountPo partial = new BankAccountPo();
+        partial.setAccountNumber("6222020200112233");
+        partial.setCreateTime(null);
+        Assertions.assertEquals(partial, serializer.deserialize(serializer.serialize(partial)));
+    }
+
+    @Test
+    void testDeserialize_JsonValuesAndUnknownVersion() {
+        BankAccountPo account = BankAccountPo.builder()
+                .id(1L)
+                .accountNumber("ACC001")
+                .accountHolderName("Test User")
+                .contactNumber("1234567890")
+                .balance(new BigDecimal("100.00"))
+                .createTime(1L)
+                .version(0L)
+                .build();
+        Assertions.assertEquals(account, serializer.deserialize(jsonSerializer.serialize(account)));
+        Assertions.assertEquals("__NULL__", serializer.deserialize(serializer.serialize("__NULL__")));
+
+        byte[] bytes = serializer.serialize(account);
+        bytes[1] = AccountBinaryRedisSerializer.VERSION + 1;
+        Assertions.assertNull(serializer.deserialize(bytes));
+    }
+}
@@ -0,0 +1,91 @@
+package com.mxh.bank.utils;
+
+import com.mxh.bank.exception.BusinessException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RedisCircuitBreakerTest {
+
+    private RedisCircuitBreaker breaker;
+
+    private RedisConnection connection;
+
+    @BeforeEach
+    void setUp() {
+        connection = Mockito.mock(RedisConnection.class);
+        RedisConnectionFactory connectionFactory = Mockito.mock(RedisConnectionFactory.class);
+        Mockito.when(connectionFactory.getConnection()).thenReturn(connection);
+
+        breaker = new RedisCircuitBreaker();
+        ReflectionTestUtils.setField(breaker, "redisConnectionFactory", connectionFactory);
+        ReflectionTestUtils.setField(breaker, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(breaker, "enabled", true);
+        ReflectionTestUtils.setField(breaker, "failureThreshold", 3);
+        ReflectionTestUtils.setField(breaker, "slowCallMillis", 10_000L);
+        ReflectionTestUtils.setField(breaker, "openMillis", 0L);
+        breaker.init();
+    }
+
+    @Test
+    void testCall_OpensAfterConsecutiveFailuresAndShortCircuits() {
+        AtomicInteger attempts = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertEquals("fallback", breaker.call(() -> {
+                attempts.incrementAndGet();
+                throw new RedisConnectionFailureException("connection refused");
+            }, () -> "fallback"));
+        }
+        Assertions.assertEquals(RedisCircuitBreaker.State.OPEN, breaker.getState());
+
+        // 熔断后不再访问Redis
+        Assertions.assertEquals("fallback", breaker.call(() -> {
+            attempts.incrementAndGet();
+            return "redis";
+        }, () -> "fallback"));
+        Assertions.assertEquals(3, attempts.get());
+        Assertions.assertEquals("BM-017", Assertions.assertThrows(BusinessException.class, breaker::checkAvailable).getErrorCode());
+        Assertions.assertEquals(Status.UP, breaker.health().getStatus());
+        Assertions.assertEquals(RedisCircuitBreaker.State.OPEN, breaker.health().getDetails().get("state"));
+    }
+
+    @Test
+    void testCall_NonRedisExceptionPropagatesWithoutCounting() {
+        for (int i = 0; i < 5; i++) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> breaker.call(() -> {
+                throw new IllegalArgumentException("bad value");
+            }, () -> "fallback"));
+        }
+        Assertions.assertEquals(RedisCircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void testProbe_ClosesOnlyAfterPingAndRecoveryActionsSucceed() {
+        AtomicInteger recoveries = new AtomicInteger();
+        breaker.addRecoveryAction(recoveries::incrementAndGet);
+        for (int i = 0; i < 3; i++) {
+            breaker.recordFailure(new RedisConnectionFailureException("connection refused"));
+        }
+
+        Mockito.when(connection.ping()).thenThrow(new RedisConnectionFailureException("connection refused"));
+        breaker.probe();
+        Assertions.assertEquals(RedisCircuitBreaker.State.OPEN, breaker.getState());
+        Assertions.assertEquals(0, recoveries.get());
+
+        Mockito.reset(connection);
+        Mockito.when(connection.ping()).thenReturn("PONG");
+        breaker.probe();
+        Assertions.assertEquals(RedisCircuitBreaker.State.CLOSED, breaker.getState());
+        Assertions.assertEquals(1, recoveries.get());
+        Assertions.assertEquals("redis", breaker.call(() -> "redis", () -> "fallback"));
+    }
+}
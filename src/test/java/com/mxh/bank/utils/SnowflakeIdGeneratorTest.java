@@ -0,0 +1,109 @@
+package com.mxh.bank.utils;
+
+import cn.hutool.core.util.IdUtil;
+import com.mxh.bank.model.po.BankAccountPo;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Slf4j
+public class SnowflakeIdGeneratorTest {
+    private static final int THREADS = 16;
+    private static final int IDS_PER_THREAD = 100_000;
+
+    @Test
+    void testNextId_UniqueAcrossThreadsAndOrderedWithinThread() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(517, 32);
+        Set<Long> ids = ConcurrentHashMap.newKeySet(THREADS * IDS_PER_THREAD * 2);
+        runConcurrently(() -> {
+            long previous = Long.MIN_VALUE;
+            for (int i = 0; i < IDS_PER_THREAD; i++) {
+                long id = generator.nextId();
+                Assertions.assertTrue(id > previous);
+                Assertions.assertEquals(517, SnowflakeIdGenerator.workerIdOf(id));
+                ids.add(id);
+                previous = id;
+            }
+        });
+        Assertions.assertEquals(THREADS * IDS_PER_THREAD, ids.size());
+    }
+
+    @Test
+    void testNextId_NewerThanLegacySnowflake() throws InterruptedException {
+        long legacyId = IdUtil.getSnowflake(1, 1).nextId();
+        // 重启后的新进程不会与旧进程处于同一毫秒
+        Thread.sleep(2);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(IdUtils.DEFAULT_WORKER_ID, 1);
+        long id = generator.nextId();
+        Assertions.assertTrue(id > legacyId);
+        Assertions.assertEquals(SnowflakeIdGenerator.workerIdOf(legacyId), SnowflakeIdGenerator.workerIdOf(id));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(1024, 32));
+    }
+
+    /**
+     * 经过实体@PrePersist分配ID的多线程唯一性与吞吐
+     */
+    @Test
+    void testPrePersist_UniqueIdsUnderConcurrency() {
+        Set<Long> ids = ConcurrentHashMap.newKeySet(THREADS * IDS_PER_THREAD * 2);
+        long start = System.nanoTime();
+        runConcurrently(() -> {
+            for (int i = 0; i < IDS_PER_THREAD; i++) {
+                BankAccountPo account = new BankAccountPo();
+                account.prePersist();
+                ids.add(account.getId());
+            }
+        });
+        long elapsedNanos = System.nanoTime() - start;
+        Assertions.assertEquals(THREADS * IDS_PER_THREAD, ids.size());
+        log.info("prePersist ids = {}, threads = {}, ids/s = {}",
+                ids.size(), THREADS, String.format("%.0f", ids.size() * 1_000_000_000.0 / elapsedNanos));
+    }
+
+    @Test
+    void testRetire_ReplacementWithSameWorkerIdDoesNotRepeatIds() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7, 32);
+        long last = generator.nextId();
+        SnowflakeIdGenerator replacement = new SnowflakeIdGenerator(7, 32, generator.retire());
+        // 停用前预留的号段仍可用完，之后不再发号
+        long id = generator.nextId();
+        while (id != SnowflakeIdGenerator.RETIRED) {
+            last = Math.max(last, id);
+            id = generator.nextId();
+        }
+        Assertions.assertTrue(replacement.nextId() > last);
+    }
+
+    @Test
+    void testGetNextId_RejectedAfterLeaseDeadline() {
+        try {
+            IdUtils.setLeaseDeadline(System.currentTimeMillis() - 1);
+            Assertions.assertThrows(IllegalStateException.class, IdUtils::getNextId);
+            IdUtils.setLeaseDeadline(System.currentTimeMillis() + 60_000);
+            Assertions.assertNotNull(IdUtils.getNextId());
+        } finally {
+            IdUtils.setLeaseDeadline(Long.MAX_VALUE);
+        }
+    }
+
+    private void runConcurrently(Runnable task) {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(CompletableFuture.runAsync(task, executor));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } finally {
+            executor.shutdown();
+        }
+    }
+}